@@ -0,0 +1,32 @@
+-- daily rollups of finished mixs (see MixRollupTO)
+CREATE TABLE IF NOT EXISTS mix_rollup (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  created DATETIME,
+  updated DATETIME,
+  pool_id VARCHAR(255),
+  mix_day DATE,
+  nb_success BIGINT NOT NULL,
+  nb_fail BIGINT NOT NULL,
+  nb_fail_register_outputs BIGINT NOT NULL,
+  nb_fail_signing BIGINT NOT NULL,
+  nb_fail_broadcast BIGINT NOT NULL,
+  nb_fail_disconnect BIGINT NOT NULL,
+  sum_must_mix BIGINT NOT NULL,
+  sum_amount_out BIGINT NOT NULL,
+  sum_anonymity_set BIGINT NOT NULL,
+  sum_mix_duration BIGINT NOT NULL,
+  sum_fees_price BIGINT NOT NULL,
+  nb_fees_price BIGINT NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_mix_rollup_pool_day (pool_id, mix_day),
+  KEY idx_mix_rollup_day (mix_day)
+);
+
+-- completed backfills of mix_rollup (see MixRollupBackfillTO)
+CREATE TABLE IF NOT EXISTS mix_rollup_backfill (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  created DATETIME,
+  updated_max DATETIME,
+  nb_rollups INT NOT NULL,
+  PRIMARY KEY (id)
+);
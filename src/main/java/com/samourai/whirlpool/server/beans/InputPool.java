@@ -3,26 +3,34 @@ package com.samourai.whirlpool.server.beans;
 import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class InputPool {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private Map<String, RegisteredInput> inputsById;
+  private List<RegisteredInput> inputs; // random access for removeRandom()
+  private Map<String, Integer> indexById;
+  private Map<String, RegisteredInput> inputsByUsername;
 
   public InputPool() {
-    this.inputsById = new ConcurrentHashMap<>();
+    this.inputs = new ArrayList<>();
+    this.indexById = new HashMap<>();
+    this.inputsByUsername = new HashMap<>();
   }
 
   public synchronized void register(RegisteredInput registeredInput) {
     if (!hasInput(registeredInput.getOutPoint())) {
       String username = registeredInput.getUsername();
-      if (!findByUsername(username).isPresent()) {
+      if (!inputsByUsername.containsKey(username)) {
         String inputId = Utils.computeInputId(registeredInput.getOutPoint());
-        inputsById.put(inputId, registeredInput);
+        indexById.put(inputId, inputs.size());
+        inputs.add(registeredInput);
+        inputsByUsername.put(username, registeredInput);
       } else {
         log.error(
             "WEIRD: not queueing input, another one was already queued for this username:"
@@ -31,51 +39,59 @@ public class InputPool {
     } else {
       log.warn("not queueing input, it was already queued: " + registeredInput.getOutPoint());
       if (log.isDebugEnabled()) { // TODO
-        inputsById
-            .values()
-            .forEach(i -> log.debug("input: " + i.getOutPoint() + ", username=" + i.getUsername()));
+        inputs.forEach(
+            i -> log.debug("input: " + i.getOutPoint() + ", username=" + i.getUsername()));
       }
     }
   }
 
-  public Optional<RegisteredInput> findByUsername(String username) {
-    return inputsById
-        .values()
-        .parallelStream()
-        .filter(registeredInput -> registeredInput.getUsername().equals(username))
-        .findFirst();
+  public synchronized Optional<RegisteredInput> findByUsername(String username) {
+    return Optional.ofNullable(inputsByUsername.get(username));
   }
 
   public synchronized Optional<RegisteredInput> removeRandom() {
-    if (!inputsById.isEmpty()) {
-      Map.Entry<String, RegisteredInput> entry = Utils.getRandomEntry(inputsById);
-      RegisteredInput registeredInput = entry.getValue();
-      inputsById.remove(entry.getKey());
+    if (!inputs.isEmpty()) {
+      int index = Utils.getRandomIndex(inputs.size());
+      RegisteredInput registeredInput = removeAt(index);
       return Optional.of(registeredInput);
     }
     return Optional.empty();
   }
 
   public synchronized Optional<RegisteredInput> removeByUsername(String username) {
-    Optional<RegisteredInput> inputByUsername = findByUsername(username);
-    if (inputByUsername.isPresent()) {
-      String inputId = Utils.computeInputId(inputByUsername.get().getOutPoint());
-      inputsById.remove(inputId);
+    RegisteredInput registeredInput = inputsByUsername.get(username);
+    if (registeredInput != null) {
+      String inputId = Utils.computeInputId(registeredInput.getOutPoint());
+      removeAt(indexById.get(inputId));
     }
-    return inputByUsername;
+    return Optional.ofNullable(registeredInput);
+  }
+
+  // swap with last element then remove it, to avoid shifting the list
+  private RegisteredInput removeAt(int index) {
+    int lastIndex = inputs.size() - 1;
+    RegisteredInput registeredInput = inputs.get(index);
+    RegisteredInput lastInput = inputs.remove(lastIndex);
+    if (index != lastIndex) {
+      inputs.set(index, lastInput);
+      indexById.put(Utils.computeInputId(lastInput.getOutPoint()), index);
+    }
+    indexById.remove(Utils.computeInputId(registeredInput.getOutPoint()));
+    inputsByUsername.remove(registeredInput.getUsername());
+    return registeredInput;
   }
 
   // ------------
 
-  public boolean hasInput(TxOutPoint outPoint) {
-    return inputsById.containsKey(Utils.computeInputId(outPoint));
+  public synchronized boolean hasInput(TxOutPoint outPoint) {
+    return indexById.containsKey(Utils.computeInputId(outPoint));
   }
 
-  public boolean hasInputs() {
-    return !inputsById.isEmpty();
+  public synchronized boolean hasInputs() {
+    return !inputs.isEmpty();
   }
 
-  public int getSize() {
-    return inputsById.size();
+  public synchronized int getSize() {
+    return inputs.size();
   }
 }
@@ -6,7 +6,7 @@ import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
 import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.persistence.to.MixTO;
-import com.samourai.whirlpool.server.services.CryptoService;
+import com.samourai.whirlpool.server.utils.MixTxVerifier;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.sql.Timestamp;
 import java.util.Collection;
@@ -16,6 +16,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import org.bitcoinj.core.Transaction;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
@@ -23,6 +24,7 @@ import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 public class Mix {
   private MixTO mixTO;
   private Long created;
+  private ReentrantLock lock; // serializes mix steps, in arrival order
 
   private String mixId;
   private AsymmetricCipherKeyPair keyPair;
@@ -35,27 +37,32 @@ public class Mix {
   private int targetAnonymitySet;
 
   private MixStatus mixStatus;
+  private String inputsHash; // computed once when entering REGISTER_OUTPUT
   private InputPool confirmingInputs;
   private Map<String, ConfirmedInput> inputsById;
+  private Map<String, ConfirmedInput> inputsByUsername;
+  private Map<String, ConfirmedInput> inputsByAddress; // lowercase address
+  private Map<String, Integer> nbInputsByHash;
+  private volatile int nbInputsMustMix; // written under mix monitor, read without lock
+  private volatile int nbInputsLiquidities;
 
   private Set<String> receiveAddresses;
   private Map<String, String> revealedReceiveAddressesByUsername;
   private Map<String, Boolean> signed;
 
   private Transaction tx;
+  private MixTxVerifier txVerifier; // set with tx when entering SIGNING
+  private boolean broadcasting; // fully signed tx submitted for broadcast
   private FailReason failReason;
   private String failInfo;
 
-  public Mix(String mixId, Pool pool, CryptoService cryptoService) {
+  public Mix(String mixId, Pool pool, MixKey mixKey) {
     this.mixTO = null;
     this.created = null;
+    this.lock = new ReentrantLock(true);
     this.mixId = mixId;
-    this.keyPair = cryptoService.generateKeyPair();
-    try {
-      this.publicKey = cryptoService.computePublicKey(keyPair).getEncoded();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+    this.keyPair = mixKey.getKeyPair();
+    this.publicKey = mixKey.getPublicKey();
     this.timeStarted = new Timestamp(System.currentTimeMillis());
     this.timeStatus = new ConcurrentHashMap<>();
     this.scheduleRegisterOutput = null;
@@ -64,8 +71,14 @@ public class Mix {
     this.targetAnonymitySet = pool.getTargetAnonymitySet();
 
     this.mixStatus = MixStatus.CONFIRM_INPUT;
+    this.inputsHash = null;
     this.confirmingInputs = new InputPool();
     this.inputsById = new ConcurrentHashMap<>();
+    this.inputsByUsername = new ConcurrentHashMap<>();
+    this.inputsByAddress = new ConcurrentHashMap<>();
+    this.nbInputsByHash = new ConcurrentHashMap<>();
+    this.nbInputsMustMix = 0;
+    this.nbInputsLiquidities = 0;
 
     this.receiveAddresses = new HashSet<>();
     this.revealedReceiveAddressesByUsername = new ConcurrentHashMap<>();
@@ -90,6 +103,11 @@ public class Mix {
     return mixTO;
   }
 
+  /** Last MixTO computed by computeMixTO(), if any. */
+  public Optional<MixTO> getMixTO() {
+    return Optional.ofNullable(mixTO);
+  }
+
   public Optional<MixTO> __getMixTO() {
     return Optional.ofNullable(mixTO);
   }
@@ -106,6 +124,10 @@ public class Mix {
     return (getNbInputs() >= pool.getMaxAnonymitySet());
   }
 
+  public ReentrantLock getLock() {
+    return lock;
+  }
+
   public String getMixId() {
     return mixId;
   }
@@ -158,6 +180,10 @@ public class Mix {
   }
 
   public void setMixStatusAndTime(MixStatus mixStatus) {
+    if (MixStatus.REGISTER_OUTPUT.equals(mixStatus)) {
+      // inputs are frozen from now
+      this.inputsHash = computeInputsHash();
+    }
     this.mixStatus = mixStatus;
     timeStatus.put(mixStatus, new Timestamp(System.currentTimeMillis()));
   }
@@ -191,27 +217,15 @@ public class Mix {
   }
 
   public Optional<ConfirmedInput> getInputByUsername(String username) {
-    return inputsById
-        .values()
-        .stream()
-        .filter(
-            confirmedInput -> confirmedInput.getRegisteredInput().getUsername().equals(username))
-        .findFirst();
+    return Optional.ofNullable(inputsByUsername.get(username));
   }
 
   public Optional<ConfirmedInput> getInputByAddress(String address) {
-    return inputsById
-        .values()
-        .stream()
-        .filter(
-            confirmedInput ->
-                confirmedInput
-                    .getRegisteredInput()
-                    .getOutPoint()
-                    .getToAddress()
-                    .toLowerCase()
-                    .equals(address.toLowerCase()))
-        .findFirst();
+    return Optional.ofNullable(inputsByAddress.get(address.toLowerCase()));
+  }
+
+  public int getNbInputsByHash(String hash) {
+    return nbInputsByHash.getOrDefault(hash, 0);
   }
 
   public int getNbInputs() {
@@ -219,33 +233,47 @@ public class Mix {
   }
 
   public int getNbInputsMustMix() {
-    return (int)
-        getInputs()
-            .parallelStream()
-            .filter(input -> !input.getRegisteredInput().isLiquidity())
-            .count();
+    return nbInputsMustMix;
   }
 
   public int getNbInputsLiquidities() {
-    return (int)
-        getInputs()
-            .parallelStream()
-            .filter(input -> input.getRegisteredInput().isLiquidity())
-            .count();
+    return nbInputsLiquidities;
   }
 
   public synchronized void registerInput(ConfirmedInput confirmedInput)
       throws IllegalInputException {
-    String inputId = Utils.computeInputId(confirmedInput.getRegisteredInput().getOutPoint());
+    RegisteredInput registeredInput = confirmedInput.getRegisteredInput();
+    TxOutPoint outPoint = registeredInput.getOutPoint();
+    String inputId = Utils.computeInputId(outPoint);
     if (inputsById.containsKey(inputId)) {
       throw new IllegalInputException("input already registered");
     }
     inputsById.put(inputId, confirmedInput);
+    inputsByUsername.put(registeredInput.getUsername(), confirmedInput);
+    inputsByAddress.put(outPoint.getToAddress().toLowerCase(), confirmedInput);
+    nbInputsByHash.merge(outPoint.getHash(), 1, Integer::sum);
+    if (registeredInput.isLiquidity()) {
+      nbInputsLiquidities++;
+    } else {
+      nbInputsMustMix++;
+    }
   }
 
   public synchronized void unregisterInput(ConfirmedInput confirmedInput) {
-    String inputId = Utils.computeInputId(confirmedInput.getRegisteredInput().getOutPoint());
-    inputsById.remove(inputId);
+    RegisteredInput registeredInput = confirmedInput.getRegisteredInput();
+    TxOutPoint outPoint = registeredInput.getOutPoint();
+    String inputId = Utils.computeInputId(outPoint);
+    if (inputsById.remove(inputId) == null) {
+      return;
+    }
+    inputsByUsername.remove(registeredInput.getUsername(), confirmedInput);
+    inputsByAddress.remove(outPoint.getToAddress().toLowerCase(), confirmedInput);
+    nbInputsByHash.computeIfPresent(outPoint.getHash(), (hash, nb) -> nb > 1 ? nb - 1 : null);
+    if (registeredInput.isLiquidity()) {
+      nbInputsLiquidities--;
+    } else {
+      nbInputsMustMix--;
+    }
   }
 
   public boolean hasInput(TxOutPoint outPoint) {
@@ -262,6 +290,10 @@ public class Mix {
     return WhirlpoolProtocol.computeInputsHash(inputs);
   }
 
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
   public synchronized void registerOutput(String receiveAddress) {
     receiveAddresses.add(receiveAddress);
   }
@@ -314,6 +346,22 @@ public class Mix {
     return tx;
   }
 
+  public MixTxVerifier getTxVerifier() {
+    return txVerifier;
+  }
+
+  public void setTxVerifier(MixTxVerifier txVerifier) {
+    this.txVerifier = txVerifier;
+  }
+
+  public boolean isBroadcasting() {
+    return broadcasting;
+  }
+
+  public void setBroadcasting(boolean broadcasting) {
+    this.broadcasting = broadcasting;
+  }
+
   public void setFailReason(FailReason failReason) {
     this.failReason = failReason;
   }
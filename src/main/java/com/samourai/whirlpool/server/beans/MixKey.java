@@ -0,0 +1,21 @@
+package com.samourai.whirlpool.server.beans;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+
+public class MixKey {
+  private AsymmetricCipherKeyPair keyPair;
+  private byte[] publicKey;
+
+  public MixKey(AsymmetricCipherKeyPair keyPair, byte[] publicKey) {
+    this.keyPair = keyPair;
+    this.publicKey = publicKey;
+  }
+
+  public AsymmetricCipherKeyPair getKeyPair() {
+    return keyPair;
+  }
+
+  public byte[] getPublicKey() {
+    return publicKey;
+  }
+}
@@ -1,6 +1,8 @@
 package com.samourai.whirlpool.server.beans;
 
 public class MixStats {
+  public static final MixStats EMPTY = new MixStats(0, 0, 0);
+
   private long nbMixs;
   private long sumMustMix;
   private long sumAmountOut;
@@ -11,6 +13,11 @@ public class MixStats {
     this.sumAmountOut = sumAmountOut;
   }
 
+  public MixStats plus(MixStats other) {
+    return new MixStats(
+        nbMixs + other.nbMixs, sumMustMix + other.sumMustMix, sumAmountOut + other.sumAmountOut);
+  }
+
   public long getNbMixs() {
     return nbMixs;
   }
@@ -19,6 +19,13 @@ public class RpcTransaction {
     this.txTime = rpcRawTransaction.getTxTime();
   }
 
+  public RpcTransaction(RpcTransaction copy, int confirmations) {
+    // share parsed tx
+    this.tx = copy.tx;
+    this.confirmations = confirmations;
+    this.txTime = copy.txTime;
+  }
+
   public int getConfirmations() {
     return confirmations;
   }
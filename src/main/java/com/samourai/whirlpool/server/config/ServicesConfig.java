@@ -8,7 +8,9 @@ import com.samourai.wallet.util.MessageSignUtilGeneric;
 import com.samourai.wallet.util.TxUtil;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.fee.WhirlpoolFee;
+import com.samourai.whirlpool.server.utils.timeout.TimeoutScheduler;
 import java.lang.invoke.MethodHandles;
+import java.time.Clock;
 import nz.net.ultraq.thymeleaf.LayoutDialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,17 @@ public class ServicesConfig {
     return new SimpleAsyncTaskExecutor();
   }
 
+  @Bean
+  Clock clock() {
+    return Clock.systemUTC();
+  }
+
+  @Bean
+  TimeoutScheduler timeoutScheduler(Clock clock) {
+    // shared by all mix timeouts
+    return new TimeoutScheduler(clock, 2);
+  }
+
   @Bean
   WhirlpoolProtocol whirlpoolProtocol() {
     return new WhirlpoolProtocol();
@@ -2,8 +2,10 @@ package com.samourai.whirlpool.server.config;
 
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.server.utils.Utils;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.validation.constraints.NotEmpty;
 import org.bitcoinj.core.NetworkParameters;
@@ -29,6 +31,14 @@ public class WhirlpoolServerConfig {
   private RevealOutputConfig revealOutput;
   private BanConfig ban;
   private ExportConfig export;
+  private OutboundConfig outbound;
+  private MixKeysConfig mixKeys;
+  private BroadcastConfig broadcast;
+  private TxCacheConfig txCache;
+  private Tx0VerdictCacheConfig tx0VerdictCache;
+  private FeeAddressesConfig feeAddresses;
+  private MixOutputFilterConfig mixOutputFilter;
+  private MixPersistConfig mixPersist;
   private PoolConfig[] pools;
 
   public SamouraiFeeConfig getSamouraiFees() {
@@ -133,6 +143,70 @@ public class WhirlpoolServerConfig {
     this.export = export;
   }
 
+  public OutboundConfig getOutbound() {
+    return outbound;
+  }
+
+  public void setOutbound(OutboundConfig outbound) {
+    this.outbound = outbound;
+  }
+
+  public MixKeysConfig getMixKeys() {
+    return mixKeys;
+  }
+
+  public void setMixKeys(MixKeysConfig mixKeys) {
+    this.mixKeys = mixKeys;
+  }
+
+  public BroadcastConfig getBroadcast() {
+    return broadcast;
+  }
+
+  public void setBroadcast(BroadcastConfig broadcast) {
+    this.broadcast = broadcast;
+  }
+
+  public TxCacheConfig getTxCache() {
+    return txCache;
+  }
+
+  public void setTxCache(TxCacheConfig txCache) {
+    this.txCache = txCache;
+  }
+
+  public Tx0VerdictCacheConfig getTx0VerdictCache() {
+    return tx0VerdictCache;
+  }
+
+  public void setTx0VerdictCache(Tx0VerdictCacheConfig tx0VerdictCache) {
+    this.tx0VerdictCache = tx0VerdictCache;
+  }
+
+  public FeeAddressesConfig getFeeAddresses() {
+    return feeAddresses;
+  }
+
+  public void setFeeAddresses(FeeAddressesConfig feeAddresses) {
+    this.feeAddresses = feeAddresses;
+  }
+
+  public MixOutputFilterConfig getMixOutputFilter() {
+    return mixOutputFilter;
+  }
+
+  public void setMixOutputFilter(MixOutputFilterConfig mixOutputFilter) {
+    this.mixOutputFilter = mixOutputFilter;
+  }
+
+  public MixPersistConfig getMixPersist() {
+    return mixPersist;
+  }
+
+  public void setMixPersist(MixPersistConfig mixPersist) {
+    this.mixPersist = mixPersist;
+  }
+
   public PoolConfig[] getPools() {
     return pools;
   }
@@ -146,6 +220,8 @@ public class WhirlpoolServerConfig {
     private int minConfirmationsLiquidity;
     private int maxInputsSameHash;
     private long liquidityInterval;
+    private int threads;
+    private int maxPending;
 
     public int getMinConfirmationsMustMix() {
       return minConfirmationsMustMix;
@@ -178,6 +254,22 @@ public class WhirlpoolServerConfig {
     public void setLiquidityInterval(long liquidityInterval) {
       this.liquidityInterval = liquidityInterval;
     }
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getMaxPending() {
+      return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+      this.maxPending = maxPending;
+    }
   }
 
   public static class RegisterOutputConfig {
@@ -220,6 +312,7 @@ public class WhirlpoolServerConfig {
     private int blames;
     private long period;
     private long expiration;
+    private long reloadDelay;
 
     public int getBlames() {
       return blames;
@@ -244,6 +337,227 @@ public class WhirlpoolServerConfig {
     public void setExpiration(long expiration) {
       this.expiration = expiration;
     }
+
+    public long getReloadDelay() {
+      return reloadDelay;
+    }
+
+    public void setReloadDelay(long reloadDelay) {
+      this.reloadDelay = reloadDelay;
+    }
+  }
+
+  public static class OutboundConfig {
+    private int threads;
+    private int maxQueuePerSession;
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getMaxQueuePerSession() {
+      return maxQueuePerSession;
+    }
+
+    public void setMaxQueuePerSession(int maxQueuePerSession) {
+      this.maxQueuePerSession = maxQueuePerSession;
+    }
+  }
+
+  public static class MixKeysConfig {
+    private int poolSize;
+
+    public int getPoolSize() {
+      return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+      this.poolSize = poolSize;
+    }
+  }
+
+  public static class BroadcastConfig {
+    private int maxAttempts;
+    private int retryDelay;
+    private int timeout;
+
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    public int getRetryDelay() {
+      return retryDelay;
+    }
+
+    public void setRetryDelay(int retryDelay) {
+      this.retryDelay = retryDelay;
+    }
+
+    public int getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+      this.timeout = timeout;
+    }
+  }
+
+  public static class TxCacheConfig {
+    private int maxSize;
+    private int ttl;
+    private int ttlUnconfirmed;
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public int getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(int ttl) {
+      this.ttl = ttl;
+    }
+
+    public int getTtlUnconfirmed() {
+      return ttlUnconfirmed;
+    }
+
+    public void setTtlUnconfirmed(int ttlUnconfirmed) {
+      this.ttlUnconfirmed = ttlUnconfirmed;
+    }
+  }
+
+  public static class Tx0VerdictCacheConfig {
+    private int maxSize;
+    private int ttl;
+
+    public int getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public int getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(int ttl) {
+      this.ttl = ttl;
+    }
+  }
+
+  public static class FeeAddressesConfig {
+    private int window;
+    private int initialDelay;
+    private int refreshDelay;
+
+    public int getWindow() {
+      return window;
+    }
+
+    public void setWindow(int window) {
+      this.window = window;
+    }
+
+    public int getInitialDelay() {
+      return initialDelay;
+    }
+
+    public void setInitialDelay(int initialDelay) {
+      this.initialDelay = initialDelay;
+    }
+
+    public int getRefreshDelay() {
+      return refreshDelay;
+    }
+
+    public void setRefreshDelay(int refreshDelay) {
+      this.refreshDelay = refreshDelay;
+    }
+  }
+
+  public static class MixOutputFilterConfig {
+    private long expectedInsertions;
+    private double fpp;
+    private String file;
+    private int saveDelay;
+    private int recentSize;
+
+    public long getExpectedInsertions() {
+      return expectedInsertions;
+    }
+
+    public void setExpectedInsertions(long expectedInsertions) {
+      this.expectedInsertions = expectedInsertions;
+    }
+
+    public double getFpp() {
+      return fpp;
+    }
+
+    public void setFpp(double fpp) {
+      this.fpp = fpp;
+    }
+
+    public String getFile() {
+      return file;
+    }
+
+    public void setFile(String file) {
+      this.file = file;
+    }
+
+    public int getSaveDelay() {
+      return saveDelay;
+    }
+
+    public void setSaveDelay(int saveDelay) {
+      this.saveDelay = saveDelay;
+    }
+
+    public int getRecentSize() {
+      return recentSize;
+    }
+
+    public void setRecentSize(int recentSize) {
+      this.recentSize = recentSize;
+    }
+  }
+
+  public static class MixPersistConfig {
+    private int flushDelay;
+    private int batchSize;
+
+    public int getFlushDelay() {
+      return flushDelay;
+    }
+
+    public void setFlushDelay(int flushDelay) {
+      this.flushDelay = flushDelay;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
   }
 
   public static class ExportConfig {
@@ -399,13 +713,12 @@ public class WhirlpoolServerConfig {
     }
   }
 
-  public static class RpcClientConfig {
+  public static class RpcNodeConfig {
     @NotEmpty private String protocol;
     @NotEmpty private String host;
     @NotEmpty private int port;
     @NotEmpty private String user;
     private String password;
-    private boolean mockTxBroadcast;
 
     public String getProtocol() {
       return protocol;
@@ -447,6 +760,22 @@ public class WhirlpoolServerConfig {
       this.password = password;
     }
 
+    @Override
+    public String toString() {
+      return host + ":" + port;
+    }
+  }
+
+  public static class RpcClientConfig extends RpcNodeConfig {
+    private boolean mockTxBroadcast;
+    private boolean pooled;
+    private int connectTimeout;
+    private int readTimeout;
+    private int maxInFlight;
+    private int probeDelay;
+    private int maxBlockLag;
+    private List<RpcNodeConfig> nodes = new ArrayList<>();
+
     public boolean isMockTxBroadcast() {
       return mockTxBroadcast;
     }
@@ -454,6 +783,62 @@ public class WhirlpoolServerConfig {
     public void setMockTxBroadcast(boolean mockTxBroadcast) {
       this.mockTxBroadcast = mockTxBroadcast;
     }
+
+    public boolean isPooled() {
+      return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+      this.pooled = pooled;
+    }
+
+    public int getConnectTimeout() {
+      return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+      this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+      return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+      this.readTimeout = readTimeout;
+    }
+
+    public int getMaxInFlight() {
+      return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+    }
+
+    public int getProbeDelay() {
+      return probeDelay;
+    }
+
+    public void setProbeDelay(int probeDelay) {
+      this.probeDelay = probeDelay;
+    }
+
+    public int getMaxBlockLag() {
+      return maxBlockLag;
+    }
+
+    public void setMaxBlockLag(int maxBlockLag) {
+      this.maxBlockLag = maxBlockLag;
+    }
+
+    public List<RpcNodeConfig> getNodes() {
+      return nodes;
+    }
+
+    public void setNodes(List<RpcNodeConfig> nodes) {
+      this.nodes = nodes;
+    }
   }
 
   public static class SamouraiFeeConfig {
@@ -514,6 +899,22 @@ public class WhirlpoolServerConfig {
     configInfo.put(
         "rpcClient",
         rpcClient.getHost() + ":" + rpcClient.getPort() + "," + networkParameters.getId());
+    configInfo.put(
+        "rpcClient.pool",
+        "pooled="
+            + rpcClient.pooled
+            + ", connectTimeout="
+            + rpcClient.connectTimeout
+            + ", readTimeout="
+            + rpcClient.readTimeout
+            + ", maxInFlight="
+            + rpcClient.maxInFlight
+            + ", probeDelay="
+            + rpcClient.probeDelay
+            + ", maxBlockLag="
+            + rpcClient.maxBlockLag
+            + ", nodes="
+            + rpcClient.nodes);
     configInfo.put("protocolVersion", WhirlpoolProtocol.PROTOCOL_VERSION);
 
     String feesXpub = Utils.obfuscateString(samouraiFees.xpub, 3);
@@ -531,6 +932,9 @@ public class WhirlpoolServerConfig {
             + registerInput.minConfirmationsMustMix);
     configInfo.put(
         "registerInput.liquidityInterval", String.valueOf(registerInput.liquidityInterval));
+    configInfo.put(
+        "registerInput.pipeline",
+        "threads=" + registerInput.threads + ", maxPending=" + registerInput.maxPending);
 
     String timeoutInfo =
         "registerOutput="
@@ -540,6 +944,51 @@ public class WhirlpoolServerConfig {
             + ", revealOutput="
             + String.valueOf(revealOutput.timeout);
     configInfo.put("timeouts", timeoutInfo);
+    configInfo.put(
+        "outbound",
+        "threads=" + outbound.threads + ", maxQueuePerSession=" + outbound.maxQueuePerSession);
+    configInfo.put("mixKeys.poolSize", String.valueOf(mixKeys.poolSize));
+    configInfo.put(
+        "broadcast",
+        "maxAttempts="
+            + broadcast.maxAttempts
+            + ", retryDelay="
+            + broadcast.retryDelay
+            + ", timeout="
+            + broadcast.timeout);
+    configInfo.put(
+        "txCache",
+        "maxSize="
+            + txCache.maxSize
+            + ", ttl="
+            + txCache.ttl
+            + ", ttlUnconfirmed="
+            + txCache.ttlUnconfirmed);
+    configInfo.put(
+        "tx0VerdictCache", "maxSize=" + tx0VerdictCache.maxSize + ", ttl=" + tx0VerdictCache.ttl);
+    configInfo.put(
+        "feeAddresses",
+        "window="
+            + feeAddresses.window
+            + ", initialDelay="
+            + feeAddresses.initialDelay
+            + ", refreshDelay="
+            + feeAddresses.refreshDelay);
+    configInfo.put(
+        "mixOutputFilter",
+        "expectedInsertions="
+            + mixOutputFilter.expectedInsertions
+            + ", fpp="
+            + mixOutputFilter.fpp
+            + ", file="
+            + mixOutputFilter.file
+            + ", saveDelay="
+            + mixOutputFilter.saveDelay
+            + ", recentSize="
+            + mixOutputFilter.recentSize);
+    configInfo.put(
+        "mixPersist",
+        "flushDelay=" + mixPersist.flushDelay + ", batchSize=" + mixPersist.batchSize);
     configInfo.put("export.mixs", export.mixs.directory + " -> " + export.mixs.filename);
     configInfo.put(
         "ban",
@@ -58,6 +58,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         .hasAnyAuthority(WhirlpoolPrivilege.STATUS.toString(), WhirlpoolPrivilege.ALL.toString())
         .antMatchers(HistoryWebController.ENDPOINT)
         .hasAnyAuthority(WhirlpoolPrivilege.HISTORY.toString(), WhirlpoolPrivilege.ALL.toString())
+        .antMatchers(HistoryWebController.ENDPOINT_STATS, HistoryWebController.ENDPOINT_RAW_TX)
+        .hasAnyAuthority(WhirlpoolPrivilege.HISTORY.toString(), WhirlpoolPrivilege.ALL.toString())
+        .antMatchers(MetricsWebController.ENDPOINT)
+        .hasAnyAuthority(WhirlpoolPrivilege.STATUS.toString(), WhirlpoolPrivilege.ALL.toString())
         .antMatchers(ConfigWebController.ENDPOINT)
         .hasAnyAuthority(WhirlpoolPrivilege.CONFIG.toString(), WhirlpoolPrivilege.ALL.toString())
         .antMatchers(BanWebController.ENDPOINT)
@@ -20,11 +20,14 @@ import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurationSupport;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
@@ -55,6 +58,24 @@ public class WebSocketConfig extends WebSocketMessageBrokerConfigurationSupport
   @Override
   public void configureWebSocketTransport(WebSocketTransportRegistration registry) {
     super.configureWebSocketTransport(registry);
+
+    // track transport sessions, to be able to close them
+    registry.addDecoratorFactory(
+        handler ->
+            new WebSocketHandlerDecorator(handler) {
+              @Override
+              public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                webSocketSessionService.onWebSocketOpen(session);
+                super.afterConnectionEstablished(session);
+              }
+
+              @Override
+              public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus)
+                  throws Exception {
+                webSocketSessionService.onWebSocketClose(session);
+                super.afterConnectionClosed(session, closeStatus);
+              }
+            });
   }
 
   @Override
@@ -1,11 +1,9 @@
 package com.samourai.whirlpool.server.controllers.rest;
 
-import com.samourai.wallet.api.backend.beans.MultiAddrResponse;
 import com.samourai.whirlpool.protocol.WhirlpoolEndpoint;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.rest.Tx0DataResponse;
-import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
-import com.samourai.whirlpool.server.services.BackendService;
+import com.samourai.whirlpool.server.services.FeeAddressService;
 import com.samourai.whirlpool.server.services.FeeValidationService;
 import com.samourai.whirlpool.server.services.PoolService;
 import java.lang.invoke.MethodHandles;
@@ -22,18 +20,15 @@ public class Tx0Controller extends AbstractRestController {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private FeeValidationService feeValidationService;
-  private WhirlpoolServerConfig serverConfig;
-  private BackendService backendService;
+  private FeeAddressService feeAddressService;
 
   @Autowired
   public Tx0Controller(
       PoolService poolService,
       FeeValidationService feeValidationService,
-      WhirlpoolServerConfig serverConfig,
-      BackendService backendService) {
+      FeeAddressService feeAddressService) {
     this.feeValidationService = feeValidationService;
-    this.serverConfig = serverConfig;
-    this.backendService = backendService;
+    this.feeAddressService = feeAddressService;
   }
 
   @RequestMapping(value = WhirlpoolEndpoint.REST_TX0_DATA, method = RequestMethod.GET)
@@ -48,13 +43,12 @@ public class Tx0Controller extends AbstractRestController {
       tx0DataResponse =
           new Tx0DataResponse(feePaymentCode, WhirlpoolProtocol.encodeBytes(feePayload));
     } else {
-      int feeIndex = 0; // fallback value when backend is not available
+      int feeIndex;
       try {
-        MultiAddrResponse.Address address =
-            this.backendService.fetchAddress(serverConfig.getSamouraiFees().getXpub());
-        feeIndex = address.account_index;
+        feeIndex = feeAddressService.fetchAccountIndex();
       } catch (Exception e) {
-        // use fallback value
+        // fallback to last known index when backend is not available
+        feeIndex = feeAddressService.getAccountIndex();
         log.error("Unable to fetchAddress for samouraiFee => using feeIndex=" + feeIndex);
       }
       String feeAddress = feeValidationService.computeFeeAddress(feeIndex);
@@ -1,73 +1,138 @@
 package com.samourai.whirlpool.server.controllers.web;
 
+import com.samourai.whirlpool.server.beans.FailReason;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
-import com.samourai.whirlpool.server.persistence.to.MixLogTO;
-import com.samourai.whirlpool.server.persistence.to.MixTO;
-import com.samourai.whirlpool.server.persistence.to.shared.EntityCreatedUpdatedTO;
+import com.samourai.whirlpool.server.persistence.to.MixHistoryTO;
+import com.samourai.whirlpool.server.persistence.to.MixRollupTO;
 import com.samourai.whirlpool.server.services.DbService;
+import com.samourai.whirlpool.server.services.MixRollupService;
+import com.samourai.whirlpool.server.services.MixStatsService;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 public class HistoryWebController {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   public static final String ENDPOINT = "/status/history";
+  public static final String ENDPOINT_STATS = "/status/history/stats";
+  public static final String ENDPOINT_RAW_TX = "/status/history/rawTx";
   private static final int PAGE_SIZE = 100;
+  private static final int PAGE_SIZE_MAX = 1000;
+  private static final int STATS_DAYS = 30;
+  private static final int STATS_DAYS_MAX = 3660;
 
   private DbService dbService;
+  private MixStatsService mixStatsService;
+  private MixRollupService mixRollupService;
   private WhirlpoolServerConfig whirlpoolServerConfig;
 
   @Autowired
-  public HistoryWebController(DbService dbService, WhirlpoolServerConfig whirlpoolServerConfig) {
+  public HistoryWebController(
+      DbService dbService,
+      MixStatsService mixStatsService,
+      MixRollupService mixRollupService,
+      WhirlpoolServerConfig whirlpoolServerConfig) {
     this.dbService = dbService;
+    this.mixStatsService = mixStatsService;
+    this.mixRollupService = mixRollupService;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
   }
 
   @RequestMapping(value = ENDPOINT, method = RequestMethod.GET)
   public String history(
       Model model,
-      @PageableDefault(
-              size = PAGE_SIZE,
-              sort = EntityCreatedUpdatedTO.UPDATED,
-              direction = Sort.Direction.DESC)
-          Pageable pageable)
+      @RequestParam(required = false) Long before,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = "" + PAGE_SIZE) int size)
       throws Exception {
-    Page<MixTO> page = dbService.findMixs(pageable);
-    model.addAttribute("page", page);
+    size = Math.max(1, Math.min(size, PAGE_SIZE_MAX));
+
+    // seek pagination by id: fetch one more row to know if there is a next page
+    List<MixHistoryTO> mixs = null;
+    boolean hasNewer = false;
+    boolean hasOlder = false;
+    if (after != null) {
+      mixs = dbService.findMixHistoryAfter(after, size + 1);
+      hasNewer = mixs.size() > size;
+      if (hasNewer) {
+        mixs.remove(0);
+        hasOlder = true;
+      } else {
+        mixs = null; // first page
+      }
+    }
+    if (mixs == null) {
+      mixs = dbService.findMixHistoryBefore(before, size + 1);
+      hasNewer = (before != null);
+      hasOlder = mixs.size() > size;
+      if (hasOlder) {
+        mixs.remove(size);
+      }
+    }
+    model.addAttribute("mixs", mixs);
+    model.addAttribute("hasNewer", hasNewer && !mixs.isEmpty());
+    model.addAttribute("hasOlder", hasOlder);
+    model.addAttribute("size", size);
     model.addAttribute("urlExplorer", Utils.computeUrlExplorer(whirlpoolServerConfig));
-    model.addAttribute("mixStats", dbService.getMixStats());
+    model.addAttribute("mixStats", mixStatsService.getMixStats());
+    model.addAttribute("mixStatsByPool", mixStatsService.getMixStatsByPool());
     model.addAttribute("ENDPOINT", ENDPOINT);
+    model.addAttribute("ENDPOINT_RAW_TX", ENDPOINT_RAW_TX);
     model.addAttribute("now", new Timestamp(System.currentTimeMillis()));
+    return "history";
+  }
 
-    // getters used in template
-    if (false) {
-      for (MixTO mixTO : page) {
-        mixTO.getMixId();
-        mixTO.getAnonymitySet();
-        mixTO.getNbMustMix();
-        mixTO.getNbLiquidities();
-        mixTO.getFeesAmount();
-        mixTO.getFeesPrice();
-        mixTO.getMixStatus();
-        mixTO.getFailReason();
-        mixTO.getFailInfo();
-        MixLogTO mixLogTO = mixTO.getMixLog();
-        mixLogTO.getTxid();
-        mixLogTO.getRawTx();
+  @RequestMapping(
+      value = ENDPOINT_RAW_TX,
+      method = RequestMethod.GET,
+      produces = MediaType.TEXT_PLAIN_VALUE)
+  public ResponseEntity<String> rawTx(@RequestParam String mixId) throws Exception {
+    return dbService
+        .findMixRawTx(mixId)
+        .map(rawTx -> ResponseEntity.ok(rawTx))
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  @RequestMapping(value = ENDPOINT_STATS, method = RequestMethod.GET)
+  public String stats(Model model, @RequestParam(defaultValue = "" + STATS_DAYS) int days)
+      throws Exception {
+    days = Math.max(1, Math.min(days, STATS_DAYS_MAX));
+    LocalDate to = LocalDate.now();
+    LocalDate from = to.minusDays(days - 1);
+
+    // read from rollups only
+    NavigableMap<LocalDate, Map<String, MixRollupTO>> rollupsByDay =
+        mixRollupService.getMixRollups(from, to).descendingMap();
+    Map<String, MixRollupTO> rollupsByPool = mixRollupService.getMixRollupsByPool(from, to);
+    long maxAmountOut = 1;
+    for (Map<String, MixRollupTO> dayRollups : rollupsByDay.values()) {
+      for (MixRollupTO mixRollupTO : dayRollups.values()) {
+        maxAmountOut = Math.max(maxAmountOut, mixRollupTO.getSumAmountOut());
       }
     }
-    return "history";
+
+    model.addAttribute("days", days);
+    model.addAttribute("rollupsByDay", rollupsByDay);
+    model.addAttribute("rollupsByPool", rollupsByPool);
+    model.addAttribute("maxAmountOut", maxAmountOut);
+    model.addAttribute("failReasons", FailReason.values());
+    model.addAttribute("ENDPOINT_STATS", ENDPOINT_STATS);
+    model.addAttribute("now", new Timestamp(System.currentTimeMillis()));
+    return "historyStats";
   }
 }
@@ -0,0 +1,254 @@
+package com.samourai.whirlpool.server.controllers.web;
+
+import com.samourai.whirlpool.server.services.BanService;
+import com.samourai.whirlpool.server.services.BlameService;
+import com.samourai.whirlpool.server.services.BlockchainDataService;
+import com.samourai.whirlpool.server.services.BroadcastService;
+import com.samourai.whirlpool.server.services.DbService;
+import com.samourai.whirlpool.server.services.FeeAddressService;
+import com.samourai.whirlpool.server.services.InputValidationService;
+import com.samourai.whirlpool.server.services.MixKeyService;
+import com.samourai.whirlpool.server.services.MixPersistService;
+import com.samourai.whirlpool.server.services.MixRollupService;
+import com.samourai.whirlpool.server.services.RegisterInputService;
+import com.samourai.whirlpool.server.services.SignatureVerificationService;
+import com.samourai.whirlpool.server.services.WebSocketService;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.utils.LoadingCache;
+import com.samourai.whirlpool.server.utils.MixTxidSet;
+import com.samourai.whirlpool.server.utils.timeout.TimeoutScheduler;
+import com.samourai.whirlpool.server.utils.websocket.WebSocketDispatcher;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+@Controller
+public class MetricsWebController {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String ENDPOINT = "/status/metrics";
+
+  private TimeoutScheduler timeoutScheduler;
+  private WebSocketService webSocketService;
+  private MixKeyService mixKeyService;
+  private BroadcastService broadcastService;
+  private SignatureVerificationService signatureVerificationService;
+  private BlockchainDataService blockchainDataService;
+  private InputValidationService inputValidationService;
+  private FeeAddressService feeAddressService;
+  private RegisterInputService registerInputService;
+  private RpcClientService rpcClientService;
+  private DbService dbService;
+  private BanService banService;
+  private BlameService blameService;
+  private MixPersistService mixPersistService;
+  private MixRollupService mixRollupService;
+
+  @Autowired
+  public MetricsWebController(
+      TimeoutScheduler timeoutScheduler,
+      WebSocketService webSocketService,
+      MixKeyService mixKeyService,
+      BroadcastService broadcastService,
+      SignatureVerificationService signatureVerificationService,
+      BlockchainDataService blockchainDataService,
+      InputValidationService inputValidationService,
+      FeeAddressService feeAddressService,
+      RegisterInputService registerInputService,
+      RpcClientService rpcClientService,
+      DbService dbService,
+      BanService banService,
+      BlameService blameService,
+      MixPersistService mixPersistService,
+      MixRollupService mixRollupService) {
+    this.timeoutScheduler = timeoutScheduler;
+    this.webSocketService = webSocketService;
+    this.mixKeyService = mixKeyService;
+    this.broadcastService = broadcastService;
+    this.signatureVerificationService = signatureVerificationService;
+    this.blockchainDataService = blockchainDataService;
+    this.inputValidationService = inputValidationService;
+    this.feeAddressService = feeAddressService;
+    this.registerInputService = registerInputService;
+    this.rpcClientService = rpcClientService;
+    this.dbService = dbService;
+    this.banService = banService;
+    this.blameService = blameService;
+    this.mixPersistService = mixPersistService;
+    this.mixRollupService = mixRollupService;
+  }
+
+  @RequestMapping(value = ENDPOINT, method = RequestMethod.GET)
+  public String metrics(Model model) {
+    model.addAttribute("metrics", computeMetrics());
+    return "metrics";
+  }
+
+  protected Map<String, String> computeMetrics() {
+    Map<String, String> metrics = new LinkedHashMap<>();
+    metrics.put("timeout.pending", String.valueOf(timeoutScheduler.getNbPending()));
+    metrics.put("timeout.fired", String.valueOf(timeoutScheduler.getNbFired()));
+    metrics.put(
+        "timeout.lag",
+        "last="
+            + timeoutScheduler.getLagLast()
+            + "ms, avg="
+            + timeoutScheduler.getLagAverage()
+            + "ms, max="
+            + timeoutScheduler.getLagMax()
+            + "ms");
+
+    WebSocketDispatcher dispatcher = webSocketService.getDispatcher();
+    metrics.put(
+        "outbound.queue",
+        "sessions="
+            + dispatcher.getNbSessions()
+            + ", queued="
+            + dispatcher.getNbQueued()
+            + ", dropped="
+            + dispatcher.getNbDropped()
+            + ", slowConsumers="
+            + dispatcher.getNbSlowConsumers());
+    metrics.put("outbound.queueLatency", dispatcher.getQueueLatency().toString());
+    metrics.put("outbound.sendLatency", dispatcher.getSendLatency().toString());
+
+    metrics.put(
+        "mixKeys",
+        "ready="
+            + mixKeyService.getNbReady()
+            + ", generated="
+            + mixKeyService.getNbGenerated()
+            + ", misses="
+            + mixKeyService.getNbMisses());
+    metrics.put("mixKeys.generateLatency", mixKeyService.getGenerateLatency().toString());
+
+    metrics.put(
+        "broadcast",
+        "pending="
+            + broadcastService.getNbPending()
+            + ", success="
+            + broadcastService.getNbSuccess()
+            + ", failed="
+            + broadcastService.getNbFailed()
+            + ", retries="
+            + broadcastService.getNbRetries());
+    metrics.put("broadcast.latency", broadcastService.getLatency().toString());
+
+    metrics.put("signatures.invalid", String.valueOf(signatureVerificationService.getNbInvalid()));
+    metrics.put(
+        "signatures.verifyLatency", signatureVerificationService.getVerifyLatency().toString());
+    metrics.put(
+        "signatures.messageInvalid",
+        String.valueOf(signatureVerificationService.getNbInvalidMessages()));
+    metrics.put(
+        "signatures.messageVerifyLatency",
+        signatureVerificationService.getMessageVerifyLatency().toString());
+
+    LoadingCache txCache = blockchainDataService.getTxCache();
+    metrics.put(
+        "txCache",
+        "size="
+            + txCache.getSize()
+            + ", hitRate="
+            + txCache.getHitRate()
+            + "%, hits="
+            + txCache.getNbHits()
+            + ", misses="
+            + txCache.getNbMisses()
+            + ", coalesced="
+            + txCache.getNbCoalesced()
+            + ", evicted="
+            + txCache.getNbEvicted());
+
+    LoadingCache tx0Verdicts = inputValidationService.getTx0Verdicts();
+    metrics.put(
+        "tx0Verdicts",
+        "size="
+            + tx0Verdicts.getSize()
+            + ", hitRate="
+            + tx0Verdicts.getHitRate()
+            + "%, hits="
+            + tx0Verdicts.getNbHits()
+            + ", misses="
+            + tx0Verdicts.getNbMisses());
+
+    metrics.put(
+        "feeAddresses",
+        "accountIndex="
+            + feeAddressService.getAccountIndex()
+            + ", derived="
+            + feeAddressService.getNbAddresses()
+            + ", hits="
+            + feeAddressService.getNbHits()
+            + ", misses="
+            + feeAddressService.getNbMisses());
+
+    metrics.put(
+        "registerInput",
+        "pending="
+            + registerInputService.getNbPending()
+            + ", rejectedBusy="
+            + registerInputService.getNbRejectedBusy());
+    registerInputService
+        .getStageLatencies()
+        .forEach((stage, latency) -> metrics.put("registerInput." + stage, latency.toString()));
+
+    metrics.putAll(rpcClientService.getMetrics());
+
+    MixTxidSet mixTxids = dbService.getMixTxids();
+    metrics.put(
+        "mixTxids",
+        "size=" + mixTxids.size() + ", memory=" + mixTxids.getMemoryBytes() / 1024 + "KB");
+    metrics.put("mixOutputFilter", dbService.getMixOutputFilterService().getMetrics());
+
+    metrics.put(
+        "bans",
+        "active="
+            + banService.getNbActiveBans()
+            + ", checks="
+            + banService.getNbChecks()
+            + ", hits="
+            + banService.getNbHits()
+            + ", hitRate="
+            + banService.getHitRate()
+            + "%");
+    metrics.put(
+        "blames",
+        "blames="
+            + blameService.getNbBlames()
+            + ", recentInputs="
+            + blameService.getNbBlameWindows()
+            + ", pendingWrites="
+            + blameService.getNbPendingWrites()
+            + ", writeErrors="
+            + blameService.getNbWriteErrors());
+    metrics.put(
+        "mixPersist",
+        "pending="
+            + mixPersistService.getNbPending()
+            + ", saves="
+            + mixPersistService.getNbSaves()
+            + ", writes="
+            + mixPersistService.getNbWrites()
+            + ", errors="
+            + mixPersistService.getNbErrors());
+    metrics.put("mixPersist.flush", mixPersistService.getFlushLatency().toString());
+    metrics.put(
+        "mixRollup",
+        "enabled="
+            + mixRollupService.isEnabled()
+            + ", updates="
+            + mixRollupService.getNbUpdates()
+            + ", pendingWrites="
+            + mixRollupService.getNbPendingWrites()
+            + ", writeErrors="
+            + mixRollupService.getNbWriteErrors());
+    return metrics;
+  }
+}
@@ -52,16 +52,26 @@ public class RegisterInputController extends AbstractWebSocketController {
               + Utils.toJsonString(payload));
     }
 
-    // register input in pool
-    registerInputService.registerInput(
-        payload.poolId,
-        username,
-        payload.signature,
-        payload.utxoHash,
-        payload.utxoIndex,
-        payload.liquidity,
-        payload.testMode,
-        ip);
+    // register input in pool, without blocking inbound channel
+    registerInputService
+        .registerInputAsync(
+            payload.poolId,
+            username,
+            payload.signature,
+            payload.utxoHash,
+            payload.utxoIndex,
+            payload.liquidity,
+            payload.testMode,
+            ip)
+        .whenComplete(
+            (v, e) -> {
+              if (e != null) {
+                Throwable cause = RegisterInputService.unwrap(e);
+                handleException(
+                    cause instanceof Exception ? (Exception) cause : new Exception(cause),
+                    principal);
+              }
+            });
   }
 
   @MessageExceptionHandler
@@ -1,10 +1,17 @@
 package com.samourai.whirlpool.server.persistence.repositories;
 
 import com.samourai.whirlpool.server.persistence.to.MixOutputTO;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface MixOutputRepository extends CrudRepository<MixOutputTO, Long> {
 
   Optional<MixOutputTO> findByAddress(String address);
+
+  @Query("SELECT o from mixOutput o WHERE id > :idMin ORDER BY id ASC")
+  List<MixOutputTO> findByIdGreaterThan(@Param("idMin") long idMin, Pageable pageable);
 }
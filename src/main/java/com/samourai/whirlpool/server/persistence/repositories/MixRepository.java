@@ -1,18 +1,51 @@
 package com.samourai.whirlpool.server.persistence.repositories;
 
 import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.persistence.to.MixHistoryTO;
 import com.samourai.whirlpool.server.persistence.to.MixTO;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
 public interface MixRepository extends PagingAndSortingRepository<MixTO, Long> {
-  @Query("SELECT COUNT(m) from mix m WHERE mixStatus=:mixStatus")
-  Long countByMixStatus(@Param("mixStatus") MixStatus mixStatus);
+  String SELECT_HISTORY =
+      "SELECT new com.samourai.whirlpool.server.persistence.to.MixHistoryTO(m.id, m.updated,"
+          + " m.poolId, m.mixId, m.denomination, m.anonymitySet, m.nbMustMix, m.nbLiquidities,"
+          + " m.amountOut, m.feesAmount, m.feesPrice, m.mixDuration, m.mixStatus, m.failReason,"
+          + " m.failInfo, l.txid) from mix m LEFT JOIN m.mixLog l";
 
-  @Query("SELECT SUM(nbMustMix*denomination) from mix WHERE mixStatus=:mixStatus")
-  Long sumMustMixByMixStatus(@Param("mixStatus") MixStatus mixStatus);
+  /** Mix history older than idMax (seek by primary key), latest first. */
+  @Query(SELECT_HISTORY + " WHERE m.id < :idMax ORDER BY m.id DESC")
+  List<MixHistoryTO> findHistoryByIdLessThan(@Param("idMax") long idMax, Pageable pageable);
 
-  @Query("SELECT SUM(amountOut) from mix WHERE mixStatus=:mixStatus")
-  Long sumAmountOutByMixStatus(@Param("mixStatus") MixStatus mixStatus);
+  /** Mix history newer than idMin (seek by primary key), oldest first. */
+  @Query(SELECT_HISTORY + " WHERE m.id > :idMin ORDER BY m.id ASC")
+  List<MixHistoryTO> findHistoryByIdGreaterThan(@Param("idMin") long idMin, Pageable pageable);
+
+  @Query("SELECT l.rawTx from mix m JOIN m.mixLog l WHERE m.mixId=:mixId")
+  String findRawTxByMixId(@Param("mixId") String mixId);
+
+  /** @return [poolId, count, sumMustMix, sumAmountOut] */
+  @Query(
+      "SELECT poolId, COUNT(m), SUM(nbMustMix*denomination), SUM(amountOut)"
+          + " from mix m WHERE mixStatus=:mixStatus GROUP BY poolId")
+  List<Object[]> sumByPoolByMixStatus(@Param("mixStatus") MixStatus mixStatus);
+
+  /**
+   * @return [poolId, year, month, day, mixStatus, failReason, count, sumMustMix, sumAmountOut,
+   *     sumAnonymitySet, sumMixDuration, sumFeesPrice, countFeesPrice]
+   */
+  @Query(
+      "SELECT poolId, YEAR(updated), MONTH(updated), DAY(updated), mixStatus, failReason,"
+          + " COUNT(m), SUM(nbMustMix*denomination), SUM(amountOut), SUM(anonymitySet),"
+          + " SUM(mixDuration), SUM(feesPrice), COUNT(feesPrice)"
+          + " from mix m WHERE mixStatus IN :mixStatuses AND updated < :updatedMax"
+          + " GROUP BY poolId, YEAR(updated), MONTH(updated), DAY(updated), mixStatus, failReason")
+  List<Object[]> sumByPoolAndDayByMixStatusIn(
+      @Param("mixStatuses") Collection<MixStatus> mixStatuses,
+      @Param("updatedMax") Timestamp updatedMax);
 }
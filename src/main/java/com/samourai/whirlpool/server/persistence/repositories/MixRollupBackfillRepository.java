@@ -0,0 +1,6 @@
+package com.samourai.whirlpool.server.persistence.repositories;
+
+import com.samourai.whirlpool.server.persistence.to.MixRollupBackfillTO;
+import org.springframework.data.repository.CrudRepository;
+
+public interface MixRollupBackfillRepository extends CrudRepository<MixRollupBackfillTO, Long> {}
@@ -0,0 +1,13 @@
+package com.samourai.whirlpool.server.persistence.repositories;
+
+import com.samourai.whirlpool.server.persistence.to.MixRollupTO;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.repository.CrudRepository;
+
+public interface MixRollupRepository extends CrudRepository<MixRollupTO, Long> {
+  Optional<MixRollupTO> findByPoolIdAndMixDay(String poolId, LocalDate mixDay);
+
+  List<MixRollupTO> findByMixDayBetweenOrderByMixDayAsc(LocalDate mixDayMin, LocalDate mixDayMax);
+}
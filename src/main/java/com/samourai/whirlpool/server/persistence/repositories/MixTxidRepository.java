@@ -1,10 +1,17 @@
 package com.samourai.whirlpool.server.persistence.repositories;
 
 import com.samourai.whirlpool.server.persistence.to.MixTxidTO;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface MixTxidRepository extends CrudRepository<MixTxidTO, Long> {
 
   Optional<MixTxidTO> findByTxidAndDenomination(String txid, long denomination);
+
+  @Query("SELECT t from mixTxid t WHERE id > :idMin ORDER BY id ASC")
+  List<MixTxidTO> findByIdGreaterThan(@Param("idMin") long idMin, Pageable pageable);
 }
@@ -0,0 +1,124 @@
+package com.samourai.whirlpool.server.persistence.to;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.FailReason;
+import java.sql.Timestamp;
+
+/** Mix history row: mix columns and txid, without rawTx. */
+public class MixHistoryTO {
+  private long id;
+  private Timestamp updated;
+  private String poolId;
+  private String mixId;
+  private long denomination;
+  private int anonymitySet;
+  private int nbMustMix;
+  private int nbLiquidities;
+  private long amountOut;
+  private Long feesAmount;
+  private Long feesPrice;
+  private int mixDuration;
+  private MixStatus mixStatus;
+  private FailReason failReason;
+  private String failInfo;
+  private String txid;
+
+  public MixHistoryTO(
+      long id,
+      Timestamp updated,
+      String poolId,
+      String mixId,
+      long denomination,
+      int anonymitySet,
+      int nbMustMix,
+      int nbLiquidities,
+      long amountOut,
+      Long feesAmount,
+      Long feesPrice,
+      int mixDuration,
+      MixStatus mixStatus,
+      FailReason failReason,
+      String failInfo,
+      String txid) {
+    this.id = id;
+    this.updated = updated;
+    this.poolId = poolId;
+    this.mixId = mixId;
+    this.denomination = denomination;
+    this.anonymitySet = anonymitySet;
+    this.nbMustMix = nbMustMix;
+    this.nbLiquidities = nbLiquidities;
+    this.amountOut = amountOut;
+    this.feesAmount = feesAmount;
+    this.feesPrice = feesPrice;
+    this.mixDuration = mixDuration;
+    this.mixStatus = mixStatus;
+    this.failReason = failReason;
+    this.failInfo = failInfo;
+    this.txid = txid;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public Timestamp getUpdated() {
+    return updated;
+  }
+
+  public String getPoolId() {
+    return poolId;
+  }
+
+  public String getMixId() {
+    return mixId;
+  }
+
+  public long getDenomination() {
+    return denomination;
+  }
+
+  public int getAnonymitySet() {
+    return anonymitySet;
+  }
+
+  public int getNbMustMix() {
+    return nbMustMix;
+  }
+
+  public int getNbLiquidities() {
+    return nbLiquidities;
+  }
+
+  public long getAmountOut() {
+    return amountOut;
+  }
+
+  public Long getFeesAmount() {
+    return feesAmount;
+  }
+
+  public Long getFeesPrice() {
+    return feesPrice;
+  }
+
+  public int getMixDuration() {
+    return mixDuration;
+  }
+
+  public MixStatus getMixStatus() {
+    return mixStatus;
+  }
+
+  public FailReason getFailReason() {
+    return failReason;
+  }
+
+  public String getFailInfo() {
+    return failInfo;
+  }
+
+  public String getTxid() {
+    return txid;
+  }
+}
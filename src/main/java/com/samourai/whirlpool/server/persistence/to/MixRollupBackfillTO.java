@@ -0,0 +1,28 @@
+package com.samourai.whirlpool.server.persistence.to;
+
+import com.samourai.whirlpool.server.persistence.to.shared.EntityCreatedTO;
+import java.sql.Timestamp;
+import javax.persistence.Entity;
+
+/** Completed backfill of mix_rollup, from mixs updated before updatedMax. */
+@Entity(name = "mix_rollup_backfill")
+public class MixRollupBackfillTO extends EntityCreatedTO {
+  private Timestamp updatedMax;
+  private int nbRollups;
+
+  public MixRollupBackfillTO() {}
+
+  public MixRollupBackfillTO(Timestamp updatedMax, int nbRollups) {
+    super();
+    this.updatedMax = updatedMax;
+    this.nbRollups = nbRollups;
+  }
+
+  public Timestamp getUpdatedMax() {
+    return updatedMax;
+  }
+
+  public int getNbRollups() {
+    return nbRollups;
+  }
+}
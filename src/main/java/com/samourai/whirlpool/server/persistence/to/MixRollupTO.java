@@ -0,0 +1,191 @@
+package com.samourai.whirlpool.server.persistence.to;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.FailReason;
+import com.samourai.whirlpool.server.persistence.to.shared.EntityCreatedUpdatedTO;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import javax.persistence.*;
+
+/** Finished mixs of a pool, summed by day. Schema: sql/mix_rollup.sql */
+@Entity(name = "mix_rollup")
+@Table(
+    uniqueConstraints = @UniqueConstraint(columnNames = {"poolId", "mixDay"}),
+    indexes = @Index(columnList = "mixDay"))
+public class MixRollupTO extends EntityCreatedUpdatedTO {
+  private String poolId;
+  private LocalDate mixDay;
+
+  private long nbSuccess;
+  private long nbFail;
+  private long nbFailRegisterOutputs;
+  private long nbFailSigning;
+  private long nbFailBroadcast;
+  private long nbFailDisconnect;
+
+  // successful mixs only
+  private long sumMustMix;
+  private long sumAmountOut;
+  private long sumAnonymitySet;
+  private long sumMixDuration;
+  private long sumFeesPrice;
+  private long nbFeesPrice;
+
+  public MixRollupTO() {}
+
+  public MixRollupTO(String poolId, LocalDate mixDay) {
+    this.poolId = poolId;
+    this.mixDay = mixDay;
+  }
+
+  /**
+   * Day of a mix, from its stored 'updated' datetime: same day as DAY(updated) in database, which
+   * the backfill groups by.
+   */
+  public static LocalDate computeMixDay(Timestamp updated) {
+    if (updated == null) {
+      // not persisted
+      return LocalDate.now();
+    }
+    return updated.toLocalDateTime().toLocalDate();
+  }
+
+  public void add(MixTO mixTO) {
+    add(
+        mixTO.getMixStatus(),
+        mixTO.getFailReason(),
+        1,
+        (long) mixTO.getNbMustMix() * mixTO.getDenomination(),
+        mixTO.getAmountOut(),
+        mixTO.getAnonymitySet(),
+        mixTO.getMixDuration(),
+        mixTO.getFeesPrice() != null ? mixTO.getFeesPrice() : 0,
+        mixTO.getFeesPrice() != null ? 1 : 0);
+  }
+
+  public void add(
+      MixStatus mixStatus,
+      FailReason failReason,
+      long nbMixs,
+      long sumMustMix,
+      long sumAmountOut,
+      long sumAnonymitySet,
+      long sumMixDuration,
+      long sumFeesPrice,
+      long nbFeesPrice) {
+    if (MixStatus.SUCCESS.equals(mixStatus)) {
+      this.nbSuccess += nbMixs;
+      this.sumMustMix += sumMustMix;
+      this.sumAmountOut += sumAmountOut;
+      this.sumAnonymitySet += sumAnonymitySet;
+      this.sumMixDuration += sumMixDuration;
+      this.sumFeesPrice += sumFeesPrice;
+      this.nbFeesPrice += nbFeesPrice;
+    } else if (MixStatus.FAIL.equals(mixStatus)) {
+      this.nbFail += nbMixs;
+      if (failReason != null) {
+        switch (failReason) {
+          case FAIL_REGISTER_OUTPUTS:
+            this.nbFailRegisterOutputs += nbMixs;
+            break;
+          case FAIL_SIGNING:
+            this.nbFailSigning += nbMixs;
+            break;
+          case FAIL_BROADCAST:
+            this.nbFailBroadcast += nbMixs;
+            break;
+          case DISCONNECT:
+            this.nbFailDisconnect += nbMixs;
+            break;
+        }
+      }
+    }
+  }
+
+  public void add(MixRollupTO other) {
+    this.nbSuccess += other.nbSuccess;
+    this.nbFail += other.nbFail;
+    this.nbFailRegisterOutputs += other.nbFailRegisterOutputs;
+    this.nbFailSigning += other.nbFailSigning;
+    this.nbFailBroadcast += other.nbFailBroadcast;
+    this.nbFailDisconnect += other.nbFailDisconnect;
+    this.sumMustMix += other.sumMustMix;
+    this.sumAmountOut += other.sumAmountOut;
+    this.sumAnonymitySet += other.sumAnonymitySet;
+    this.sumMixDuration += other.sumMixDuration;
+    this.sumFeesPrice += other.sumFeesPrice;
+    this.nbFeesPrice += other.nbFeesPrice;
+  }
+
+  public long getNbFail(FailReason failReason) {
+    switch (failReason) {
+      case FAIL_REGISTER_OUTPUTS:
+        return nbFailRegisterOutputs;
+      case FAIL_SIGNING:
+        return nbFailSigning;
+      case FAIL_BROADCAST:
+        return nbFailBroadcast;
+      case DISCONNECT:
+        return nbFailDisconnect;
+      default:
+        return 0;
+    }
+  }
+
+  public double computeFailRate() {
+    long nbMixs = nbSuccess + nbFail;
+    return nbMixs > 0 ? (double) nbFail / nbMixs : 0;
+  }
+
+  public long computeAvgAnonymitySet() {
+    return nbSuccess > 0 ? sumAnonymitySet / nbSuccess : 0;
+  }
+
+  public long computeAvgMixDuration() {
+    return nbSuccess > 0 ? sumMixDuration / nbSuccess : 0;
+  }
+
+  public long computeAvgFeesPrice() {
+    return nbFeesPrice > 0 ? sumFeesPrice / nbFeesPrice : 0;
+  }
+
+  public String getPoolId() {
+    return poolId;
+  }
+
+  public LocalDate getMixDay() {
+    return mixDay;
+  }
+
+  public long getNbSuccess() {
+    return nbSuccess;
+  }
+
+  public long getNbFail() {
+    return nbFail;
+  }
+
+  public long getSumMustMix() {
+    return sumMustMix;
+  }
+
+  public long getSumAmountOut() {
+    return sumAmountOut;
+  }
+
+  public long getSumAnonymitySet() {
+    return sumAnonymitySet;
+  }
+
+  public long getSumMixDuration() {
+    return sumMixDuration;
+  }
+
+  public long getSumFeesPrice() {
+    return sumFeesPrice;
+  }
+
+  public long getNbFeesPrice() {
+    return nbFeesPrice;
+  }
+}
@@ -1,31 +1,146 @@
 package com.samourai.whirlpool.server.services;
 
+import com.samourai.whirlpool.server.beans.BlameReason;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.persistence.to.BanTO;
-import com.samourai.whirlpool.server.persistence.to.BlameTO;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+/**
+ * Ban checks are served from an in-memory index of active bans. The index is reloaded from ban
+ * table every server.ban.reload-delay seconds (or on reload()), so that bans inserted or deleted by
+ * operators in ban table are applied without restart.
+ */
 @Service
 public class BanService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int LOAD_PAGE_SIZE = 1000;
+
   private DbService dbService;
   private WhirlpoolServerConfig serverConfig;
+  private ScheduledExecutorService executor;
+
+  // active bans by identifier, temporary bans are aged out by expiration
+  private volatile BanIndex banIndex;
+  private Object indexLock;
+  private List<BanTO> reloadingBans; // bans added while reloading, guarded by indexLock
+
+  // metrics
+  private AtomicLong nbChecks;
+  private AtomicLong nbHits;
+  private AtomicLong nbReloads;
 
   @Autowired
   public BanService(DbService dbService, WhirlpoolServerConfig serverConfig) {
     this.dbService = dbService;
     this.serverConfig = serverConfig;
+    this.indexLock = new Object();
+    this.reloadingBans = null;
+    this.nbChecks = new AtomicLong(0);
+    this.nbHits = new AtomicLong(0);
+    this.nbReloads = new AtomicLong(0);
+
+    this.banIndex = loadActiveBans();
+    log.info("Loaded " + banIndex.activeBans.size() + " active bans");
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ban-reload-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    long reloadDelay = serverConfig.getBan().getReloadDelay();
+    if (reloadDelay > 0) {
+      executor.scheduleWithFixedDelay(
+          () -> {
+            try {
+              reload();
+            } catch (Exception e) {
+              log.error("Unable to reload bans", e);
+            }
+          },
+          reloadDelay,
+          reloadDelay,
+          TimeUnit.SECONDS);
+    }
+  }
+
+  private BanIndex loadActiveBans() {
+    BanIndex index = new BanIndex();
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    Page<BanTO> page = null;
+    do {
+      Pageable pageable = page != null ? page.nextPageable() : PageRequest.of(0, LOAD_PAGE_SIZE);
+      page = dbService.findByExpirationAfterOrNull(now, pageable);
+      page.forEach(banTO -> index.index(banTO));
+    } while (page.hasNext());
+    return index;
+  }
+
+  /** Reloads active bans from ban table, to apply bans inserted or deleted by operators. */
+  public synchronized void reload() {
+    synchronized (indexLock) {
+      reloadingBans = new ArrayList<>();
+    }
+    BanIndex index;
+    try {
+      index = loadActiveBans();
+    } catch (RuntimeException e) {
+      synchronized (indexLock) {
+        reloadingBans = null;
+      }
+      throw e;
+    }
+    synchronized (indexLock) {
+      // bans added while loading may be missing from loaded index
+      reloadingBans.forEach(banTO -> index.index(banTO));
+      reloadingBans = null;
+      int nbBefore = banIndex.activeBans.size();
+      banIndex = index;
+      if (nbBefore != index.activeBans.size() && log.isDebugEnabled()) {
+        log.debug("Reloaded active bans: " + nbBefore + " -> " + index.activeBans.size());
+      }
+    }
+    nbReloads.incrementAndGet();
+  }
+
+  private void index(BanTO banTO) {
+    synchronized (indexLock) {
+      banIndex.index(banTO);
+      if (reloadingBans != null) {
+        reloadingBans.add(banTO);
+      }
+    }
+  }
+
+  private boolean expiresBefore(BanTO banTO, BanTO other) {
+    if (banTO.getExpiration() == null) {
+      return false; // permanent
+    }
+    return other.getExpiration() == null || banTO.getExpiration().before(other.getExpiration());
+  }
+
+  private void purgeExpiredBans() {
+    banIndex.purgeExpiredBans(System.currentTimeMillis());
   }
 
   public void banTemporary(String identifier, String response, String notes) {
@@ -44,12 +159,19 @@ public class BanService {
   }
 
   private void ban(String identifier, String response, String notes, Timestamp expiration) {
-    dbService.saveBan(identifier, expiration, response, notes);
+    BanTO banTO = dbService.saveBan(identifier, expiration, response, notes);
+    index(banTO);
   }
 
   public Optional<BanTO> findActiveBan(String utxoHash, long utxoIndex) {
+    purgeExpiredBans();
     Timestamp now = new Timestamp(System.currentTimeMillis());
-    return findActiveBan(utxoHash, utxoIndex, now);
+    Optional<BanTO> activeBan = findActiveBan(utxoHash, utxoIndex, now);
+    nbChecks.incrementAndGet();
+    if (activeBan.isPresent()) {
+      nbHits.incrementAndGet();
+    }
+    return activeBan;
   }
 
   protected Optional<BanTO> findActiveBan(String utxoHash, long utxoIndex, Timestamp now) {
@@ -68,8 +190,11 @@ public class BanService {
   }
 
   protected Optional<BanTO> findActiveBan(String identifier, Timestamp now) {
-    List<BanTO> activeBans = dbService.findByIdentifierAndExpirationAfterOrNull(identifier, now);
-    return (!activeBans.isEmpty() ? Optional.of(activeBans.get(0)) : Optional.empty());
+    BanTO banTO = banIndex.activeBans.get(identifier);
+    if (banTO == null || (banTO.getExpiration() != null && banTO.getExpiration().before(now))) {
+      return Optional.empty();
+    }
+    return Optional.of(banTO);
   }
 
   public Page<BanTO> findActiveBans(Pageable pageable) {
@@ -78,22 +203,48 @@ public class BanService {
     return bans;
   }
 
-  public void onBlame(String identifier, List<BlameTO> blames) {
-    int maxBlames = serverConfig.getBan().getBlames();
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  public int getNbActiveBans() {
+    return banIndex.activeBans.size();
+  }
+
+  public long getNbReloads() {
+    return nbReloads.get();
+  }
+
+  public long getNbChecks() {
+    return nbChecks.get();
+  }
+
+  public long getNbHits() {
+    return nbHits.get();
+  }
+
+  /** Ratio of ban checks finding an active ban, in percent. */
+  public long getHitRate() {
+    long checks = getNbChecks();
+    return checks > 0 ? getNbHits() * 100 / checks : 0;
+  }
+
+  public void __reset() {
+    // for tests only
+    synchronized (indexLock) {
+      banIndex = new BanIndex();
+    }
+  }
 
+  /** @param activeBlames reasons of blames within ban period, oldest first */
+  public void onBlame(String identifier, List<BlameReason> activeBlames) {
+    int maxBlames = serverConfig.getBan().getBlames();
     long blamePeriodMs = serverConfig.getBan().getPeriod() * 1000;
-    Timestamp blameCreatedAfter = new Timestamp(System.currentTimeMillis() - blamePeriodMs);
-
-    // ignore expired blames
-    List<BlameTO> activeBlames =
-        blames
-            .stream()
-            .filter(blameTO -> blameTO.getCreated().after(blameCreatedAfter))
-            .collect(Collectors.toList());
     if (log.isDebugEnabled()) {
       int i = 0;
-      for (BlameTO b : activeBlames) {
-        log.warn("- blame " + i + "/" + maxBlames + ": " + b);
+      for (BlameReason reason : activeBlames) {
+        log.debug("- blame " + i + "/" + maxBlames + ": " + identifier + " " + reason);
         i++;
       }
     }
@@ -117,14 +268,45 @@ public class BanService {
     long blamePeriodMinutes = blamePeriodMs / 1000 / 60;
     String blameReasons =
         String.join(
-            ", ",
-            activeBlames
-                .stream()
-                .map(blameTO -> blameTO.getReason().name())
-                .collect(Collectors.toList()));
+            ", ", activeBlames.stream().map(reason -> reason.name()).collect(Collectors.toList()));
     banTemporary(
         identifier,
         null,
         countActiveBlames + " blames in " + blamePeriodMinutes + "min: " + blameReasons);
   }
+
+  private class BanIndex {
+    private Map<String, BanTO> activeBans;
+    private PriorityQueue<BanTO> expirations; // guarded by itself
+
+    BanIndex() {
+      this.activeBans = new ConcurrentHashMap<>();
+      this.expirations =
+          new PriorityQueue<>(Comparator.comparing(banTO -> banTO.getExpiration().getTime()));
+    }
+
+    void index(BanTO banTO) {
+      // keep longest ban for identifier
+      activeBans.merge(
+          banTO.getIdentifier(),
+          banTO,
+          (current, ban) -> expiresBefore(current, ban) ? ban : current);
+      if (banTO.getExpiration() != null) {
+        synchronized (expirations) {
+          expirations.add(banTO);
+        }
+      }
+    }
+
+    void purgeExpiredBans(long now) {
+      synchronized (expirations) {
+        BanTO banTO;
+        while ((banTO = expirations.peek()) != null && banTO.getExpiration().getTime() < now) {
+          expirations.poll();
+          // only if not replaced by a longer ban
+          activeBans.remove(banTO.getIdentifier(), banTO);
+        }
+      }
+    }
+  }
 }
@@ -2,25 +2,75 @@ package com.samourai.whirlpool.server.services;
 
 import com.samourai.whirlpool.server.beans.BlameReason;
 import com.samourai.whirlpool.server.beans.ConfirmedInput;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.persistence.to.BlameTO;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 @Service
 public class BlameService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
   private DbService dbService;
   private BanService banService;
+  private WhirlpoolServerConfig serverConfig;
+
+  // recent blames by identifier, within ban period
+  private Map<String, BlameWindow> blameWindows;
+  private ScheduledThreadPoolExecutor writer;
+  private AtomicLong nbBlames;
+  private AtomicInteger nbPendingWrites;
+  private AtomicLong nbWriteErrors;
 
   @Autowired
-  public BlameService(DbService dbService, BanService banService) {
+  public BlameService(
+      DbService dbService, BanService banService, WhirlpoolServerConfig serverConfig) {
     this.dbService = dbService;
     this.banService = banService;
+    this.serverConfig = serverConfig;
+    this.blameWindows = new ConcurrentHashMap<>();
+    this.nbBlames = new AtomicLong(0);
+    this.nbPendingWrites = new AtomicInteger(0);
+    this.nbWriteErrors = new AtomicLong(0);
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("blame-writer-");
+    threadFactory.setDaemon(true);
+    this.writer = new ScheduledThreadPoolExecutor(1, threadFactory);
+
+    loadBlameWindows();
+
+    // forget identifiers without recent blames
+    long periodMs = Math.max(getPeriodMs(), 1000);
+    writer.scheduleWithFixedDelay(
+        () -> purgeBlameWindows(), periodMs, periodMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void loadBlameWindows() {
+    long now = System.currentTimeMillis();
+    Timestamp createdMin = new Timestamp(now - getPeriodMs());
+    List<BlameTO> blames = dbService.findBlamesCreatedAfter(createdMin);
+    for (BlameTO blameTO : blames) {
+      addBlame(blameTO.getIdentifier(), blameTO.getReason(), blameTO.getCreated().getTime(), now);
+    }
+    log.info("Loaded " + blames.size() + " recent blames for " + blameWindows.size() + " inputs");
   }
 
   public void blame(ConfirmedInput confirmedInput, BlameReason reason, String mixId) {
@@ -28,13 +78,133 @@ public class BlameService {
     blame(identifier, reason, mixId, confirmedInput.getRegisteredInput().getIp());
   }
 
-  private BlameTO blame(String identifier, BlameReason reason, String mixId, String ip) {
-    BlameTO blameTO = dbService.saveBlame(identifier, reason, mixId, ip);
+  private void blame(String identifier, BlameReason reason, String mixId, String ip) {
+    nbBlames.incrementAndGet();
+
+    // persist asynchronously
+    nbPendingWrites.incrementAndGet();
+    try {
+      writer.execute(
+          () -> {
+            try {
+              dbService.saveBlame(identifier, reason, mixId, ip);
+            } catch (Exception e) {
+              nbWriteErrors.incrementAndGet();
+              log.error("saveBlame failed: identifier=" + identifier + ", reason=" + reason, e);
+            } finally {
+              nbPendingWrites.decrementAndGet();
+            }
+          });
+    } catch (Exception e) {
+      // shutting down
+      nbPendingWrites.decrementAndGet();
+      nbWriteErrors.incrementAndGet();
+      log.error("saveBlame failed: identifier=" + identifier + ", reason=" + reason, e);
+    }
 
     // notify banService
-    List<BlameTO> blames = dbService.findBlames(identifier);
-    banService.onBlame(identifier, blames);
+    long now = System.currentTimeMillis();
+    List<BlameReason> activeBlames = addBlame(identifier, reason, now, now);
+    banService.onBlame(identifier, activeBlames);
+  }
+
+  private List<BlameReason> addBlame(String identifier, BlameReason reason, long time, long now) {
+    int maxBlames = serverConfig.getBan().getBlames();
+    long timeMin = now - getPeriodMs();
+    List<BlameReason> activeBlames = new ArrayList<>();
+    blameWindows.compute(
+        identifier,
+        (id, blameWindow) -> {
+          if (blameWindow == null) {
+            blameWindow = new BlameWindow();
+          }
+          blameWindow.add(reason, time, maxBlames);
+          activeBlames.addAll(blameWindow.getReasons(timeMin));
+          return blameWindow;
+        });
+    return activeBlames;
+  }
+
+  private void purgeBlameWindows() {
+    long timeMin = System.currentTimeMillis() - getPeriodMs();
+    for (String identifier : blameWindows.keySet()) {
+      blameWindows.computeIfPresent(
+          identifier,
+          (id, blameWindow) -> blameWindow.getLastTime() < timeMin ? null : blameWindow);
+    }
+  }
+
+  private long getPeriodMs() {
+    return serverConfig.getBan().getPeriod() * 1000;
+  }
+
+  @PreDestroy
+  public void stop() {
+    // pending writes still run, periodic purge is cancelled
+    writer.shutdown();
+    try {
+      writer.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (nbPendingWrites.get() > 0) {
+      log.error("Unable to persist " + nbPendingWrites.get() + " blames on shutdown");
+    }
+  }
+
+  public int getNbBlameWindows() {
+    return blameWindows.size();
+  }
+
+  public long getNbBlames() {
+    return nbBlames.get();
+  }
+
+  public int getNbPendingWrites() {
+    return nbPendingWrites.get();
+  }
+
+  public long getNbWriteErrors() {
+    return nbWriteErrors.get();
+  }
+
+  public void __reset() {
+    // for tests only
+    blameWindows.clear();
+  }
+
+  /** Last blames of an identifier, no more than needed for ban decision. */
+  private static class BlameWindow {
+    private ArrayDeque<BlameReason> reasons;
+    private ArrayDeque<Long> times;
+
+    public BlameWindow() {
+      this.reasons = new ArrayDeque<>();
+      this.times = new ArrayDeque<>();
+    }
+
+    public void add(BlameReason reason, long time, int maxSize) {
+      reasons.addLast(reason);
+      times.addLast(time);
+      while (reasons.size() > maxSize) {
+        reasons.removeFirst();
+        times.removeFirst();
+      }
+    }
+
+    public List<BlameReason> getReasons(long timeMin) {
+      List<BlameReason> result = new ArrayList<>();
+      Iterator<Long> timeIterator = times.iterator();
+      for (BlameReason reason : reasons) {
+        if (timeIterator.next() > timeMin) {
+          result.add(reason);
+        }
+      }
+      return result;
+    }
 
-    return blameTO;
+    public long getLastTime() {
+      return times.isEmpty() ? 0 : times.getLast();
+    }
   }
 }
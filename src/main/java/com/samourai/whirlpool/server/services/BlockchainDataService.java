@@ -3,12 +3,16 @@ package com.samourai.whirlpool.server.services;
 import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
 import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
 import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.services.rpc.RpcClientService;
 import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import com.samourai.whirlpool.server.utils.LoadingCache;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.TransactionOutput;
 import org.slf4j.Logger;
@@ -18,20 +22,63 @@ import org.springframework.stereotype.Service;
 @Service
 public class BlockchainDataService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long BLOCK_HEIGHT_TTL_NS = TimeUnit.SECONDS.toNanos(10);
+
   private CryptoService cryptoService;
   private RpcClientService rpcClientService;
   private Bech32UtilGeneric bech32Util;
+  private LoadingCache<String, CachedRpcTransaction> txCache;
+
+  private volatile BlockHeight blockHeight; // chain tip, never ahead of node
+  private AtomicBoolean blockHeightRefreshing;
 
   public BlockchainDataService(
       CryptoService cryptoService,
       RpcClientService rpcClientService,
-      Bech32UtilGeneric bech32Util) {
+      Bech32UtilGeneric bech32Util,
+      WhirlpoolServerConfig whirlpoolServerConfig) {
     this.cryptoService = cryptoService;
     this.rpcClientService = rpcClientService;
     this.bech32Util = bech32Util;
+    WhirlpoolServerConfig.TxCacheConfig txCacheConfig = whirlpoolServerConfig.getTxCache();
+    long ttlMs = txCacheConfig.getTtl() * 1000L;
+    long ttlUnconfirmedMs = txCacheConfig.getTtlUnconfirmed() * 1000L;
+    this.txCache =
+        new LoadingCache<>(
+            txCacheConfig.getMaxSize(), cached -> cached.isConfirmed() ? ttlMs : ttlUnconfirmedMs);
+    this.blockHeight = null;
+    this.blockHeightRefreshing = new AtomicBoolean(false);
   }
 
   protected Optional<RpcTransaction> getRpcTransaction(String txid) {
+    CachedRpcTransaction cached = txCache.get(txid, this::loadRpcTransaction);
+    if (cached == null) {
+      return Optional.empty();
+    }
+    BlockHeight currentHeight = getBlockHeight();
+    if (cached.isStale(currentHeight)) {
+      // unconfirmed tx may have been mined in a new block
+      txCache.invalidate(txid);
+      cached = txCache.get(txid, this::loadRpcTransaction);
+      if (cached == null) {
+        return Optional.empty();
+      }
+    }
+    // refresh confirmations from chain tip
+    return Optional.of(cached.computeRpcTransaction(currentHeight));
+  }
+
+  private CachedRpcTransaction loadRpcTransaction(String txid) {
+    BlockHeight fetchHeight = getBlockHeight();
+    Optional<RpcTransaction> rpcTx = fetchRpcTransaction(txid);
+    if (!rpcTx.isPresent()) {
+      return null;
+    }
+    // confirmedHeight is resolved from the first tip requested after this fetch
+    return new CachedRpcTransaction(rpcTx.get(), System.nanoTime(), fetchHeight);
+  }
+
+  private Optional<RpcTransaction> fetchRpcTransaction(String txid) {
     if (log.isDebugEnabled()) {
       log.debug("RPC query: getRawTransaction " + txid);
     }
@@ -50,6 +97,39 @@ public class BlockchainDataService {
     }
   }
 
+  /** Cached chain tip. Expired tip is refreshed by one caller, others get the previous value. */
+  private BlockHeight getBlockHeight() {
+    BlockHeight current = blockHeight;
+    long now = System.nanoTime();
+    if ((current == null || now - current.requestTime > BLOCK_HEIGHT_TTL_NS)
+        && blockHeightRefreshing.compareAndSet(false, true)) {
+      try {
+        current = new BlockHeight(rpcClientService.getBlockHeight(), now);
+        blockHeight = current;
+      } catch (Exception e) {
+        // keep previous value, which is behind node
+        log.error("getBlockHeight failed", e);
+      } finally {
+        blockHeightRefreshing.set(false);
+      }
+    }
+    return current;
+  }
+
+  public LoadingCache<String, CachedRpcTransaction> getTxCache() {
+    return txCache;
+  }
+
+  public void __reset() {
+    txCache.clear();
+    blockHeight = null;
+  }
+
+  public void __resetBlockHeight() {
+    // for tests only
+    blockHeight = null;
+  }
+
   public TxOutPoint getOutPoint(RpcTransaction rpcTransaction, long utxoIndex)
       throws IllegalInputException {
     String utxoHash = rpcTransaction.getTx().getHashAsString();
@@ -73,4 +153,58 @@ public class BlockchainDataService {
             toAddress);
     return txOutPoint;
   }
+
+  private static class BlockHeight {
+    private final int height;
+    private final long requestTime; // nanoTime
+
+    BlockHeight(int height, long requestTime) {
+      this.height = height;
+      this.requestTime = requestTime;
+    }
+  }
+
+  public static class CachedRpcTransaction {
+    private RpcTransaction rpcTransaction;
+    private long fetchTime; // nanoTime
+    private BlockHeight fetchHeight; // tip known before fetch, may be null
+    private volatile Integer confirmedHeight;
+
+    CachedRpcTransaction(RpcTransaction rpcTransaction, long fetchTime, BlockHeight fetchHeight) {
+      this.rpcTransaction = rpcTransaction;
+      this.fetchTime = fetchTime;
+      this.fetchHeight = fetchHeight;
+      this.confirmedHeight = null;
+    }
+
+    boolean isConfirmed() {
+      return rpcTransaction.getConfirmations() > 0;
+    }
+
+    /** Unconfirmed tx fetched before a new block: confirmations are unknown. */
+    boolean isStale(BlockHeight currentHeight) {
+      return !isConfirmed()
+          && fetchHeight != null
+          && currentHeight != null
+          && currentHeight.height > fetchHeight.height;
+    }
+
+    RpcTransaction computeRpcTransaction(BlockHeight currentHeight) {
+      if (currentHeight == null) {
+        return rpcTransaction;
+      }
+      if (confirmedHeight == null) {
+        // only a tip requested after tx fetch never overestimates confirmations
+        if (!isConfirmed() || currentHeight.requestTime <= fetchTime) {
+          return rpcTransaction;
+        }
+        confirmedHeight = currentHeight.height - rpcTransaction.getConfirmations() + 1;
+      }
+      int confirmations = currentHeight.height - confirmedHeight + 1;
+      if (confirmations <= rpcTransaction.getConfirmations()) {
+        return rpcTransaction;
+      }
+      return new RpcTransaction(rpcTransaction, confirmations);
+    }
+  }
 }
@@ -0,0 +1,178 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.utils.LatencyHistogram;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/** Broadcasts finalized mix transactions out of the mix lock, with bounded retries. */
+@Service
+public class BroadcastService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int NB_THREADS = 2;
+  private static final String[] ALREADY_BROADCAST = {
+    "txn-already-in-mempool", "txn-already-known", "transaction already in block chain"
+  };
+
+  private RpcClientService rpcClientService;
+  private WhirlpoolServerConfig whirlpoolServerConfig;
+  private ScheduledThreadPoolExecutor executor;
+
+  // metrics
+  private AtomicLong nbPending;
+  private AtomicLong nbSuccess;
+  private AtomicLong nbFailed;
+  private AtomicLong nbRetries;
+  private LatencyHistogram latency;
+
+  @Autowired
+  public BroadcastService(
+      RpcClientService rpcClientService, WhirlpoolServerConfig whirlpoolServerConfig) {
+    this.rpcClientService = rpcClientService;
+    this.whirlpoolServerConfig = whirlpoolServerConfig;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("broadcast-");
+    threadFactory.setDaemon(true);
+    this.executor = new ScheduledThreadPoolExecutor(NB_THREADS, threadFactory);
+
+    this.nbPending = new AtomicLong(0);
+    this.nbSuccess = new AtomicLong(0);
+    this.nbFailed = new AtomicLong(0);
+    this.nbRetries = new AtomicLong(0);
+    this.latency = new LatencyHistogram(100, 500, 1000, 5000, 30000);
+  }
+
+  /** Completes when tx was accepted by node, or exceptionally with last BroadcastException. */
+  public CompletableFuture<Void> broadcast(Transaction tx) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    nbPending.incrementAndGet();
+    long start = System.currentTimeMillis();
+    result.whenComplete(
+        (r, e) -> {
+          nbPending.decrementAndGet();
+          latency.record(System.currentTimeMillis() - start);
+        });
+    run(() -> attempt(tx, 1, result), 0, result);
+    return result;
+  }
+
+  /** Runs an attempt, or fails the broadcast if it can't run (executor stopped) or throws. */
+  private void run(Runnable runnable, long delayMs, CompletableFuture<Void> result) {
+    try {
+      executor.schedule(
+          () -> {
+            try {
+              runnable.run();
+            } catch (Throwable e) {
+              fail(e, result);
+            }
+          },
+          delayMs,
+          TimeUnit.MILLISECONDS);
+    } catch (Throwable e) {
+      fail(e, result);
+    }
+  }
+
+  private void fail(Throwable e, CompletableFuture<Void> result) {
+    log.error("Broadcast failed", e);
+    if (result.completeExceptionally(new BroadcastException("Broadcast error: " + e))) {
+      nbFailed.incrementAndGet();
+    }
+  }
+
+  private void attempt(Transaction tx, int attempt, CompletableFuture<Void> result) {
+    String txid = tx.getHashAsString();
+    try {
+      rpcClientService.broadcastTransaction(tx);
+      nbSuccess.incrementAndGet();
+      result.complete(null);
+    } catch (Exception e) {
+      BroadcastException broadcastException =
+          e instanceof BroadcastException
+              ? (BroadcastException) e
+              : BroadcastException.computeBroadcastException(e);
+      String failInfo = broadcastException.getFailInfo();
+      if (isAlreadyBroadcast(failInfo)) {
+        // a previous attempt went through
+        log.info("Tx already broadcast: " + txid + ", failInfo=" + failInfo);
+        nbSuccess.incrementAndGet();
+        result.complete(null);
+        return;
+      }
+
+      WhirlpoolServerConfig.BroadcastConfig config = whirlpoolServerConfig.getBroadcast();
+      if (failInfo == null && attempt < config.getMaxAttempts()) {
+        // no answer from node => retry with backoff
+        long delayMs = config.getRetryDelay() * 1000L << (attempt - 1);
+        log.warn(
+            "Broadcast attempt "
+                + attempt
+                + "/"
+                + config.getMaxAttempts()
+                + " failed for tx "
+                + txid
+                + ", retrying in "
+                + delayMs
+                + "ms",
+            e);
+        nbRetries.incrementAndGet();
+        run(() -> attempt(tx, attempt + 1, result), delayMs, result);
+        return;
+      }
+
+      // rejected by node, or too many attempts
+      nbFailed.incrementAndGet();
+      result.completeExceptionally(broadcastException);
+    }
+  }
+
+  private boolean isAlreadyBroadcast(String failInfo) {
+    if (failInfo == null) {
+      return false;
+    }
+    for (String alreadyBroadcast : ALREADY_BROADCAST) {
+      if (failInfo.contains(alreadyBroadcast)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @PreDestroy
+  public void stop() {
+    // pending retries still run
+    executor.shutdown();
+  }
+
+  public long getNbPending() {
+    return nbPending.get();
+  }
+
+  public long getNbSuccess() {
+    return nbSuccess.get();
+  }
+
+  public long getNbFailed() {
+    return nbFailed.get();
+  }
+
+  public long getNbRetries() {
+    return nbRetries.get();
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+}
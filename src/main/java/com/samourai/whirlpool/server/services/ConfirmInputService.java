@@ -24,7 +24,7 @@ public class ConfirmInputService {
     this.poolService = poolService;
   }
 
-  public synchronized Optional<byte[]> confirmInputOrQueuePool(
+  public Optional<byte[]> confirmInputOrQueuePool(
       String mixId, String username, byte[] blindedBordereau)
       throws IllegalInputException, MixException {
     try {
@@ -1,67 +1,62 @@
 package com.samourai.whirlpool.server.services;
 
-import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
 import com.samourai.whirlpool.server.beans.BlameReason;
 import com.samourai.whirlpool.server.beans.Mix;
-import com.samourai.whirlpool.server.beans.MixStats;
 import com.samourai.whirlpool.server.persistence.repositories.*;
 import com.samourai.whirlpool.server.persistence.to.*;
+import com.samourai.whirlpool.server.utils.MixTxidSet;
 import java.lang.invoke.MethodHandles;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DbService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int MIX_TXIDS_PAGE_SIZE = 10000;
 
   private MixRepository mixRepository;
+  private MixPersistService mixPersistService;
   private Tx0WhitelistRepository tx0WhitelistRepository;
   private MixOutputRepository mixOutputRepository;
+  private MixOutputFilterService mixOutputFilterService;
   private MixTxidRepository mixTxidRepository;
-  private MixStats mixStats; // cached value
+  private MixTxidSet mixTxids; // write-through cache of mixTxidRepository
   private BlameRepository blameRepository;
   private BanRepository banRepository;
 
   public DbService(
       MixRepository mixRepository,
+      MixPersistService mixPersistService,
       Tx0WhitelistRepository tx0WhitelistRepository,
       MixOutputRepository mixOutputRepository,
+      MixOutputFilterService mixOutputFilterService,
       MixTxidRepository mixTxidRepository,
       BlameRepository blameRepository,
       BanRepository banRepository) {
     this.mixRepository = mixRepository;
+    this.mixPersistService = mixPersistService;
     this.tx0WhitelistRepository = tx0WhitelistRepository;
     this.mixOutputRepository = mixOutputRepository;
+    this.mixOutputFilterService = mixOutputFilterService;
     this.mixTxidRepository = mixTxidRepository;
     this.blameRepository = blameRepository;
     this.banRepository = banRepository;
+    this.mixTxids = new MixTxidSet();
+    loadMixTxids();
   }
 
   // mix
 
   public void saveMix(Mix mix) {
-    MixTO mixTO = mix.computeMixTO();
-    mixRepository.save(mixTO);
-    mixStats = null; // clear cache
-  }
-
-  public MixStats getMixStats() {
-    if (mixStats == null) {
-      long nbMixs = zeroIfNull(mixRepository.countByMixStatus(MixStatus.SUCCESS));
-      long sumMustMix = zeroIfNull(mixRepository.sumMustMixByMixStatus(MixStatus.SUCCESS));
-      long sumAmountOut = zeroIfNull(mixRepository.sumAmountOutByMixStatus(MixStatus.SUCCESS));
-      mixStats = new MixStats(nbMixs, sumMustMix, sumAmountOut);
-    }
-    return mixStats;
-  }
-
-  private long zeroIfNull(Long value) {
-    return value != null ? value : 0;
+    mixPersistService.save(mix);
   }
 
   // tx0Whitelist
@@ -73,12 +68,11 @@ public class DbService {
   // output
 
   public void saveMixOutput(String outputAddress) {
-    MixOutputTO mixOutputTO = new MixOutputTO(outputAddress);
-    mixOutputRepository.save(mixOutputTO);
+    mixOutputFilterService.saveMixOutput(outputAddress);
   }
 
   public boolean hasMixOutput(String receiveAddress) {
-    return mixOutputRepository.findByAddress(receiveAddress).isPresent();
+    return mixOutputFilterService.hasMixOutput(receiveAddress);
   }
 
   // txid
@@ -86,14 +80,57 @@ public class DbService {
   public void saveMixTxid(String txid, long denomination) {
     MixTxidTO mixTxidTO = new MixTxidTO(txid, denomination);
     mixTxidRepository.save(mixTxidTO);
+    mixTxids.add(txid, denomination);
   }
 
   public boolean hasMixTxid(String txid, long denomination) {
-    return mixTxidRepository.findByTxidAndDenomination(txid, denomination).isPresent();
+    return mixTxids.contains(txid, denomination);
+  }
+
+  private void loadMixTxids() {
+    long start = System.currentTimeMillis();
+    mixTxids.clear();
+    long idMin = 0;
+    List<MixTxidTO> page;
+    do {
+      page = mixTxidRepository.findByIdGreaterThan(idMin, PageRequest.of(0, MIX_TXIDS_PAGE_SIZE));
+      for (MixTxidTO mixTxidTO : page) {
+        mixTxids.add(mixTxidTO.getTxid(), mixTxidTO.getDenomination());
+        idMin = mixTxidTO.getId();
+      }
+    } while (page.size() == MIX_TXIDS_PAGE_SIZE);
+    log.info(
+        "Loaded "
+            + mixTxids.size()
+            + " mixTxids in "
+            + (System.currentTimeMillis() - start)
+            + "ms");
+  }
+
+  public MixOutputFilterService getMixOutputFilterService() {
+    return mixOutputFilterService;
+  }
+
+  public MixTxidSet getMixTxids() {
+    return mixTxids;
+  }
+
+  /** Mix history, latest first: mixs older than idMax (or latest mixs when null). */
+  public List<MixHistoryTO> findMixHistoryBefore(Long idMax, int size) {
+    return mixRepository.findHistoryByIdLessThan(
+        idMax != null ? idMax : Long.MAX_VALUE, PageRequest.of(0, size));
+  }
+
+  /** Mix history, latest first: mixs newer than idMin, closest to idMin. */
+  public List<MixHistoryTO> findMixHistoryAfter(long idMin, int size) {
+    List<MixHistoryTO> mixs =
+        mixRepository.findHistoryByIdGreaterThan(idMin, PageRequest.of(0, size));
+    Collections.reverse(mixs);
+    return mixs;
   }
 
-  public Page<MixTO> findMixs(Pageable pageable) {
-    return mixRepository.findAll(pageable);
+  public Optional<String> findMixRawTx(String mixId) {
+    return Optional.ofNullable(mixRepository.findRawTxByMixId(mixId));
   }
 
   // blame
@@ -104,8 +141,8 @@ public class DbService {
     return blameRepository.save(blameTO);
   }
 
-  public List<BlameTO> findBlames(String identifier) {
-    return blameRepository.findBlamesByIdentifierOrderByCreatedAsc(identifier);
+  public List<BlameTO> findBlamesCreatedAfter(Timestamp createdMin) {
+    return blameRepository.findByCreatedAfterOrderByCreatedAsc(createdMin);
   }
 
   // ban
@@ -127,10 +164,13 @@ public class DbService {
 
   public void __reset() {
     // TODO for tests only!
+    mixPersistService.flush();
     mixRepository.deleteAll();
     tx0WhitelistRepository.deleteAll();
     mixOutputRepository.deleteAll();
+    mixOutputFilterService.__reset();
     mixTxidRepository.deleteAll();
+    mixTxids.clear();
     blameRepository.deleteAll();
     banRepository.deleteAll();
   }
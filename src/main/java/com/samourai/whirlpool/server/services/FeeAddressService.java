@@ -0,0 +1,178 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.wallet.api.backend.beans.MultiAddrResponse;
+import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
+import com.samourai.wallet.util.FormatsUtilGeneric;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps samourai fee addresses derived around the current backend account index, so that tx0
+ * validation and tx0Data don't derive keys on request path. Account index is fetched after
+ * initialDelay then every refreshDelay.
+ */
+@Service
+public class FeeAddressService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private BackendService backendService;
+  private String feeXpub;
+  private NetworkParameters params;
+  private int window;
+  private DeterministicKey chainKey; // m/0 of fee xpub, derived once
+  private Map<Integer, String> addressByIndex;
+  private volatile int accountIndex;
+  private volatile int windowEnd; // exclusive
+  private AtomicBoolean extending;
+  private ScheduledExecutorService executor;
+
+  // metrics
+  private AtomicLong nbHits;
+  private AtomicLong nbMisses;
+
+  @Autowired
+  public FeeAddressService(
+      BackendService backendService,
+      WhirlpoolServerConfig serverConfig,
+      FormatsUtilGeneric formatsUtil,
+      CryptoService cryptoService) {
+    this.backendService = backendService;
+    this.feeXpub = serverConfig.getSamouraiFees().getXpub();
+    this.params = cryptoService.getNetworkParameters();
+    this.window = serverConfig.getFeeAddresses().getWindow();
+    DeterministicKey masterKey = formatsUtil.createMasterPubKeyFromXPub(feeXpub);
+    this.chainKey =
+        HDKeyDerivation.deriveChildKey(
+            masterKey, new ChildNumber(0, false)); // assume external/receive chain
+    this.addressByIndex = new ConcurrentHashMap<>();
+    this.accountIndex = 0;
+    this.windowEnd = 0;
+    this.extending = new AtomicBoolean(false);
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fee-addresses-");
+    threadFactory.setDaemon(true);
+    threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+    this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+    this.nbHits = new AtomicLong(0);
+    this.nbMisses = new AtomicLong(0);
+
+    // derive initial window, then follow backend account index
+    onAccountIndex(0);
+    int initialDelay = serverConfig.getFeeAddresses().getInitialDelay();
+    int refreshDelay = serverConfig.getFeeAddresses().getRefreshDelay();
+    executor.scheduleWithFixedDelay(
+        () -> refreshAccountIndex(), initialDelay, refreshDelay, TimeUnit.SECONDS);
+  }
+
+  public String getFeeAddress(int x) {
+    String feeAddress = addressByIndex.get(x);
+    if (feeAddress != null) {
+      nbHits.incrementAndGet();
+      return feeAddress;
+    }
+    // out of window
+    nbMisses.incrementAndGet();
+    return deriveFeeAddress(x);
+  }
+
+  /** Fetch current account index from backend. */
+  public int fetchAccountIndex() throws Exception {
+    MultiAddrResponse.Address address = backendService.fetchAddress(feeXpub);
+    int index = address.account_index;
+    onAccountIndex(index);
+    return index;
+  }
+
+  private void refreshAccountIndex() {
+    try {
+      fetchAccountIndex();
+    } catch (Exception e) {
+      log.error("Unable to fetchAddress for samouraiFee, accountIndex=" + accountIndex, e);
+    }
+  }
+
+  /** Slide window when account index moved forward. */
+  public synchronized void onAccountIndex(int index) {
+    if (index > accountIndex) {
+      accountIndex = index;
+    }
+    if (accountIndex + window / 2 >= windowEnd && extending.compareAndSet(false, true)) {
+      executor.execute(() -> extendWindow());
+    }
+  }
+
+  private void extendWindow() {
+    boolean extended = false;
+    try {
+      int start = Math.max(accountIndex - window, 0);
+      int end = accountIndex + window;
+      for (int x = start; x < end; x++) {
+        if (!addressByIndex.containsKey(x)) {
+          addressByIndex.put(x, deriveFeeAddress(x));
+        }
+      }
+      windowEnd = end;
+      addressByIndex.keySet().removeIf(x -> x < start);
+      if (log.isDebugEnabled()) {
+        log.debug("feeAddresses window: [" + start + ", " + end + "[");
+      }
+      extended = true;
+    } catch (Exception e) {
+      log.error("", e);
+    } finally {
+      extending.set(false);
+    }
+    if (extended) {
+      // account index may have moved while extending
+      onAccountIndex(accountIndex);
+    }
+  }
+
+  private String deriveFeeAddress(int x) {
+    DeterministicKey addressKey =
+        HDKeyDerivation.deriveChildKey(chainKey, new ChildNumber(x, false));
+    return Bech32UtilGeneric.getInstance().toBech32(addressKey.getPubKey(), params);
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  public int getAccountIndex() {
+    return accountIndex;
+  }
+
+  public int getWindowEnd() {
+    return windowEnd;
+  }
+
+  public int getNbAddresses() {
+    return addressByIndex.size();
+  }
+
+  public long getNbHits() {
+    return nbHits.get();
+  }
+
+  public long getNbMisses() {
+    return nbMisses.get();
+  }
+}
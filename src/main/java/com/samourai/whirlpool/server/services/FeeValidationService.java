@@ -15,9 +15,11 @@ import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig.SecretWalletConfig;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import org.bitcoinj.core.NetworkParameters;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.bitcoinj.core.Transaction;
 import org.bitcoinj.core.TransactionOutPoint;
 import org.bitcoinj.core.TransactionOutput;
@@ -41,6 +43,12 @@ public class FeeValidationService {
   private TxUtil txUtil;
   private BlockchainDataService blockchainDataService;
   private WhirlpoolFee whirlpoolFee;
+  private FeeAddressService feeAddressService;
+
+  // feePayload => scode, rebuilt when configuration changes
+  private Map<Short, String> scodeByFeePayload;
+  private Map<String, Short> indexedFeePayloadByScode;
+  private int indexedSize;
 
   public FeeValidationService(
       CryptoService cryptoService,
@@ -50,7 +58,8 @@ public class FeeValidationService {
       HD_WalletFactoryJava hdWalletFactory,
       TxUtil txUtil,
       BlockchainDataService blockchainDataService,
-      WhirlpoolFee whirlpoolFee)
+      WhirlpoolFee whirlpoolFee,
+      FeeAddressService feeAddressService)
       throws Exception {
     this.cryptoService = cryptoService;
     this.formatsUtil = formatsUtil;
@@ -61,6 +70,8 @@ public class FeeValidationService {
     this.txUtil = txUtil;
     this.blockchainDataService = blockchainDataService;
     this.whirlpoolFee = whirlpoolFee;
+    this.feeAddressService = feeAddressService;
+    this.scodeByFeePayload = null;
   }
 
   private BIP47Account computeSecretAccount() throws Exception {
@@ -77,6 +88,11 @@ public class FeeValidationService {
   }
 
   public WhirlpoolFeeData decodeFeeData(Transaction tx) {
+    return decodeFeeData(tx, new AtomicBoolean(false));
+  }
+
+  /** @param fetchError set when the input0 outpoint (needed for P2PK) could not be fetched */
+  public WhirlpoolFeeData decodeFeeData(Transaction tx, AtomicBoolean fetchError) {
     byte[] opReturnMaskedValue = findOpReturnValue(tx);
     if (opReturnMaskedValue == null) {
       return null;
@@ -85,7 +101,7 @@ public class FeeValidationService {
     // decode opReturnMaskedValue
     TransactionOutPoint input0OutPoint = tx.getInput(0).getOutpoint();
     Callback<byte[]> fetchInputOutpointScriptBytes =
-        computeCallbackFetchOutpointScriptBytes(input0OutPoint); // needed for P2PK
+        computeCallbackFetchOutpointScriptBytes(input0OutPoint, fetchError); // needed for P2PK
     byte[] input0Pubkey = txUtil.findInputPubkey(tx, 0, fetchInputOutpointScriptBytes);
     WhirlpoolFeeData feeData =
         whirlpoolFee.decode(opReturnMaskedValue, secretAccountBip47, input0OutPoint, input0Pubkey);
@@ -158,20 +174,25 @@ public class FeeValidationService {
   }
 
   public String computeFeeAddress(int x) {
-    String feeXpub = serverConfig.getSamouraiFees().getXpub();
-    NetworkParameters params = cryptoService.getNetworkParameters();
-    return Utils.computeXpubAddressBech32(x, feeXpub, params);
+    return feeAddressService.getFeeAddress(x);
   }
 
-  private Callback<byte[]> computeCallbackFetchOutpointScriptBytes(TransactionOutPoint outPoint) {
+  private Callback<byte[]> computeCallbackFetchOutpointScriptBytes(
+      TransactionOutPoint outPoint, AtomicBoolean fetchError) {
     Callback<byte[]> fetchInputOutpointScriptBytes =
         () -> {
           // fetch output script bytes for outpoint
           String outpointHash = outPoint.getHash().toString();
-          Optional<RpcTransaction> outpointRpcOut =
-              blockchainDataService.getRpcTransaction(outpointHash);
+          Optional<RpcTransaction> outpointRpcOut;
+          try {
+            outpointRpcOut = blockchainDataService.getRpcTransaction(outpointHash);
+          } catch (RuntimeException e) {
+            fetchError.set(true);
+            throw e;
+          }
           if (!outpointRpcOut.isPresent()) {
             log.error("Tx not found for outpoint: " + outpointHash);
+            fetchError.set(true);
             return null;
           }
           return outpointRpcOut.get().getTx().getOutput(outPoint.getIndex()).getScriptBytes();
@@ -204,7 +225,7 @@ public class FeeValidationService {
     return null;
   }
 
-  private boolean isValidFeePayload(byte[] feePayload) {
+  protected boolean isValidFeePayload(byte[] feePayload) {
     if (feePayload == null || feePayload.length != WhirlpoolFee.FEE_PAYLOAD_LENGTH) {
       return false;
     }
@@ -215,19 +236,24 @@ public class FeeValidationService {
 
   protected String getScodeByFeePayload(byte[] feePayload) {
     short feePayloadAsShort = Utils.feePayloadBytesToShort(feePayload);
-    Optional<Entry<String, Short>> feePayloadEntry =
-        serverConfig
-            .getSamouraiFees()
-            .getFeePayloadByScode()
-            .entrySet()
-            .stream()
-            .filter(e -> e.getValue() == feePayloadAsShort)
-            .findFirst();
-    if (!feePayloadEntry.isPresent()) {
-      // scode not found
-      return null;
+    return getScodeByFeePayload().get(feePayloadAsShort);
+  }
+
+  private synchronized Map<Short, String> getScodeByFeePayload() {
+    Map<String, Short> feePayloadByScode = serverConfig.getSamouraiFees().getFeePayloadByScode();
+    if (scodeByFeePayload == null
+        || feePayloadByScode != indexedFeePayloadByScode
+        || feePayloadByScode.size() != indexedSize) {
+      // (re)build index
+      Map<Short, String> index = new HashMap<>();
+      for (Entry<String, Short> e : feePayloadByScode.entrySet()) {
+        index.putIfAbsent(e.getValue(), e.getKey());
+      }
+      scodeByFeePayload = index;
+      indexedFeePayloadByScode = feePayloadByScode;
+      indexedSize = feePayloadByScode.size();
     }
-    return feePayloadEntry.get().getKey();
+    return scodeByFeePayload;
   }
 
   public byte[] getFeePayloadByScode(String scode) {
@@ -1,6 +1,5 @@
 package com.samourai.whirlpool.server.services;
 
-import com.samourai.wallet.util.MessageSignUtilGeneric;
 import com.samourai.whirlpool.protocol.fee.WhirlpoolFeeData;
 import com.samourai.whirlpool.server.beans.Pool;
 import com.samourai.whirlpool.server.beans.PoolFee;
@@ -8,7 +7,10 @@ import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
 import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.utils.LoadingCache;
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.Transaction;
 import org.bouncycastle.util.encoders.Hex;
@@ -21,19 +23,24 @@ public class InputValidationService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private FeeValidationService feeValidationService;
   private WhirlpoolServerConfig whirlpoolServerConfig;
-  private CryptoService cryptoService;
-  private MessageSignUtilGeneric messageSignUtil;
+  private SignatureVerificationService signatureVerificationService;
+  private LoadingCache<String, Tx0Verdict> tx0Verdicts; // by txid:poolId, without fetch errors
 
   public InputValidationService(
       FeeValidationService feeValidationService,
       WhirlpoolServerConfig whirlpoolServerConfig,
-      CryptoService cryptoService,
       DbService dbService,
-      MessageSignUtilGeneric messageSignUtil) {
+      SignatureVerificationService signatureVerificationService) {
     this.feeValidationService = feeValidationService;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
-    this.cryptoService = cryptoService;
-    this.messageSignUtil = messageSignUtil;
+    this.signatureVerificationService = signatureVerificationService;
+    WhirlpoolServerConfig.Tx0VerdictCacheConfig verdictCacheConfig =
+        whirlpoolServerConfig.getTx0VerdictCache();
+    this.tx0Verdicts =
+        new LoadingCache<>(
+            verdictCacheConfig.getMaxSize(),
+            verdictCacheConfig.getTtl() * 1000L,
+            verdict -> !verdict.fetchError);
   }
 
   public TxOutPoint validateProvenance(
@@ -53,7 +60,8 @@ public class InputValidationService {
 
     // verify input comes from a valid tx0 or previous mix
     boolean isLiquidity =
-        checkInputProvenance(tx, txOutPoint.getValue(), pool.getPoolFee(), hasMixTxid);
+        checkInputProvenance(
+            tx, txOutPoint.getValue(), pool.getPoolId(), pool.getPoolFee(), hasMixTxid);
     if (!isLiquidity && liquidity) {
       throw new IllegalInputException("Input rejected: joined as liquidity but is a mustMix");
     }
@@ -64,11 +72,12 @@ public class InputValidationService {
   }
 
   protected boolean checkInputProvenance(
-      RpcTransaction rpcTx, long inputValue, PoolFee poolFee, boolean hasMixTxid)
+      RpcTransaction rpcTx, long inputValue, String poolId, PoolFee poolFee, boolean hasMixTxid)
       throws IllegalInputException {
     Transaction tx = rpcTx.getTx();
     // is it a tx0?
-    WhirlpoolFeeData feeData = feeValidationService.decodeFeeData(tx);
+    Tx0Verdict tx0Verdict = getTx0Verdict(rpcTx, poolId, poolFee);
+    WhirlpoolFeeData feeData = tx0Verdict.getFeeData();
     if (feeData != null) {
       // this is a tx0 => mustMix
       String feePayloadHex =
@@ -86,7 +95,7 @@ public class InputValidationService {
       }
 
       // check fees paid
-      if (!feeValidationService.isValidTx0(rpcTx.getTx(), rpcTx.getTxTime(), feeData, poolFee)) {
+      if (!tx0Verdict.isValidTx0()) {
         throw new IllegalInputException(
             "Input rejected (invalid fee for tx0="
                 + tx.getHashAsString()
@@ -115,6 +124,21 @@ public class InputValidationService {
     }
   }
 
+  private Tx0Verdict getTx0Verdict(RpcTransaction rpcTx, String poolId, PoolFee poolFee) {
+    String key = rpcTx.getTx().getHashAsString() + ":" + poolId;
+    Tx0Verdict tx0Verdict = tx0Verdicts.get(key, k -> new Tx0Verdict(rpcTx, poolFee));
+    if (tx0Verdict.poolFee != poolFee) {
+      // pool fee was reconfigured
+      tx0Verdicts.invalidate(key);
+      tx0Verdict = tx0Verdicts.get(key, k -> new Tx0Verdict(rpcTx, poolFee));
+    }
+    return tx0Verdict;
+  }
+
+  public LoadingCache<String, Tx0Verdict> getTx0Verdicts() {
+    return tx0Verdicts;
+  }
+
   public ECKey validateSignature(TxOutPoint txOutPoint, String message, String signature)
       throws IllegalInputException {
     if (log.isDebugEnabled()) {
@@ -128,15 +152,47 @@ public class InputValidationService {
     }
 
     // verify signature of message for address
-    if (!messageSignUtil.verifySignedMessage(
-        txOutPoint.getToAddress(), message, signature, cryptoService.getNetworkParameters())) {
-      throw new IllegalInputException("Invalid signature");
+    return signatureVerificationService.verifyMessageSignature(txOutPoint, message, signature);
+  }
+
+  /** Same as validateSignature, computed on the signature worker pool. */
+  public CompletableFuture<ECKey> validateSignatureAsync(
+      TxOutPoint txOutPoint, String message, String signature) {
+    return signatureVerificationService.verifyMessageSignatureAsync(txOutPoint, message, signature);
+  }
+
+  /** Decoded feeData and fee payment for a tx, which don't depend on the output index. */
+  public class Tx0Verdict {
+    private RpcTransaction rpcTx;
+    private PoolFee poolFee;
+    private WhirlpoolFeeData feeData; // null when not a tx0
+    private boolean fetchError; // feeData may be wrong, don't cache
+    private Boolean feePaid; // computed on first use
+
+    Tx0Verdict(RpcTransaction rpcTx, PoolFee poolFee) {
+      this.rpcTx = rpcTx;
+      this.poolFee = poolFee;
+      AtomicBoolean fetchError = new AtomicBoolean(false);
+      this.feeData = feeValidationService.decodeFeeData(rpcTx.getTx(), fetchError);
+      this.fetchError = fetchError.get();
+      this.feePaid = null;
     }
 
-    ECKey pubkey = messageSignUtil.signedMessageToKey(message, signature);
-    if (pubkey == null) {
-      throw new IllegalInputException("Invalid signature");
+    public WhirlpoolFeeData getFeeData() {
+      return feeData;
+    }
+
+    public synchronized boolean isValidTx0() {
+      // feePayload configuration is checked on each call
+      if (feeValidationService.isValidFeePayload(feeData.getFeePayload())) {
+        return true;
+      }
+      if (feePaid == null) {
+        feePaid =
+            feeValidationService.isTx0FeePaid(
+                rpcTx.getTx(), rpcTx.getTxTime(), feeData.getFeeIndice(), poolFee);
+      }
+      return feePaid;
     }
-    return pubkey;
   }
 }
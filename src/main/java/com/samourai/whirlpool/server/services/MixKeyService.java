@@ -0,0 +1,142 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.beans.MixKey;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.utils.LatencyMetric;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/** Keeps RSA keys ready for next mixs, so that mix rotation never waits on key generation. */
+@Service
+public class MixKeyService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private CryptoService cryptoService;
+  private int poolSize;
+  private ExecutorService generator;
+  private Map<String, KeyQueue> keyQueues;
+
+  // metrics
+  private AtomicLong nbGenerated;
+  private AtomicLong nbMisses;
+  private LatencyMetric generateLatency;
+
+  @Autowired
+  public MixKeyService(CryptoService cryptoService, WhirlpoolServerConfig whirlpoolServerConfig) {
+    this.cryptoService = cryptoService;
+    this.poolSize = whirlpoolServerConfig.getMixKeys().getPoolSize();
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mix-keys-");
+    threadFactory.setDaemon(true);
+    threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+    this.generator = Executors.newSingleThreadExecutor(threadFactory);
+    this.keyQueues = new ConcurrentHashMap<>();
+
+    this.nbGenerated = new AtomicLong(0);
+    this.nbMisses = new AtomicLong(0);
+    this.generateLatency = new LatencyMetric();
+
+    // warm up
+    for (WhirlpoolServerConfig.PoolConfig poolConfig : whirlpoolServerConfig.getPools()) {
+      refill(getKeyQueue(poolConfig.getId()));
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    generator.shutdownNow();
+  }
+
+  public MixKey nextMixKey(String poolId) {
+    KeyQueue keyQueue = getKeyQueue(poolId);
+    MixKey mixKey = keyQueue.keys.poll();
+    if (mixKey == null) {
+      // pool ran dry
+      nbMisses.incrementAndGet();
+      log.warn("No RSA key ready for pool " + poolId + ", generating one now");
+      mixKey = generateMixKey();
+    }
+    refill(keyQueue);
+    return mixKey;
+  }
+
+  private KeyQueue getKeyQueue(String poolId) {
+    return keyQueues.computeIfAbsent(poolId, p -> new KeyQueue(poolSize));
+  }
+
+  private void refill(KeyQueue keyQueue) {
+    if (poolSize <= 0 || !keyQueue.refilling.compareAndSet(false, true)) {
+      return;
+    }
+    generator.execute(
+        () -> {
+          try {
+            while (keyQueue.keys.remainingCapacity() > 0) {
+              keyQueue.keys.offer(generateMixKey());
+            }
+          } catch (Exception e) {
+            log.error("", e);
+          } finally {
+            keyQueue.refilling.set(false);
+          }
+        });
+  }
+
+  private MixKey generateMixKey() {
+    long start = System.currentTimeMillis();
+    AsymmetricCipherKeyPair keyPair = cryptoService.generateKeyPair();
+    byte[] publicKey;
+    try {
+      publicKey = cryptoService.computePublicKey(keyPair).getEncoded();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    generateLatency.record(System.currentTimeMillis() - start);
+    nbGenerated.incrementAndGet();
+    return new MixKey(keyPair, publicKey);
+  }
+
+  public int getNbReady() {
+    return keyQueues.values().stream().mapToInt(keyQueue -> keyQueue.keys.size()).sum();
+  }
+
+  public int getNbReady(String poolId) {
+    KeyQueue keyQueue = keyQueues.get(poolId);
+    return keyQueue != null ? keyQueue.keys.size() : 0;
+  }
+
+  public long getNbGenerated() {
+    return nbGenerated.get();
+  }
+
+  public long getNbMisses() {
+    return nbMisses.get();
+  }
+
+  public LatencyMetric getGenerateLatency() {
+    return generateLatency;
+  }
+
+  private static class KeyQueue {
+    private BlockingQueue<MixKey> keys;
+    private AtomicBoolean refilling;
+
+    KeyQueue(int poolSize) {
+      this.keys = new ArrayBlockingQueue<>(Math.max(poolSize, 1));
+      this.refilling = new AtomicBoolean(false);
+    }
+  }
+}
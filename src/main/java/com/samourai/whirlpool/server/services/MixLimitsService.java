@@ -7,6 +7,7 @@ import com.samourai.whirlpool.server.beans.FailReason;
 import com.samourai.whirlpool.server.beans.Mix;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.utils.timeout.ITimeoutWatcherListener;
+import com.samourai.whirlpool.server.utils.timeout.TimeoutScheduler;
 import com.samourai.whirlpool.server.utils.timeout.TimeoutWatcher;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
@@ -28,6 +29,7 @@ public class MixLimitsService {
   private PoolService poolService;
   private BlameService blameService;
   private WhirlpoolServerConfig whirlpoolServerConfig;
+  private TimeoutScheduler timeoutScheduler;
 
   private Map<String, TimeoutWatcher> limitsWatchers;
   private Map<String, TimeoutWatcher> liquidityWatchers;
@@ -36,10 +38,12 @@ public class MixLimitsService {
   public MixLimitsService(
       PoolService poolService,
       BlameService blameService,
-      WhirlpoolServerConfig whirlpoolServerConfig) {
+      WhirlpoolServerConfig whirlpoolServerConfig,
+      TimeoutScheduler timeoutScheduler) {
     this.poolService = poolService;
     this.blameService = blameService;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
+    this.timeoutScheduler = timeoutScheduler;
 
     this.__reset();
   }
@@ -75,6 +79,14 @@ public class MixLimitsService {
     }
   }
 
+  public void onBroadcasting(Mix mix) {
+    // start broadcast timeout
+    TimeoutWatcher limitsWatcher = getLimitsWatcher(mix);
+    if (limitsWatcher != null) { // may be null for tests
+      limitsWatcher.resetTimeout();
+    }
+  }
+
   public void onMixStatusChange(Mix mix) {
     // reset timeout for new mixStatus
     TimeoutWatcher limitsWatcher = getLimitsWatcher(mix);
@@ -124,7 +136,13 @@ public class MixLimitsService {
                 break;
 
               case SIGNING:
-                timeToWait = whirlpoolServerConfig.getSigning().getTimeout() * 1000 - elapsedTime;
+                if (!mix.isBroadcasting()) {
+                  timeToWait = whirlpoolServerConfig.getSigning().getTimeout() * 1000 - elapsedTime;
+                } else {
+                  // broadcast result should end the mix before this deadline
+                  timeToWait =
+                      whirlpoolServerConfig.getBroadcast().getTimeout() * 1000 - elapsedTime;
+                }
                 break;
 
               case REVEAL_OUTPUT:
@@ -149,36 +167,50 @@ public class MixLimitsService {
             if (log.isDebugEnabled()) {
               log.debug("limitsWatcher.onTimeout");
             }
-            switch (mix.getMixStatus()) {
-              case CONFIRM_INPUT:
-                // adjust targetAnonymitySet
-                adjustTargetAnonymitySet(mix, timeoutWatcher);
-                break;
-
-              case REGISTER_OUTPUT:
-                mixService.onTimeoutRegisterOutput(mix);
-                break;
-
-              case REVEAL_OUTPUT:
-                mixService.onTimeoutRevealOutput(mix);
-                break;
-
-              case SIGNING:
-                blameForSigningAndResetMix(mix);
-                break;
-
-              default:
-                if (log.isDebugEnabled()) {
-                  log.debug("limitsWatcher.onTimeout => ignored: mixStatus=" + mix.getMixStatus());
-                }
+            mix.getLock().lock();
+            try {
+              onLimitsTimeout(mix, timeoutWatcher);
+            } finally {
+              mix.getLock().unlock();
             }
           }
         };
 
-    TimeoutWatcher mixLimitsWatcher = new TimeoutWatcher(listener);
+    TimeoutWatcher mixLimitsWatcher = new TimeoutWatcher(listener, timeoutScheduler);
     return mixLimitsWatcher;
   }
 
+  private void onLimitsTimeout(Mix mix, TimeoutWatcher timeoutWatcher) {
+    switch (mix.getMixStatus()) {
+      case CONFIRM_INPUT:
+        // adjust targetAnonymitySet
+        adjustTargetAnonymitySet(mix, timeoutWatcher);
+        break;
+
+      case REGISTER_OUTPUT:
+        mixService.onTimeoutRegisterOutput(mix);
+        break;
+
+      case REVEAL_OUTPUT:
+        mixService.onTimeoutRevealOutput(mix);
+        break;
+
+      case SIGNING:
+        if (!mix.isBroadcasting()) {
+          blameForSigningAndResetMix(mix);
+        } else {
+          log.error(" • broadcast time over (mix failed)");
+          mixService.goFail(mix, FailReason.FAIL_BROADCAST, "Broadcast timeout");
+        }
+        break;
+
+      default:
+        if (log.isDebugEnabled()) {
+          log.debug("limitsWatcher.onTimeout => ignored: mixStatus=" + mix.getMixStatus());
+        }
+    }
+  }
+
   private TimeoutWatcher computeLiquidityWatcher(Mix mix) {
     ITimeoutWatcherListener listener =
         new ITimeoutWatcherListener() {
@@ -221,7 +253,7 @@ public class MixLimitsService {
             addLiquidities(mix);
           }
         };
-    TimeoutWatcher liquidityWatcher = new TimeoutWatcher(listener);
+    TimeoutWatcher liquidityWatcher = new TimeoutWatcher(listener, timeoutScheduler);
     return liquidityWatcher;
   }
 
@@ -0,0 +1,392 @@
+package com.samourai.whirlpool.server.services;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.persistence.repositories.MixOutputRepository;
+import com.samourai.whirlpool.server.persistence.to.MixOutputTO;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Answers "receive address never seen" in memory with a Bloom filter over mix_output, and only
+ * queries database on possible positives. The filter is snapshotted to disk and rebuilt from
+ * database when the snapshot is missing, stale or overfull.
+ */
+@Service
+public class MixOutputFilterService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+  private static final int SNAPSHOT_MAGIC = 0x4d4f4246;
+  private static final int PAGE_SIZE = 10000;
+  private static final int CATCH_UP_MARGIN = 1000; // ids may be committed out of order
+
+  private MixOutputRepository mixOutputRepository;
+  private WhirlpoolServerConfig.MixOutputFilterConfig config;
+  private Set<String> recentAddresses; // exact positives for latest writes
+  private ScheduledExecutorService executor;
+
+  // guarded by this
+  private BloomFilter<CharSequence> filter;
+  private long expectedInsertions;
+  private long count;
+  private long lastId;
+  private String lastAddress; // identifies database for snapshot
+
+  // metrics
+  private AtomicLong nbNegatives;
+  private AtomicLong nbRecentHits;
+  private AtomicLong nbDbQueries;
+  private AtomicLong nbFalsePositives;
+
+  @Autowired
+  public MixOutputFilterService(
+      MixOutputRepository mixOutputRepository, WhirlpoolServerConfig serverConfig) {
+    this.mixOutputRepository = mixOutputRepository;
+    this.config = serverConfig.getMixOutputFilter();
+    int recentSize = config.getRecentSize();
+    this.recentAddresses =
+        Collections.newSetFromMap(
+            Collections.synchronizedMap(
+                new LinkedHashMap<String, Boolean>() {
+                  @Override
+                  protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > recentSize;
+                  }
+                }));
+    this.nbNegatives = new AtomicLong(0);
+    this.nbRecentHits = new AtomicLong(0);
+    this.nbDbQueries = new AtomicLong(0);
+    this.nbFalsePositives = new AtomicLong(0);
+
+    load();
+
+    if (config.getSaveDelay() > 0) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mix-output-filter-");
+      threadFactory.setDaemon(true);
+      threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+      this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      int saveDelay = config.getSaveDelay();
+      executor.scheduleWithFixedDelay(() -> maintain(), saveDelay, saveDelay, TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        // let running maintenance finish before writing final snapshot
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try {
+      saveSnapshot();
+    } catch (Exception e) {
+      log.error("mixOutputFilter final snapshot failed", e);
+    }
+  }
+
+  public boolean hasMixOutput(String address) {
+    if (recentAddresses.contains(address)) {
+      nbRecentHits.incrementAndGet();
+      return true;
+    }
+    if (!mightContain(address)) {
+      nbNegatives.incrementAndGet();
+      return false;
+    }
+    nbDbQueries.incrementAndGet();
+    boolean found = mixOutputRepository.findByAddress(address).isPresent();
+    if (!found) {
+      nbFalsePositives.incrementAndGet();
+    }
+    return found;
+  }
+
+  public void saveMixOutput(String address) {
+    MixOutputTO mixOutputTO = mixOutputRepository.save(new MixOutputTO(address));
+    add(mixOutputTO.getId(), address);
+    recentAddresses.add(address);
+  }
+
+  private synchronized boolean mightContain(String address) {
+    return filter.mightContain(address);
+  }
+
+  private synchronized void add(long id, String address) {
+    if (filter.put(address)) {
+      count++; // approximate, replayed or colliding addresses are not counted
+    }
+    if (id > lastId) {
+      lastId = id;
+      lastAddress = address;
+    }
+  }
+
+  private void load() {
+    long start = System.currentTimeMillis();
+    boolean restored = restoreSnapshot();
+    if (!restored) {
+      rebuild();
+    } else {
+      catchUp(lastId - CATCH_UP_MARGIN);
+      if (isOverfull()) {
+        rebuild();
+      }
+    }
+    log.info(
+        "Loaded mixOutputFilter in "
+            + (System.currentTimeMillis() - start)
+            + "ms: restored="
+            + restored
+            + ", "
+            + getMetrics());
+    if (!restored) {
+      saveSnapshot();
+    }
+  }
+
+  private void maintain() {
+    try {
+      if (isOverfull()) {
+        log.warn("mixOutputFilter is overfull, rebuilding: " + getMetrics());
+        rebuild();
+      }
+      saveSnapshot();
+    } catch (Exception e) {
+      log.error("mixOutputFilter maintenance failed", e);
+    }
+  }
+
+  /** Rebuilds filter from database, sized for current rows. */
+  public void rebuild() {
+    long nbRows = mixOutputRepository.count();
+    long newExpectedInsertions = Math.max(config.getExpectedInsertions(), nbRows * 2);
+    BloomFilter<CharSequence> newFilter =
+        BloomFilter.create(FUNNEL, newExpectedInsertions, config.getFpp());
+
+    // scan without lock, outputs saved meanwhile are caught up after swap
+    long newCount = 0;
+    long newLastId = 0;
+    String newLastAddress = null;
+    List<MixOutputTO> page;
+    do {
+      page = mixOutputRepository.findByIdGreaterThan(newLastId, PageRequest.of(0, PAGE_SIZE));
+      for (MixOutputTO mixOutputTO : page) {
+        if (newFilter.put(mixOutputTO.getAddress())) {
+          newCount++;
+        }
+        newLastId = mixOutputTO.getId();
+        newLastAddress = mixOutputTO.getAddress();
+      }
+    } while (page.size() == PAGE_SIZE);
+
+    synchronized (this) {
+      this.filter = newFilter;
+      this.expectedInsertions = newExpectedInsertions;
+      this.count = newCount;
+      this.lastId = newLastId;
+      this.lastAddress = newLastAddress;
+      catchUp(newLastId - CATCH_UP_MARGIN);
+    }
+  }
+
+  private void catchUp(long idMin) {
+    long nextIdMin = Math.max(idMin, 0);
+    List<MixOutputTO> page;
+    do {
+      page = mixOutputRepository.findByIdGreaterThan(nextIdMin, PageRequest.of(0, PAGE_SIZE));
+      for (MixOutputTO mixOutputTO : page) {
+        add(mixOutputTO.getId(), mixOutputTO.getAddress());
+        nextIdMin = mixOutputTO.getId();
+      }
+    } while (page.size() == PAGE_SIZE);
+  }
+
+  private synchronized boolean isOverfull() {
+    return count > expectedInsertions;
+  }
+
+  private boolean restoreSnapshot() {
+    File file = getSnapshotFile();
+    if (file == null || !file.exists()) {
+      return false;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Invalid snapshot header");
+      }
+      long snapshotExpectedInsertions = in.readLong();
+      long snapshotCount = in.readLong();
+      long snapshotLastId = in.readLong();
+      String snapshotLastAddress = in.readUTF();
+      BloomFilter<CharSequence> snapshotFilter = BloomFilter.readFrom(in, FUNNEL);
+
+      // snapshot must come from this database
+      if (snapshotLastId > 0) {
+        Optional<MixOutputTO> lastRow = mixOutputRepository.findById(snapshotLastId);
+        if (!lastRow.isPresent() || !lastRow.get().getAddress().equals(snapshotLastAddress)) {
+          log.warn("mixOutputFilter snapshot doesn't match database, rebuilding");
+          return false;
+        }
+      }
+      synchronized (this) {
+        this.filter = snapshotFilter;
+        this.expectedInsertions = snapshotExpectedInsertions;
+        this.count = snapshotCount;
+        this.lastId = snapshotLastId;
+        this.lastAddress = snapshotLastAddress;
+      }
+      return true;
+    } catch (Exception e) {
+      log.error("Unable to restore mixOutputFilter snapshot, rebuilding", e);
+      return false;
+    }
+  }
+
+  public void saveSnapshot() {
+    File file = getSnapshotFile();
+    if (file == null) {
+      return;
+    }
+    // copy under lock, write without
+    BloomFilter<CharSequence> snapshotFilter;
+    long snapshotExpectedInsertions;
+    long snapshotCount;
+    long snapshotLastId;
+    String snapshotLastAddress;
+    synchronized (this) {
+      snapshotFilter = filter.copy();
+      snapshotExpectedInsertions = expectedInsertions;
+      snapshotCount = count;
+      snapshotLastId = lastId;
+      snapshotLastAddress = lastAddress;
+    }
+
+    File tmpFile = new File(file.getPath() + ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(snapshotExpectedInsertions);
+        out.writeLong(snapshotCount);
+        out.writeLong(snapshotLastId);
+        out.writeUTF(snapshotLastAddress != null ? snapshotLastAddress : "");
+        snapshotFilter.writeTo(out);
+      }
+      Files.move(
+          tmpFile.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      if (log.isDebugEnabled()) {
+        log.debug("mixOutputFilter saved: " + file.getPath());
+      }
+    } catch (Exception e) {
+      log.error("Unable to save mixOutputFilter snapshot: " + file.getPath(), e);
+    }
+  }
+
+  private File getSnapshotFile() {
+    return StringUtils.isEmpty(config.getFile()) ? null : new File(config.getFile());
+  }
+
+  public synchronized void __reset() {
+    // for tests only
+    this.filter = BloomFilter.create(FUNNEL, config.getExpectedInsertions(), config.getFpp());
+    this.expectedInsertions = config.getExpectedInsertions();
+    this.count = 0;
+    this.lastId = 0;
+    this.lastAddress = null;
+    recentAddresses.clear();
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized double getExpectedFpp() {
+    return filter.expectedFpp();
+  }
+
+  public synchronized long getMemoryBytes() {
+    // optimal number of bits, as allocated by BloomFilter.create()
+    double fpp = config.getFpp();
+    return (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2))) / 8;
+  }
+
+  public long getNbNegatives() {
+    return nbNegatives.get();
+  }
+
+  public long getNbRecentHits() {
+    return nbRecentHits.get();
+  }
+
+  public long getNbDbQueries() {
+    return nbDbQueries.get();
+  }
+
+  public long getNbFalsePositives() {
+    return nbFalsePositives.get();
+  }
+
+  /** Observed false positive rate, in percent. */
+  public double getFalsePositiveRate() {
+    long nbFalsePositives = getNbFalsePositives();
+    long nbNotFound = getNbNegatives() + nbFalsePositives;
+    return nbNotFound > 0 ? nbFalsePositives * 100.0 / nbNotFound : 0;
+  }
+
+  public String getMetrics() {
+    return "count="
+        + getCount()
+        + ", memory="
+        + getMemoryBytes() / 1024
+        + "KB, expectedFpp="
+        + String.format("%.4f", getExpectedFpp() * 100)
+        + "%, observedFpp="
+        + String.format("%.4f", getFalsePositiveRate())
+        + "%, negatives="
+        + getNbNegatives()
+        + ", recentHits="
+        + getNbRecentHits()
+        + ", dbQueries="
+        + getNbDbQueries()
+        + ", falsePositives="
+        + getNbFalsePositives();
+  }
+}
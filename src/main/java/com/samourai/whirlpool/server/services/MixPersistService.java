@@ -0,0 +1,202 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.persistence.repositories.MixRepository;
+import com.samourai.whirlpool.server.persistence.to.MixTO;
+import com.samourai.whirlpool.server.utils.LatencyMetric;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Write-behind persistence of mixs. Successive saves of a mix are coalesced into one pending write,
+ * flushed in batches by a dedicated thread. Terminal SUCCESS/FAIL states are written synchronously,
+ * so the final MixTO is persisted (with id, created, updated) before being exported. Failed writes
+ * stay pending until they succeed.
+ */
+@Service
+public class MixPersistService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long LOCK_TIMEOUT_MS = 1000;
+  private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
+  private MixRepository mixRepository;
+  private int batchSize;
+  private Map<String, Mix> pendingMixs; // by mixId
+  private ScheduledExecutorService executor;
+  private Object flushLock; // one flush at a time; database writes are synchronized on this
+
+  // metrics
+  private AtomicLong nbSaves;
+  private AtomicLong nbWrites;
+  private AtomicLong nbErrors;
+  private LatencyMetric flushLatency;
+
+  @Autowired
+  public MixPersistService(MixRepository mixRepository, WhirlpoolServerConfig serverConfig) {
+    this.mixRepository = mixRepository;
+    WhirlpoolServerConfig.MixPersistConfig config = serverConfig.getMixPersist();
+    this.batchSize = config.getBatchSize();
+    this.pendingMixs = new ConcurrentHashMap<>();
+    this.flushLock = new Object();
+    this.nbSaves = new AtomicLong(0);
+    this.nbWrites = new AtomicLong(0);
+    this.nbErrors = new AtomicLong(0);
+    this.flushLatency = new LatencyMetric();
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mix-persist-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    int flushDelay = config.getFlushDelay();
+    executor.scheduleWithFixedDelay(() -> flush(), flushDelay, flushDelay, TimeUnit.MILLISECONDS);
+  }
+
+  /** Schedules mix for persistence, or writes it now when terminal. Caller should hold mix lock. */
+  public void save(Mix mix) {
+    nbSaves.incrementAndGet();
+    if (isTerminal(mix.getMixStatus())) {
+      // final snapshot: persisted now, for export
+      pendingMixs.remove(mix.getMixId());
+      saveNow(mix);
+      return;
+    }
+    pendingMixs.put(mix.getMixId(), mix);
+    if (pendingMixs.size() >= batchSize && !executor.isShutdown()) {
+      // flush now
+      executor.execute(() -> flush());
+    }
+  }
+
+  private synchronized void saveNow(Mix mix) {
+    long start = System.currentTimeMillis();
+    try {
+      mixRepository.save(mix.computeMixTO());
+      nbWrites.incrementAndGet();
+      flushLatency.record(System.currentTimeMillis() - start);
+    } catch (Exception e) {
+      nbErrors.incrementAndGet();
+      log.error("Unable to persist mix " + mix.getMixId() + ", will retry", e);
+      pendingMixs.putIfAbsent(mix.getMixId(), mix);
+    }
+  }
+
+  private boolean isTerminal(MixStatus mixStatus) {
+    return MixStatus.SUCCESS.equals(mixStatus) || MixStatus.FAIL.equals(mixStatus);
+  }
+
+  /** Writes all pending mixs, by batches. */
+  public void flush() {
+    synchronized (flushLock) {
+      while (!pendingMixs.isEmpty()) {
+        if (!flushBatch()) {
+          return; // retry on next flush
+        }
+      }
+    }
+  }
+
+  private boolean flushBatch() {
+    // drain batch
+    Map<String, Mix> batch = new LinkedHashMap<>();
+    Iterator<String> mixIds = pendingMixs.keySet().iterator();
+    while (mixIds.hasNext() && batch.size() < batchSize) {
+      String mixId = mixIds.next();
+      Mix mix = pendingMixs.remove(mixId);
+      if (mix != null) {
+        batch.put(mixId, mix);
+      }
+    }
+    if (batch.isEmpty()) {
+      return true;
+    }
+
+    long start = System.currentTimeMillis();
+    List<MixTO> mixTOs = new ArrayList<>();
+    try {
+      // snapshot each mix under its lock (without holding database lock, see saveNow)
+      boolean skipped = false;
+      Iterator<Mix> mixs = batch.values().iterator();
+      while (mixs.hasNext()) {
+        Mix mix = mixs.next();
+        if (!mix.getLock().tryLock(LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          // busy mix: retry on next flush
+          log.warn("Timeout acquiring lock for mix " + mix.getMixId() + ", will retry");
+          pendingMixs.putIfAbsent(mix.getMixId(), mix);
+          mixs.remove();
+          skipped = true;
+          continue;
+        }
+        try {
+          mixTOs.add(mix.computeMixTO());
+        } finally {
+          mix.getLock().unlock();
+        }
+      }
+
+      synchronized (this) {
+        // one transaction, JDBC batched by hibernate
+        mixRepository.saveAll(mixTOs);
+      }
+      nbWrites.addAndGet(mixTOs.size());
+      flushLatency.record(System.currentTimeMillis() - start);
+      return !skipped;
+    } catch (Exception e) {
+      nbErrors.incrementAndGet();
+      log.error("Unable to persist " + batch.size() + " mixs, will retry", e);
+
+      // retry unless a newer save is pending
+      batch.forEach((mixId, mix) -> pendingMixs.putIfAbsent(mixId, mix));
+      return false;
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    if (!pendingMixs.isEmpty()) {
+      log.error("Unable to persist " + pendingMixs.size() + " mixs on shutdown");
+    }
+  }
+
+  public int getNbPending() {
+    return pendingMixs.size();
+  }
+
+  public long getNbSaves() {
+    return nbSaves.get();
+  }
+
+  public long getNbWrites() {
+    return nbWrites.get();
+  }
+
+  public long getNbErrors() {
+    return nbErrors.get();
+  }
+
+  public LatencyMetric getFlushLatency() {
+    return flushLatency;
+  }
+}
@@ -0,0 +1,261 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.FailReason;
+import com.samourai.whirlpool.server.persistence.repositories.MixRepository;
+import com.samourai.whirlpool.server.persistence.repositories.MixRollupBackfillRepository;
+import com.samourai.whirlpool.server.persistence.repositories.MixRollupRepository;
+import com.samourai.whirlpool.server.persistence.to.MixRollupBackfillTO;
+import com.samourai.whirlpool.server.persistence.to.MixRollupTO;
+import com.samourai.whirlpool.server.persistence.to.MixTO;
+import java.lang.invoke.MethodHandles;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Daily rollups of finished mixs, by pool. Each finished mix is added to its rollup row by a single
+ * writer thread. Rollups are rebuilt from mix table on startup until a backfill completed. Rollups
+ * are disabled when tables from sql/mix_rollup.sql are missing.
+ */
+@Service
+public class MixRollupService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
+  private MixRollupRepository mixRollupRepository;
+  private MixRollupBackfillRepository mixRollupBackfillRepository;
+  private MixRepository mixRepository;
+  private TransactionTemplate transactionTemplate;
+  private ExecutorService writer;
+  private boolean enabled;
+
+  // metrics
+  private AtomicLong nbUpdates;
+  private AtomicInteger nbPendingWrites;
+  private AtomicLong nbWriteErrors;
+
+  @Autowired
+  public MixRollupService(
+      MixRollupRepository mixRollupRepository,
+      MixRollupBackfillRepository mixRollupBackfillRepository,
+      MixRepository mixRepository,
+      PlatformTransactionManager transactionManager) {
+    this.mixRollupRepository = mixRollupRepository;
+    this.mixRollupBackfillRepository = mixRollupBackfillRepository;
+    this.mixRepository = mixRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.nbUpdates = new AtomicLong(0);
+    this.nbPendingWrites = new AtomicInteger(0);
+    this.nbWriteErrors = new AtomicLong(0);
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mix-rollup-");
+    threadFactory.setDaemon(true);
+    this.writer = Executors.newSingleThreadExecutor(threadFactory);
+
+    this.enabled = checkTables();
+    if (enabled && mixRollupBackfillRepository.count() == 0) {
+      // mixs finishing from now are added by onMixFinished()
+      Timestamp updatedMax = new Timestamp(System.currentTimeMillis());
+      write(() -> backfill(updatedMax));
+    }
+  }
+
+  private boolean checkTables() {
+    try {
+      mixRollupRepository.count();
+      mixRollupBackfillRepository.count();
+      return true;
+    } catch (Exception e) {
+      log.error("Mix rollups disabled: tables not found, please run sql/mix_rollup.sql", e);
+      return false;
+    }
+  }
+
+  /** Adds a finished (SUCCESS or FAIL) mix to its rollup. */
+  public void onMixFinished(MixTO mixTO) {
+    if (!enabled) {
+      return;
+    }
+    MixRollupTO delta =
+        new MixRollupTO(mixTO.getPoolId(), MixRollupTO.computeMixDay(mixTO.getUpdated()));
+    delta.add(mixTO);
+    write(
+        () -> {
+          MixRollupTO mixRollupTO =
+              mixRollupRepository
+                  .findByPoolIdAndMixDay(delta.getPoolId(), delta.getMixDay())
+                  .orElse(new MixRollupTO(delta.getPoolId(), delta.getMixDay()));
+          mixRollupTO.add(delta);
+          mixRollupRepository.save(mixRollupTO);
+          nbUpdates.incrementAndGet();
+        });
+  }
+
+  private void write(Runnable runnable) {
+    nbPendingWrites.incrementAndGet();
+    try {
+      writer.execute(
+          () -> {
+            try {
+              runnable.run();
+            } catch (Exception e) {
+              nbWriteErrors.incrementAndGet();
+              log.error("Unable to update mix rollups", e);
+            } finally {
+              nbPendingWrites.decrementAndGet();
+            }
+          });
+    } catch (Exception e) {
+      nbPendingWrites.decrementAndGet();
+      nbWriteErrors.incrementAndGet();
+      log.error("Unable to update mix rollups", e);
+    }
+  }
+
+  /**
+   * Rebuilds rollups from mixs updated before updatedMax, in one transaction with its completion
+   * mark. A failed backfill is retried (from scratch) on next startup.
+   */
+  private void backfill(Timestamp updatedMax) {
+    long start = System.currentTimeMillis();
+    int nbRollups =
+        transactionTemplate.execute(
+            status -> {
+              // replaces rollups written since a previous failed backfill
+              mixRollupRepository.deleteAll();
+              Collection<MixRollupTO> mixRollups = computeBackfill(updatedMax);
+              mixRollupRepository.saveAll(mixRollups);
+              mixRollupBackfillRepository.save(
+                  new MixRollupBackfillTO(updatedMax, mixRollups.size()));
+              return mixRollups.size();
+            });
+    log.info(
+        "Backfilled "
+            + nbRollups
+            + " mix rollups in "
+            + (System.currentTimeMillis() - start)
+            + "ms");
+  }
+
+  private Collection<MixRollupTO> computeBackfill(Timestamp updatedMax) {
+    List<Object[]> rows =
+        mixRepository.sumByPoolAndDayByMixStatusIn(
+            Arrays.asList(MixStatus.SUCCESS, MixStatus.FAIL), updatedMax);
+
+    Map<String, MixRollupTO> mixRollups = new LinkedHashMap<>(); // by poolId+day
+    for (Object[] row : rows) {
+      String poolId = (String) row[0];
+      LocalDate mixDay =
+          LocalDate.of(
+              ((Number) row[1]).intValue(),
+              ((Number) row[2]).intValue(),
+              ((Number) row[3]).intValue());
+      MixRollupTO mixRollupTO =
+          mixRollups.computeIfAbsent(poolId + ":" + mixDay, key -> new MixRollupTO(poolId, mixDay));
+      mixRollupTO.add(
+          (MixStatus) row[4],
+          (FailReason) row[5],
+          zeroIfNull(row[6]),
+          zeroIfNull(row[7]),
+          zeroIfNull(row[8]),
+          zeroIfNull(row[9]),
+          zeroIfNull(row[10]),
+          zeroIfNull(row[11]),
+          zeroIfNull(row[12]));
+    }
+    return mixRollups.values();
+  }
+
+  private long zeroIfNull(Object value) {
+    return value != null ? ((Number) value).longValue() : 0;
+  }
+
+  /** Rollups within [from, to], by day then by poolId. */
+  public TreeMap<LocalDate, Map<String, MixRollupTO>> getMixRollups(LocalDate from, LocalDate to) {
+    TreeMap<LocalDate, Map<String, MixRollupTO>> result = new TreeMap<>();
+    if (!enabled) {
+      return result;
+    }
+    for (MixRollupTO mixRollupTO :
+        mixRollupRepository.findByMixDayBetweenOrderByMixDayAsc(from, to)) {
+      result
+          .computeIfAbsent(mixRollupTO.getMixDay(), day -> new TreeMap<>())
+          .put(mixRollupTO.getPoolId(), mixRollupTO);
+    }
+    return result;
+  }
+
+  /** Rollups within [from, to], summed by poolId. */
+  public Map<String, MixRollupTO> getMixRollupsByPool(LocalDate from, LocalDate to) {
+    Map<String, MixRollupTO> result = new TreeMap<>();
+    if (!enabled) {
+      return result;
+    }
+    for (MixRollupTO mixRollupTO :
+        mixRollupRepository.findByMixDayBetweenOrderByMixDayAsc(from, to)) {
+      result
+          .computeIfAbsent(mixRollupTO.getPoolId(), poolId -> new MixRollupTO(poolId, null))
+          .add(mixRollupTO);
+    }
+    return result;
+  }
+
+  @PreDestroy
+  public void stop() {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (nbPendingWrites.get() > 0) {
+      log.error("Unable to update mix rollups for " + nbPendingWrites.get() + " mixs on shutdown");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long getNbUpdates() {
+    return nbUpdates.get();
+  }
+
+  public int getNbPendingWrites() {
+    return nbPendingWrites.get();
+  }
+
+  public long getNbWriteErrors() {
+    return nbWriteErrors.get();
+  }
+
+  public void __reset() throws Exception {
+    // for tests only
+    writer
+        .submit(
+            () -> {
+              mixRollupRepository.deleteAll();
+              mixRollupBackfillRepository.deleteAll();
+            })
+        .get();
+  }
+}
@@ -25,8 +25,8 @@ import com.samourai.whirlpool.server.exceptions.BroadcastException;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.exceptions.MixException;
 import com.samourai.whirlpool.server.exceptions.QueueInputException;
-import com.samourai.whirlpool.server.services.rpc.RpcClientService;
 import com.samourai.whirlpool.server.utils.MessageListener;
+import com.samourai.whirlpool.server.utils.MixTxVerifier;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
@@ -60,7 +60,6 @@ public class MixService {
   private CryptoService cryptoService;
   private BlameService blameService;
   private DbService dbService;
-  private RpcClientService rpcClientService;
   private MixLimitsService mixLimitsService;
   private Bech32UtilGeneric bech32Util;
   private WhirlpoolServerConfig whirlpoolServerConfig;
@@ -68,8 +67,14 @@ public class MixService {
   private ExportService exportService;
   private TaskService taskService;
   private TxUtil txUtil;
+  private MixKeyService mixKeyService;
+  private BroadcastService broadcastService;
+  private SignatureVerificationService signatureVerificationService;
+  private MixStatsService mixStatsService;
+  private MixRollupService mixRollupService;
 
   private Map<String, Mix> currentMixs;
+  private Map<String, Mix> currentMixsByInputsHash;
 
   private static final int GRACE_TIME_CONFIRMING_INPUTS = 10000;
 
@@ -78,7 +83,6 @@ public class MixService {
       CryptoService cryptoService,
       BlameService blameService,
       DbService dbService,
-      RpcClientService rpcClientService,
       WebSocketService webSocketService,
       Bech32UtilGeneric bech32Util,
       WhirlpoolServerConfig whirlpoolServerConfig,
@@ -87,11 +91,15 @@ public class MixService {
       ExportService exportService,
       TaskService taskService,
       TxUtil txUtil,
-      WebSocketSessionService webSocketSessionService) {
+      WebSocketSessionService webSocketSessionService,
+      MixKeyService mixKeyService,
+      BroadcastService broadcastService,
+      SignatureVerificationService signatureVerificationService,
+      MixStatsService mixStatsService,
+      MixRollupService mixRollupService) {
     this.cryptoService = cryptoService;
     this.blameService = blameService;
     this.dbService = dbService;
-    this.rpcClientService = rpcClientService;
     this.webSocketService = webSocketService;
     this.bech32Util = bech32Util;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
@@ -101,6 +109,11 @@ public class MixService {
     this.exportService = exportService;
     this.taskService = taskService;
     this.txUtil = txUtil;
+    this.mixKeyService = mixKeyService;
+    this.broadcastService = broadcastService;
+    this.signatureVerificationService = signatureVerificationService;
+    this.mixStatsService = mixStatsService;
+    this.mixRollupService = mixRollupService;
     this.currentMixs = new ConcurrentHashMap<>();
 
     this.__reset();
@@ -149,11 +162,7 @@ public class MixService {
     // verify max-inputs-same-hash
     String inputHash = registeredInput.getOutPoint().getHash();
     int maxInputsSameHash = whirlpoolServerConfig.getRegisterInput().getMaxInputsSameHash();
-    long countInputsSameHash =
-        mix.getInputs()
-            .parallelStream()
-            .filter(input -> input.getRegisteredInput().getOutPoint().getHash().equals(inputHash))
-            .count();
+    int countInputsSameHash = mix.getNbInputsByHash(inputHash);
     if ((countInputsSameHash + 1) > maxInputsSameHash) {
       if (log.isDebugEnabled()) {
         log.debug("already " + countInputsSameHash + " inputs with same hash: " + inputHash);
@@ -170,52 +179,58 @@ public class MixService {
     }
   }
 
-  public synchronized byte[] confirmInput(String mixId, String username, byte[] blindedBordereau)
+  public byte[] confirmInput(String mixId, String username, byte[] blindedBordereau)
       throws IllegalInputException, MixException, QueueInputException {
     Mix mix = getMix(mixId);
+    mix.getLock().lock();
+    try {
+      // find confirming input
+      RegisteredInput registeredInput =
+          mix.removeConfirmingInputByUsername(username)
+              .orElseThrow(
+                  () ->
+                      new IllegalInputException(
+                          "Confirming input not found: username=" + username));
+
+      // check mix didn't start yet
+      if (!MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())) {
+        // confirming input too late => enqueue in pool
+        String poolId = mix.getPool().getPoolId();
+        throw new QueueInputException("Mix already started", registeredInput, poolId);
+      }
 
-    // find confirming input
-    RegisteredInput registeredInput =
-        mix.removeConfirmingInputByUsername(username)
-            .orElseThrow(
-                () ->
-                    new IllegalInputException("Confirming input not found: username=" + username));
-
-    // check mix didn't start yet
-    if (!MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())) {
-      // confirming input too late => enqueue in pool
-      String poolId = mix.getPool().getPoolId();
-      throw new QueueInputException("Mix already started", registeredInput, poolId);
-    }
-
-    ConfirmedInput confirmedInput = new ConfirmedInput(registeredInput, blindedBordereau);
+      ConfirmedInput confirmedInput = new ConfirmedInput(registeredInput, blindedBordereau);
 
-    // last input validations
-    validateOnConfirmInput(mix, confirmedInput);
+      // last input validations
+      validateOnConfirmInput(mix, confirmedInput);
 
-    // sign bordereau to reply
-    byte[] signedBordereau = cryptoService.signBlindedOutput(blindedBordereau, mix.getKeyPair());
+      // sign bordereau to reply
+      byte[] signedBordereau = cryptoService.signBlindedOutput(blindedBordereau, mix.getKeyPair());
 
-    // add to mix inputs
-    mix.registerInput(confirmedInput);
-    log.info(
-        " • registered "
-            + (registeredInput.isLiquidity() ? "liquidity" : "mustMix")
-            + ": "
-            + registeredInput.getOutPoint());
-    logMixStatus(mix);
+      // add to mix inputs
+      mix.registerInput(confirmedInput);
+      log.info(
+          " • registered "
+              + (registeredInput.isLiquidity() ? "liquidity" : "mustMix")
+              + ": "
+              + registeredInput.getOutPoint());
+      logMixStatus(mix);
 
-    // reply confirmInputResponse with signedBordereau
-    String signedBordereau64 = WhirlpoolProtocol.encodeBytes(signedBordereau);
-    ConfirmInputResponse confirmInputResponse = new ConfirmInputResponse(mixId, signedBordereau64);
-    webSocketService.sendPrivate(username, confirmInputResponse);
+      // reply confirmInputResponse with signedBordereau
+      String signedBordereau64 = WhirlpoolProtocol.encodeBytes(signedBordereau);
+      ConfirmInputResponse confirmInputResponse =
+          new ConfirmInputResponse(mixId, signedBordereau64);
+      webSocketService.sendPrivate(username, confirmInputResponse);
 
-    // check mix limits
-    mixLimitsService.onInputConfirmed(mix);
+      // check mix limits
+      mixLimitsService.onInputConfirmed(mix);
 
-    // check mix ready
-    checkConfirmInputReady(mix);
-    return signedBordereau;
+      // check mix ready
+      checkConfirmInputReady(mix);
+      return signedBordereau;
+    } finally {
+      mix.getLock().unlock();
+    }
   }
 
   public void checkConfirmInputReady(Mix mix) {
@@ -223,6 +238,15 @@ public class MixService {
   }
 
   private void checkConfirmInputReady(Mix mix, boolean allowGracePeriod) {
+    mix.getLock().lock();
+    try {
+      doCheckConfirmInputReady(mix, allowGracePeriod);
+    } finally {
+      mix.getLock().unlock();
+    }
+  }
+
+  private void doCheckConfirmInputReady(Mix mix, boolean allowGracePeriod) {
     if (!whirlpoolServerConfig.isMixEnabled()) {
       // mix disabled by server configuration
       return;
@@ -300,27 +324,33 @@ public class MixService {
     return true;
   }
 
-  public synchronized void registerOutput(
+  public void registerOutput(
       String inputsHash, byte[] unblindedSignedBordereau, String receiveAddress) throws Exception {
-    Mix mix = getMixByInputsHash(inputsHash, MixStatus.REGISTER_OUTPUT);
+    Mix mix = getMixByInputsHash(inputsHash);
+    mix.getLock().lock();
+    try {
+      checkMixStatus(mix, MixStatus.REGISTER_OUTPUT);
 
-    // verify unblindedSignedBordereau
-    if (!cryptoService.verifyUnblindedSignedBordereau(
-        receiveAddress, unblindedSignedBordereau, mix.getKeyPair())) {
-      throw new IllegalInputException("Invalid unblindedSignedBordereau");
-    }
+      // verify unblindedSignedBordereau
+      if (!cryptoService.verifyUnblindedSignedBordereau(
+          receiveAddress, unblindedSignedBordereau, mix.getKeyPair())) {
+        throw new IllegalInputException("Invalid unblindedSignedBordereau");
+      }
 
-    // verify no output address reuse with inputs
-    if (mix.getInputByAddress(receiveAddress).isPresent()) {
-      throw new IllegalInputException("receiveAddress already registered as input");
-    }
+      // verify no output address reuse with inputs
+      if (mix.getInputByAddress(receiveAddress).isPresent()) {
+        throw new IllegalInputException("receiveAddress already registered as input");
+      }
 
-    log.info(" • registered output: " + receiveAddress);
-    mix.registerOutput(receiveAddress);
+      log.info(" • registered output: " + receiveAddress);
+      mix.registerOutput(receiveAddress);
 
-    if (isRegisterOutputReady(mix)) {
-      String mixId = mix.getMixId();
-      changeMixStatus(mixId, MixStatus.SIGNING);
+      if (isRegisterOutputReady(mix)) {
+        String mixId = mix.getMixId();
+        changeMixStatus(mixId, MixStatus.SIGNING);
+      }
+    } finally {
+      mix.getLock().unlock();
     }
   }
 
@@ -355,7 +385,7 @@ public class MixService {
     }
   }
 
-  protected synchronized boolean isRegisterOutputReady(Mix mix) {
+  protected boolean isRegisterOutputReady(Mix mix) {
     if (!isRegisterInputReady(mix)) {
       // TODO recheck inputs balances and update/ban/reopen REGISTER_INPUT or fail if input spent in
       // the meantime
@@ -364,90 +394,136 @@ public class MixService {
     return (mix.getReceiveAddresses().size() == mix.getNbInputs());
   }
 
-  public synchronized void revealOutput(String mixId, String username, String receiveAddress)
+  public void revealOutput(String mixId, String username, String receiveAddress)
       throws MixException, IllegalInputException {
-    Mix mix = getMix(mixId, MixStatus.REVEAL_OUTPUT);
+    Mix mix = getMix(mixId);
+    mix.getLock().lock();
+    try {
+      checkMixStatus(mix, MixStatus.REVEAL_OUTPUT);
 
-    // verify this username didn't already reveal his output
-    if (mix.hasRevealedOutputUsername(username)) {
-      log.warn("Rejecting already revealed username: " + username);
-      throw new IllegalInputException("Output already revealed");
-    }
-    // verify this receiveAddress was not already revealed (someone could try to register 2 inputs
-    // and reveal same receiveAddress to block mix)
-    if (mix.hasRevealedReceiveAddress(receiveAddress)) {
-      log.warn("Rejecting already revealed receiveAddress: " + receiveAddress);
-      throw new IllegalInputException("ReceiveAddress already revealed");
-    }
+      // verify this username didn't already reveal his output
+      if (mix.hasRevealedOutputUsername(username)) {
+        log.warn("Rejecting already revealed username: " + username);
+        throw new IllegalInputException("Output already revealed");
+      }
+      // verify this receiveAddress was not already revealed (someone could try to register 2
+      // inputs and reveal same receiveAddress to block mix)
+      if (mix.hasRevealedReceiveAddress(receiveAddress)) {
+        log.warn("Rejecting already revealed receiveAddress: " + receiveAddress);
+        throw new IllegalInputException("ReceiveAddress already revealed");
+      }
 
-    // verify an output was registered with this receiveAddress
-    if (!mix.getReceiveAddresses().contains(receiveAddress)) {
-      throw new IllegalInputException("Invalid receiveAddress");
-    }
+      // verify an output was registered with this receiveAddress
+      if (!mix.getReceiveAddresses().contains(receiveAddress)) {
+        throw new IllegalInputException("Invalid receiveAddress");
+      }
 
-    mix.addRevealedOutput(username, receiveAddress);
-    log.info(" • revealed output: username=" + username);
+      mix.addRevealedOutput(username, receiveAddress);
+      log.info(" • revealed output: username=" + username);
 
-    if (isRevealOutputReady(mix)) {
-      blameForRevealOutputAndResetMix(mix);
+      if (isRevealOutputReady(mix)) {
+        blameForRevealOutputAndResetMix(mix);
+      }
+    } finally {
+      mix.getLock().unlock();
     }
   }
 
-  protected synchronized boolean isRevealOutputReady(Mix mix) {
+  protected boolean isRevealOutputReady(Mix mix) {
     // don't wait for the last one who didn't sign
     return (mix.getNbRevealedOutputs() == mix.getNbInputs() - 1);
   }
 
-  public synchronized void registerSignature(String mixId, String username, String[] witness60)
+  public void registerSignature(String mixId, String username, String[] witness60)
       throws Exception {
-    Mix mix = getMix(mixId, MixStatus.SIGNING);
-
-    // check user
-    ConfirmedInput confirmedInput =
-        mix.getInputByUsername(username)
-            .orElseThrow(
-                () ->
-                    new IllegalInputException("Input not found for signing username=" + username));
-    if (mix.getSignedByUsername(username)) {
-      throw new IllegalInputException("User already signed, username=" + username);
-    }
-    TxOutPoint txOutPoint = confirmedInput.getRegisteredInput().getOutPoint();
-
-    // sign
-    Transaction tx = mix.getTx();
-    Integer inputIndex = txUtil.findInputIndex(tx, txOutPoint.getHash(), txOutPoint.getIndex());
+    Mix mix = getMix(mixId);
+    TxOutPoint txOutPoint;
+    Transaction tx;
+    MixTxVerifier txVerifier;
+    Integer inputIndex;
+    mix.getLock().lock();
+    try {
+      checkMixStatus(mix, MixStatus.SIGNING);
+
+      // check user
+      ConfirmedInput confirmedInput =
+          mix.getInputByUsername(username)
+              .orElseThrow(
+                  () ->
+                      new IllegalInputException(
+                          "Input not found for signing username=" + username));
+      checkNotSigned(mix, username);
+      txOutPoint = confirmedInput.getRegisteredInput().getOutPoint();
+      tx = mix.getTx();
+      txVerifier = mix.getTxVerifier();
+      inputIndex = txUtil.findInputIndex(tx, txOutPoint.getHash(), txOutPoint.getIndex());
+    } finally {
+      mix.getLock().unlock();
+    }
+
+    // verify out of mix lock
     TransactionWitness witness = Utils.witnessUnserialize64(witness60);
-    tx.setWitness(inputIndex, witness);
-
-    // verify
     try {
-      txUtil.verifySignInput(tx, inputIndex, txOutPoint.getValue(), txOutPoint.getScriptBytes());
+      signatureVerificationService.verifySignInput(txVerifier, inputIndex, witness, txOutPoint);
     } catch (Exception e) {
       log.error("Invalid signature", e);
       throw new IllegalInputException("Invalid signature");
     }
 
-    // signature success
-    mix.setTx(tx);
-    mix.setSignedByUsername(username);
-    log.info(" • registered signature: username=" + username);
+    mix.getLock().lock();
+    try {
+      // mix may have changed while verifying
+      checkMixStatus(mix, MixStatus.SIGNING);
+      checkNotSigned(mix, username);
+
+      // signature success
+      tx.setWitness(inputIndex, witness);
+      mix.setSignedByUsername(username);
+      log.info(" • registered signature: username=" + username);
+
+      if (isRegisterSignaturesReady(mix)) {
+        // check final transaction
+        tx.verify();
+
+        log.info("Tx to broadcast: \n" + tx + "\nRaw: " + Utils.getRawTx(tx));
+        mix.setBroadcasting(true);
+        mixLimitsService.onBroadcasting(mix);
+        broadcastService
+            .broadcast(tx)
+            .whenComplete((r, e) -> onBroadcastResult(mix, (BroadcastException) e));
+      }
+    } finally {
+      mix.getLock().unlock();
+    }
+  }
 
-    if (isRegisterSignaturesReady(mix)) {
-      // check final transaction
-      tx.verify();
+  private void checkNotSigned(Mix mix, String username) throws IllegalInputException {
+    if (mix.getSignedByUsername(username)) {
+      throw new IllegalInputException("User already signed, username=" + username);
+    }
+  }
 
-      log.info("Tx to broadcast: \n" + tx + "\nRaw: " + Utils.getRawTx(tx));
-      try {
-        rpcClientService.broadcastTransaction(tx);
+  private void onBroadcastResult(Mix mix, BroadcastException e) {
+    mix.getLock().lock();
+    try {
+      if (!MixStatus.SIGNING.equals(mix.getMixStatus())) {
+        log.error(
+            "Ignoring broadcast result: mixStatus=" + mix.getMixStatus(),
+            new IllegalStateException());
+        return;
+      }
+      if (e == null) {
         goSuccess(mix);
-      } catch (BroadcastException e) {
+      } else {
         log.error("Unable to broadcast tx: ", e);
         goFail(mix, FailReason.FAIL_BROADCAST, e.getFailInfo());
       }
+    } finally {
+      mix.getLock().unlock();
     }
   }
 
-  protected synchronized boolean isRegisterSignaturesReady(Mix mix) {
+  protected boolean isRegisterSignaturesReady(Mix mix) {
     if (!isRegisterOutputReady(mix)) {
       return false;
     }
@@ -459,6 +535,21 @@ public class MixService {
     Mix mix = null;
     try {
       mix = getMix(mixId);
+    } catch (MixException e) {
+      log.error("Unexpected mix error", e);
+      return;
+    }
+    mix.getLock().lock();
+    try {
+      doChangeMixStatus(mix, mixStatus);
+    } finally {
+      mix.getLock().unlock();
+    }
+  }
+
+  private void doChangeMixStatus(Mix mix, MixStatus mixStatus) {
+    String mixId = mix.getMixId();
+    try {
       if (mixStatus.equals(mix.getMixStatus())) {
         // just in case...
         log.error(
@@ -471,6 +562,7 @@ public class MixService {
         try {
           Transaction tx = computeTransaction(mix);
           mix.setTx(tx);
+          mix.setTxVerifier(new MixTxVerifier(tx));
 
           log.info("Txid: " + tx.getHashAsString());
           if (log.isDebugEnabled()) {
@@ -484,12 +576,17 @@ public class MixService {
 
       // update mix status
       mix.setMixStatusAndTime(mixStatus);
+      indexInputsHash(mix);
       try {
         dbService.saveMix(mix);
       } catch (Exception e) {
         log.error("", e);
       }
       mixLimitsService.onMixStatusChange(mix);
+      if (mixStatus == MixStatus.SUCCESS || mixStatus == MixStatus.FAIL) {
+        // final MixTO was computed by saveMix()
+        mix.getMixTO().ifPresent(mixTO -> mixRollupService.onMixFinished(mixTO));
+      }
 
       // notify users (ConfirmInputResponse was already sent when user joined mix)
       if (mixStatus != MixStatus.CONFIRM_INPUT) {
@@ -505,6 +602,7 @@ public class MixService {
         } catch (Exception e) {
           log.error("", e);
         }
+        mixStatsService.onMixSuccess(mix);
 
         __nextMix(mix.getPool());
       } else if (mixStatus == MixStatus.FAIL) {
@@ -512,9 +610,7 @@ public class MixService {
       }
     } catch (MixException e) {
       log.error("Unexpected mix error", e);
-      if (mix != null) {
-        __nextMix(mix.getPool());
-      }
+      __nextMix(mix.getPool());
     }
   }
 
@@ -532,7 +628,7 @@ public class MixService {
     MixStatusNotification mixStatusNotification = null;
     switch (mix.getMixStatus()) {
       case REGISTER_OUTPUT:
-        String inputsHash = mix.computeInputsHash();
+        String inputsHash = mix.getInputsHash();
         mixStatusNotification = new RegisterOutputMixStatusNotification(mixId, inputsHash);
         break;
       case REVEAL_OUTPUT:
@@ -556,46 +652,38 @@ public class MixService {
   }
 
   private Mix getMix(String mixId) throws MixException {
-    return getMix(mixId, null);
-  }
-
-  private Mix getMix(String mixId, MixStatus mixStatus) throws MixException {
     Mix mix = currentMixs.get(mixId);
     if (mix == null) {
       throw new MixException("Mix not found");
     }
-    if (mixStatus != null && !mixStatus.equals(mix.getMixStatus())) {
+    return mix;
+  }
+
+  // must be called with mix lock held
+  private void checkMixStatus(Mix mix, MixStatus mixStatus) throws MixException {
+    if (!mixStatus.equals(mix.getMixStatus())) {
       throw new MixException(
           "Operation not permitted for current mix status: expected="
               + mixStatus
               + ", actual="
               + mix.getMixStatus());
     }
-    return mix;
   }
 
-  private Mix getMixByInputsHash(String inputsHash, MixStatus mixStatus)
-      throws IllegalInputException, MixException {
-    List<Mix> mixsFound =
-        currentMixs
-            .values()
-            .parallelStream()
-            .filter(mix -> mix.computeInputsHash().equals(inputsHash))
-            .collect(Collectors.toList());
-    if (mixsFound.size() != 1) {
+  private Mix getMixByInputsHash(String inputsHash) throws IllegalInputException {
+    Mix mix = currentMixsByInputsHash.get(inputsHash);
+    if (mix == null) {
       throw new IllegalInputException("REGISTER_OUTPUT too late, mix is over");
     }
-    Mix mix = mixsFound.get(0);
-    if (mixStatus != null && !mixStatus.equals(mix.getMixStatus())) {
-      throw new MixException(
-          "Operation not permitted for current mix status: expected="
-              + mixStatus
-              + ", actual="
-              + mix.getMixStatus());
-    }
     return mix;
   }
 
+  private void indexInputsHash(Mix mix) {
+    if (mix.getInputsHash() != null) {
+      currentMixsByInputsHash.put(mix.getInputsHash(), mix);
+    }
+  }
+
   private Transaction computeTransaction(Mix mix) throws Exception {
     NetworkParameters params = cryptoService.getNetworkParameters();
     Transaction tx = new Transaction(params);
@@ -647,20 +735,30 @@ public class MixService {
   }
 
   public void onTimeoutRegisterOutput(Mix mix) {
-    if (mix.getReceiveAddresses().isEmpty()) {
-      // no output registered at all => no legit user suffered, skip REVEAL_OUTPUT and immediately
-      // restart round
-      goFail(mix, FailReason.FAIL_REGISTER_OUTPUTS, null);
-    } else {
-      // we have legit output registered => go REVEAL_OUTPUT to blame the others
-      log.info(
-          " • REGISTER_OUTPUT time over (mix failed, blaming users who didn't register output...)");
-      changeMixStatus(mix.getMixId(), MixStatus.REVEAL_OUTPUT);
+    mix.getLock().lock();
+    try {
+      if (mix.getReceiveAddresses().isEmpty()) {
+        // no output registered at all => no legit user suffered, skip REVEAL_OUTPUT and
+        // immediately restart round
+        goFail(mix, FailReason.FAIL_REGISTER_OUTPUTS, null);
+      } else {
+        // we have legit output registered => go REVEAL_OUTPUT to blame the others
+        log.info(
+            " • REGISTER_OUTPUT time over (mix failed, blaming users who didn't register output...)");
+        changeMixStatus(mix.getMixId(), MixStatus.REVEAL_OUTPUT);
+      }
+    } finally {
+      mix.getLock().unlock();
     }
   }
 
   public void onTimeoutRevealOutput(Mix mix) {
-    blameForRevealOutputAndResetMix(mix);
+    mix.getLock().lock();
+    try {
+      blameForRevealOutputAndResetMix(mix);
+    } finally {
+      mix.getLock().unlock();
+    }
   }
 
   private void blameForRevealOutputAndResetMix(Mix mix) {
@@ -691,82 +789,106 @@ public class MixService {
   }
 
   public void goFail(Mix mix, FailReason failReason, String failInfo) {
-    mix.setFailReason(failReason);
-    mix.setFailInfo(failInfo);
-    changeMixStatus(mix.getMixId(), MixStatus.FAIL);
+    mix.getLock().lock();
+    try {
+      mix.setFailReason(failReason);
+      mix.setFailInfo(failInfo);
+      changeMixStatus(mix.getMixId(), MixStatus.FAIL);
 
-    exportService.exportMix(mix);
+      exportService.exportMix(mix);
+    } finally {
+      mix.getLock().unlock();
+    }
   }
 
   public void goSuccess(Mix mix) {
-    changeMixStatus(mix.getMixId(), MixStatus.SUCCESS);
+    mix.getLock().lock();
+    try {
+      changeMixStatus(mix.getMixId(), MixStatus.SUCCESS);
 
-    exportService.exportMix(mix);
+      exportService.exportMix(mix);
+    } finally {
+      mix.getLock().unlock();
+    }
   }
 
-  private synchronized void onClientDisconnect(String username) {
+  private void onClientDisconnect(String username) {
+    // lock one mix at a time
     for (Mix mix : getCurrentMixs()) {
-      String mixId = mix.getMixId();
+      mix.getLock().lock();
+      try {
+        onClientDisconnect(mix, username);
+      } finally {
+        mix.getLock().unlock();
+      }
+    }
+  }
 
-      // remove from confirming inputs
-      mix.removeConfirmingInputByUsername(username)
-          .ifPresent(
-              confirmInput ->
-                  log.info(
-                      " • ["
-                          + mixId
-                          + "] unregistered from confirming inputs, username="
-                          + username));
-
-      // remove from confirmed inputs
-      List<ConfirmedInput> confirmedInputs =
-          mix.getInputs()
-              .parallelStream()
-              .filter(
-                  confirmedInput ->
-                      confirmedInput.getRegisteredInput().getUsername().equals(username))
-              .collect(Collectors.toList());
-      if (!confirmedInputs.isEmpty()) {
-        boolean mixAlreadyStarted =
-            !MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())
-                && !MixStatus.FAIL.equals(mix.getMixStatus())
-                && !MixStatus.SUCCESS.equals(mix.getMixStatus());
-
-        confirmedInputs.forEach(
-            confirmedInput -> {
-              mix.unregisterInput(confirmedInput);
-
-              if (mixAlreadyStarted) {
-                log.warn(
-                    " • ["
-                        + mixId
-                        + "] unregistered "
-                        + (confirmedInput.getRegisteredInput().isLiquidity()
-                            ? "liquidity"
-                            : "mustMix")
-                        + " from registered inputs (MIX ALREADY STARTED), username="
-                        + username);
-
-                // blame
-                blameService.blame(confirmedInput, BlameReason.DISCONNECT, mixId);
-              } else {
+  private void onClientDisconnect(Mix mix, String username) {
+    String mixId = mix.getMixId();
+    if (mix.isBroadcasting()) {
+      // tx is fully signed, broadcast result will end the mix
+      return;
+    }
+
+    // remove from confirming inputs
+    mix.removeConfirmingInputByUsername(username)
+        .ifPresent(
+            confirmInput ->
                 log.info(
                     " • ["
                         + mixId
-                        + "] unregistered "
-                        + (confirmedInput.getRegisteredInput().isLiquidity()
-                            ? "liquidity"
-                            : "mustMix")
-                        + " from registered inputs (mix not started yet), username="
-                        + username);
-              }
-            });
+                        + "] unregistered from confirming inputs, username="
+                        + username));
 
-        if (mixAlreadyStarted) {
-          // restart mix
-          String outpointKeysToBlame = computeOutpointKeysToBlame(confirmedInputs);
-          goFail(mix, FailReason.DISCONNECT, outpointKeysToBlame);
-        }
+    // remove from confirmed inputs
+    List<ConfirmedInput> confirmedInputs =
+        mix.getInputs()
+            .parallelStream()
+            .filter(
+                confirmedInput ->
+                    confirmedInput.getRegisteredInput().getUsername().equals(username))
+            .collect(Collectors.toList());
+    if (!confirmedInputs.isEmpty()) {
+      boolean mixAlreadyStarted =
+          !MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())
+              && !MixStatus.FAIL.equals(mix.getMixStatus())
+              && !MixStatus.SUCCESS.equals(mix.getMixStatus());
+
+      confirmedInputs.forEach(
+          confirmedInput -> {
+            mix.unregisterInput(confirmedInput);
+
+            if (mixAlreadyStarted) {
+              log.warn(
+                  " • ["
+                      + mixId
+                      + "] unregistered "
+                      + (confirmedInput.getRegisteredInput().isLiquidity()
+                          ? "liquidity"
+                          : "mustMix")
+                      + " from registered inputs (MIX ALREADY STARTED), username="
+                      + username);
+
+              // blame
+              blameService.blame(confirmedInput, BlameReason.DISCONNECT, mixId);
+            } else {
+              log.info(
+                  " • ["
+                      + mixId
+                      + "] unregistered "
+                      + (confirmedInput.getRegisteredInput().isLiquidity()
+                          ? "liquidity"
+                          : "mustMix")
+                      + " from registered inputs (mix not started yet), username="
+                      + username);
+            }
+          });
+
+      if (mixAlreadyStarted) {
+        // restart mix
+        String outpointKeysToBlame = computeOutpointKeysToBlame(confirmedInputs);
+        goFail(mix, FailReason.DISCONNECT, outpointKeysToBlame);
       }
     }
   }
@@ -777,6 +899,7 @@ public class MixService {
 
   public void __reset() {
     currentMixs = new ConcurrentHashMap<>();
+    currentMixsByInputsHash = new ConcurrentHashMap<>();
     mixLimitsService.__reset();
     poolService
         .getPools()
@@ -788,29 +911,39 @@ public class MixService {
 
   public Mix __nextMix(Pool pool) {
     String mixId = Utils.generateUniqueString();
-    Mix mix = new Mix(mixId, pool, cryptoService);
+    Mix mix = new Mix(mixId, pool, mixKeyService.nextMixKey(pool.getPoolId()));
     startMix(mix);
     return mix;
   }
 
-  private synchronized void startMix(Mix mix) {
+  private void startMix(Mix mix) {
     Pool pool = mix.getPool();
-    Mix currentMix = pool.getCurrentMix();
-    if (currentMix != null) {
-      mixLimitsService.unmanage(mix);
-      currentMixs.remove(currentMix.getMixId());
-      // TODO disconnect all clients (except liquidities?)
-    }
+    synchronized (pool) {
+      Mix currentMix = pool.getCurrentMix();
+      if (currentMix != null) {
+        mixLimitsService.unmanage(currentMix);
+        currentMixs.remove(currentMix.getMixId());
+        if (currentMix.getInputsHash() != null) {
+          currentMixsByInputsHash.remove(currentMix.getInputsHash());
+        }
+        // TODO disconnect all clients (except liquidities?)
+      }
 
-    String mixId = mix.getMixId();
-    currentMixs.put(mixId, mix);
-    pool.setCurrentMix(mix);
+      String mixId = mix.getMixId();
+      currentMixs.put(mixId, mix);
+      pool.setCurrentMix(mix);
 
-    log.info("[NEW MIX " + mix.getMixId() + "]");
-    logMixStatus(mix);
+      log.info("[NEW MIX " + mix.getMixId() + "]");
+      logMixStatus(mix);
+
+      // add queued mustMixs if any
+      poolService.inviteToMixAll(mix, false);
+    }
+  }
 
-    // add queued mustMixs if any
-    poolService.inviteToMixAll(mix, false);
+  public void __setMixStatusAndTime(Mix mix, MixStatus mixStatus) {
+    mix.setMixStatusAndTime(mixStatus);
+    indexInputsHash(mix);
   }
 
   public MixLimitsService __getMixLimitsService() {
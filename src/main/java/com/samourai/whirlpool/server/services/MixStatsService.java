@@ -0,0 +1,86 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.MixStats;
+import com.samourai.whirlpool.server.persistence.repositories.MixRepository;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Statistics of successful mixs, by pool. Aggregated from database once at startup, then updated in
+ * memory on each mix success. Daily stats are served by {@link MixRollupService}.
+ */
+@Service
+public class MixStatsService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private MixRepository mixRepository;
+
+  // guarded by this
+  private MixStats mixStats;
+  private Map<String, MixStats> mixStatsByPool;
+
+  @Autowired
+  public MixStatsService(MixRepository mixRepository) {
+    this.mixRepository = mixRepository;
+    load();
+  }
+
+  private synchronized void load() {
+    long start = System.currentTimeMillis();
+    this.mixStats = MixStats.EMPTY;
+    this.mixStatsByPool = new HashMap<>();
+
+    List<Object[]> rows = mixRepository.sumByPoolByMixStatus(MixStatus.SUCCESS);
+    for (Object[] row : rows) {
+      String poolId = (String) row[0];
+      add(poolId, new MixStats(zeroIfNull(row[1]), zeroIfNull(row[2]), zeroIfNull(row[3])));
+    }
+    log.info(
+        "Loaded mix stats in "
+            + (System.currentTimeMillis() - start)
+            + "ms: "
+            + mixStats.getNbMixs()
+            + " mixs, "
+            + rows.size()
+            + " pools");
+  }
+
+  private long zeroIfNull(Object value) {
+    return value != null ? ((Number) value).longValue() : 0;
+  }
+
+  public void onMixSuccess(Mix mix) {
+    long sumMustMix = mix.getNbInputsMustMix() * mix.getPool().getDenomination();
+    MixStats successStats = new MixStats(1, sumMustMix, mix.computeAmountOut());
+    synchronized (this) {
+      add(mix.getPool().getPoolId(), successStats);
+    }
+  }
+
+  private void add(String poolId, MixStats stats) {
+    mixStats = mixStats.plus(stats);
+    mixStatsByPool.merge(poolId, stats, MixStats::plus);
+  }
+
+  public synchronized MixStats getMixStats() {
+    return mixStats;
+  }
+
+  public synchronized Map<String, MixStats> getMixStatsByPool() {
+    return new TreeMap<>(mixStatsByPool);
+  }
+
+  public void __reset() {
+    // for tests only
+    load();
+  }
+}
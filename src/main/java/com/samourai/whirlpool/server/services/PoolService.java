@@ -10,7 +10,9 @@ import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.utils.MessageListener;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -117,7 +119,7 @@ public class PoolService {
     return poolStatusNotification;
   }
 
-  public synchronized void registerInput(
+  public void registerInput(
       String poolId,
       String username,
       boolean liquidity,
@@ -126,6 +128,19 @@ public class PoolService {
       String ip)
       throws IllegalInputException {
     Pool pool = getPool(poolId);
+    synchronized (pool) {
+      registerInput(pool, username, liquidity, txOutPoint, inviteIfPossible, ip);
+    }
+  }
+
+  private void registerInput(
+      Pool pool,
+      String username,
+      boolean liquidity,
+      TxOutPoint txOutPoint,
+      boolean inviteIfPossible,
+      String ip)
+      throws IllegalInputException {
 
     // verify balance
     long inputBalance = txOutPoint.getValue();
@@ -184,6 +199,14 @@ public class PoolService {
   }
 
   private void inviteToMix(Mix mix, RegisteredInput registeredInput) {
+    registerConfirmingInput(mix, registeredInput);
+
+    // send invite to mix
+    webSocketService.sendPrivate(
+        registeredInput.getUsername(), computeConfirmInputMixStatusNotification(mix));
+  }
+
+  private void registerConfirmingInput(Mix mix, RegisteredInput registeredInput) {
     log.info(
         " • ["
             + mix.getMixId()
@@ -193,35 +216,44 @@ public class PoolService {
             + registeredInput.getOutPoint());
 
     // register confirming input
-    String publicKey64 = WhirlpoolProtocol.encodeBytes(mix.getPublicKey());
-    ConfirmInputMixStatusNotification confirmInputMixStatusNotification =
-        new ConfirmInputMixStatusNotification(mix.getMixId(), publicKey64);
     mix.registerConfirmingInput(registeredInput);
+  }
 
-    // send invite to mix
-    webSocketService.sendPrivate(registeredInput.getUsername(), confirmInputMixStatusNotification);
+  private ConfirmInputMixStatusNotification computeConfirmInputMixStatusNotification(Mix mix) {
+    String publicKey64 = WhirlpoolProtocol.encodeBytes(mix.getPublicKey());
+    return new ConfirmInputMixStatusNotification(mix.getMixId(), publicKey64);
   }
 
   public int inviteToMixAll(Mix mix, boolean liquidity) {
     return inviteToMix(mix, liquidity, null);
   }
 
-  public synchronized int inviteToMix(Mix mix, boolean liquidity, Integer maxInvites) {
+  public int inviteToMix(Mix mix, boolean liquidity, Integer maxInvites) {
+    synchronized (mix.getPool()) {
+      return doInviteToMix(mix, liquidity, maxInvites);
+    }
+  }
+
+  private int doInviteToMix(Mix mix, boolean liquidity, Integer maxInvites) {
     InputPool queue =
         (liquidity ? mix.getPool().getLiquidityQueue() : mix.getPool().getMustMixQueue());
-    Optional<RegisteredInput> registeredInput;
-    int nbInvited = 0;
-    while ((registeredInput = queue.removeRandom()).isPresent()) {
-      // stop when enough invites
-      if (maxInvites != null && nbInvited >= maxInvites) {
-        return nbInvited;
+    List<String> usernames = new ArrayList<>();
+    while (maxInvites == null || usernames.size() < maxInvites) {
+      Optional<RegisteredInput> registeredInput = queue.removeRandom();
+      if (!registeredInput.isPresent()) {
+        break;
       }
 
       // invite one more
-      inviteToMix(mix, registeredInput.get());
-      nbInvited++;
+      registerConfirmingInput(mix, registeredInput.get());
+      usernames.add(registeredInput.get().getUsername());
     }
-    return nbInvited;
+
+    // send invites to mix, all at once
+    if (!usernames.isEmpty()) {
+      webSocketService.sendPrivate(usernames, computeConfirmInputMixStatusNotification(mix));
+    }
+    return usernames.size();
   }
 
   private boolean isUtxoConfirmed(TxOutPoint txOutPoint, boolean liquidity) {
@@ -254,20 +286,32 @@ public class PoolService {
     return true;
   }
 
-  private synchronized void onClientDisconnect(String username) {
+  private void onClientDisconnect(String username) {
     for (Pool pool : getPools()) {
-      // remove queued liquidity
-      boolean liquidityRemoved = pool.getLiquidityQueue().removeByUsername(username).isPresent();
-      if (liquidityRemoved) {
-        log.info(
-            " • [" + pool.getPoolId() + "] removed 1 liquidity from pool, username=" + username);
+      synchronized (pool) {
+        onClientDisconnect(pool, username);
       }
+    }
+  }
 
-      // remove queued mustMix
-      boolean mustMixRemoved = pool.getMustMixQueue().removeByUsername(username).isPresent();
-      if (mustMixRemoved) {
-        log.info(" • [" + pool.getPoolId() + "] removed 1 mustMix from pool, username=" + username);
-      }
+  private void onClientDisconnect(Pool pool, String username) {
+    // remove queued liquidity
+    boolean liquidityRemoved = pool.getLiquidityQueue().removeByUsername(username).isPresent();
+    if (liquidityRemoved) {
+      log.info(" • [" + pool.getPoolId() + "] removed 1 liquidity from pool, username=" + username);
+    }
+
+    // remove queued mustMix
+    boolean mustMixRemoved = pool.getMustMixQueue().removeByUsername(username).isPresent();
+    if (mustMixRemoved) {
+      log.info(" • [" + pool.getPoolId() + "] removed 1 mustMix from pool, username=" + username);
+    }
+
+    // remove mustMix invited directly (under pool lock)
+    Mix currentMix = pool.getCurrentMix();
+    if (currentMix != null && currentMix.removeConfirmingInputByUsername(username).isPresent()) {
+      log.info(
+          " • [" + currentMix.getMixId() + "] removed 1 confirming input, username=" + username);
     }
   }
 }
@@ -3,27 +3,64 @@ package com.samourai.whirlpool.server.services;
 import com.samourai.whirlpool.server.beans.Pool;
 import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
 import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.BannedInputException;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.exceptions.MixException;
+import com.samourai.whirlpool.server.exceptions.NotifiableException;
 import com.samourai.whirlpool.server.persistence.to.BanTO;
+import com.samourai.whirlpool.server.utils.LatencyMetric;
 import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.ECKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+/**
+ * Validates inputs as a pipeline of concurrent stages on a bounded pool. Only the final hand-off to
+ * PoolService is serialized, per pool.
+ */
 @Service
 public class RegisterInputService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  private static final String STAGE_BAN = "ban";
+  private static final String STAGE_FETCH = "fetch";
+  private static final String STAGE_SIGNATURE = "signature";
+  private static final String STAGE_PROVENANCE = "provenance";
+  private static final String STAGE_REGISTER = "register";
+  private static final String STAGE_TOTAL = "total";
+
   private PoolService poolService;
   private CryptoService cryptoService;
   private BlockchainDataService blockchainDataService;
   private InputValidationService inputValidationService;
   private BanService banService;
   private DbService dbService;
+  private WebSocketSessionService webSocketSessionService;
+  private ExecutorService executor;
+  private Semaphore pendingPermits;
+
+  // metrics
+  private Map<String, LatencyMetric> stageLatencies;
+  private AtomicLong nbPending;
+  private AtomicLong nbRejectedBusy;
 
   @Autowired
   public RegisterInputService(
@@ -32,16 +69,42 @@ public class RegisterInputService {
       BlockchainDataService blockchainDataService,
       InputValidationService inputValidationService,
       BanService banService,
-      DbService dbService) {
+      DbService dbService,
+      WebSocketSessionService webSocketSessionService,
+      WhirlpoolServerConfig whirlpoolServerConfig) {
     this.poolService = poolService;
     this.cryptoService = cryptoService;
     this.blockchainDataService = blockchainDataService;
     this.inputValidationService = inputValidationService;
     this.banService = banService;
     this.dbService = dbService;
+    this.webSocketSessionService = webSocketSessionService;
+
+    WhirlpoolServerConfig.RegisterInputConfig config = whirlpoolServerConfig.getRegisterInput();
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("register-input-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newFixedThreadPool(config.getThreads(), threadFactory);
+    this.pendingPermits = new Semaphore(config.getMaxPending());
+
+    Map<String, LatencyMetric> stageLatencies = new LinkedHashMap<>();
+    for (String stage :
+        new String[] {
+          STAGE_BAN, STAGE_FETCH, STAGE_SIGNATURE, STAGE_PROVENANCE, STAGE_REGISTER, STAGE_TOTAL
+        }) {
+      stageLatencies.put(stage, new LatencyMetric());
+    }
+    this.stageLatencies = Collections.unmodifiableMap(stageLatencies);
+    this.nbPending = new AtomicLong(0);
+    this.nbRejectedBusy = new AtomicLong(0);
+  }
+
+  @PreDestroy
+  public void stop() {
+    // pending registrations still complete
+    executor.shutdown();
   }
 
-  public synchronized void registerInput(
+  public void registerInput(
       String poolId,
       String username,
       String signature,
@@ -50,50 +113,228 @@ public class RegisterInputService {
       boolean liquidity,
       boolean testMode,
       String ip)
-      throws IllegalInputException, MixException {
-    if (!cryptoService.isValidTxHash(utxoHash)) {
-      throw new IllegalInputException("Invalid utxoHash");
+      throws NotifiableException, MixException {
+    try {
+      registerInputAsync(poolId, username, signature, utxoHash, utxoIndex, liquidity, testMode, ip)
+          .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MixException("Input registration interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = unwrap(e);
+      if (cause instanceof NotifiableException) {
+        throw (NotifiableException) cause;
+      }
+      if (cause instanceof MixException) {
+        throw (MixException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
     }
-    if (utxoIndex < 0) {
-      throw new IllegalInputException("Invalid utxoIndex");
+  }
+
+  /** Completes when input was registered to pool, or exceptionally with the rejection cause. */
+  public CompletableFuture<Void> registerInputAsync(
+      String poolId,
+      String username,
+      String signature,
+      String utxoHash,
+      long utxoIndex,
+      boolean liquidity,
+      boolean testMode,
+      String ip) {
+    Pool pool;
+    try {
+      if (!cryptoService.isValidTxHash(utxoHash)) {
+        throw new IllegalInputException("Invalid utxoHash");
+      }
+      if (utxoIndex < 0) {
+        throw new IllegalInputException("Invalid utxoIndex");
+      }
+      pool = poolService.getPool(poolId);
+    } catch (IllegalInputException e) {
+      return failed(e);
     }
 
-    // verify UTXO not banned
+    // verify UTXO not banned (in-memory lookup), before fetching it or reporting any other error
+    long banStart = System.currentTimeMillis();
     Optional<BanTO> banTO = banService.findActiveBan(utxoHash, utxoIndex);
+    stageLatencies.get(STAGE_BAN).record(System.currentTimeMillis() - banStart);
     if (banTO.isPresent()) {
       log.warn("Rejecting banned UTXO: [" + banTO.get() + "], ip=" + ip);
-      String banMessage = banTO.get().computeBanMessage();
-      throw new BannedInputException(banMessage);
+      return failed(new BannedInputException(banTO.get().computeBanMessage()));
     }
 
+    if (!pendingPermits.tryAcquire()) {
+      nbRejectedBusy.incrementAndGet();
+      log.warn("Input rejected (" + utxoHash + ":" + utxoIndex + "): server busy, ip=" + ip);
+      return failed(
+          new NotifiableException(
+              "Server busy, please retry later", HttpStatus.SERVICE_UNAVAILABLE));
+    }
+    nbPending.incrementAndGet();
     try {
-      // fetch outPoint
-      IllegalInputException notFoundException =
-          new IllegalInputException("UTXO not found: " + utxoHash + "-" + utxoIndex);
-      RpcTransaction rpcTransaction =
-          blockchainDataService.getRpcTransaction(utxoHash).orElseThrow(() -> notFoundException);
-      TxOutPoint txOutPoint = blockchainDataService.getOutPoint(rpcTransaction, utxoIndex);
-
-      // verify signature
-      inputValidationService.validateSignature(txOutPoint, poolId, signature);
-
-      // check tx0Whitelist
-      String txid = rpcTransaction.getTx().getHashAsString();
-      if (!dbService.hasTx0Whitelist(txid)) {
-        // verify input is a valid mustMix or liquidity
-        Pool pool = poolService.getPool(poolId);
-        boolean hasMixTxid = dbService.hasMixTxid(txid, txOutPoint.getValue());
-        inputValidationService.validateProvenance(
-            txOutPoint, rpcTransaction, liquidity, testMode, pool, hasMixTxid);
-      } else {
-        log.warn("tx0 check disabled by whitelist for txid=" + txid);
-      }
+      return validateAndRegister(
+          pool, username, signature, utxoHash, utxoIndex, liquidity, testMode, ip);
+    } catch (Throwable e) {
+      // pipeline could not be started (executor stopped)
+      pendingPermits.release();
+      nbPending.decrementAndGet();
+      return failed(e);
+    }
+  }
 
-      // register input to pool
-      poolService.registerInput(poolId, username, liquidity, txOutPoint, true, ip);
-    } catch (IllegalInputException e) {
-      log.warn("Input rejected (" + utxoHash + ":" + utxoIndex + "): " + e.getMessage());
-      throw e;
+  private CompletableFuture<Void> validateAndRegister(
+      Pool pool,
+      String username,
+      String signature,
+      String utxoHash,
+      long utxoIndex,
+      boolean liquidity,
+      boolean testMode,
+      String ip) {
+    String poolId = pool.getPoolId();
+    long start = System.currentTimeMillis();
+    boolean connected = webSocketSessionService.isConnected(username);
+
+    CompletableFuture<RpcTransaction> txFuture =
+        stage(
+            STAGE_FETCH,
+            () ->
+                blockchainDataService
+                    .getRpcTransaction(utxoHash)
+                    .orElseThrow(
+                        () ->
+                            new IllegalInputException(
+                                "UTXO not found: " + utxoHash + "-" + utxoIndex)));
+
+    // signature & provenance run concurrently
+    CompletableFuture<TxOutPoint> validatedFuture =
+        txFuture.thenCompose(
+            rpcTransaction -> {
+              TxOutPoint txOutPoint;
+              try {
+                txOutPoint = blockchainDataService.getOutPoint(rpcTransaction, utxoIndex);
+              } catch (Exception e) {
+                throw new CompletionException(e);
+              }
+              // EC math runs on the signature worker pool
+              long signatureStart = System.currentTimeMillis();
+              CompletableFuture<ECKey> signatureFuture =
+                  inputValidationService
+                      .validateSignatureAsync(txOutPoint, poolId, signature)
+                      .whenComplete(
+                          (pubkey, e) ->
+                              stageLatencies
+                                  .get(STAGE_SIGNATURE)
+                                  .record(System.currentTimeMillis() - signatureStart));
+              CompletableFuture<Void> provenanceFuture =
+                  stage(
+                      STAGE_PROVENANCE,
+                      () -> {
+                        validateProvenance(txOutPoint, rpcTransaction, liquidity, testMode, pool);
+                        return null;
+                      });
+              return signatureFuture.thenCompose(v -> provenanceFuture).thenApply(v -> txOutPoint);
+            });
+
+    // register input to pool
+    return validatedFuture
+        .thenCompose(
+            txOutPoint ->
+                this.<Void>stage(
+                    STAGE_REGISTER,
+                    () -> {
+                      // client may have disconnected during validation: its inputs were already
+                      // purged from pool, don't queue or invite it
+                      synchronized (pool) {
+                        if (connected && !webSocketSessionService.isConnected(username)) {
+                          throw new IllegalInputException("Client disconnected");
+                        }
+                        poolService.registerInput(
+                            poolId, username, liquidity, txOutPoint, true, ip);
+                      }
+                      return null;
+                    }))
+        .whenComplete(
+            (v, e) -> {
+              pendingPermits.release();
+              nbPending.decrementAndGet();
+              stageLatencies.get(STAGE_TOTAL).record(System.currentTimeMillis() - start);
+              if (e != null
+                  && unwrap(e) instanceof IllegalInputException
+                  && !(unwrap(e) instanceof BannedInputException)) {
+                log.warn(
+                    "Input rejected ("
+                        + utxoHash
+                        + ":"
+                        + utxoIndex
+                        + "): "
+                        + unwrap(e).getMessage());
+              }
+            });
+  }
+
+  private void validateProvenance(
+      TxOutPoint txOutPoint,
+      RpcTransaction rpcTransaction,
+      boolean liquidity,
+      boolean testMode,
+      Pool pool)
+      throws IllegalInputException {
+    // check tx0Whitelist
+    String txid = rpcTransaction.getTx().getHashAsString();
+    if (!dbService.hasTx0Whitelist(txid)) {
+      // verify input is a valid mustMix or liquidity
+      boolean hasMixTxid = dbService.hasMixTxid(txid, txOutPoint.getValue());
+      inputValidationService.validateProvenance(
+          txOutPoint, rpcTransaction, liquidity, testMode, pool, hasMixTxid);
+    } else {
+      log.warn("tx0 check disabled by whitelist for txid=" + txid);
     }
   }
+
+  private <T> CompletableFuture<T> stage(String stage, Callable<T> task) {
+    LatencyMetric latency = stageLatencies.get(stage);
+    return CompletableFuture.supplyAsync(
+        () -> {
+          long start = System.currentTimeMillis();
+          try {
+            return task.call();
+          } catch (Exception e) {
+            throw new CompletionException(e);
+          } finally {
+            latency.record(System.currentTimeMillis() - start);
+          }
+        },
+        executor);
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable e) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(e);
+    return future;
+  }
+
+  public static Throwable unwrap(Throwable e) {
+    while ((e instanceof CompletionException || e instanceof ExecutionException)
+        && e.getCause() != null) {
+      e = e.getCause();
+    }
+    return e;
+  }
+
+  public Map<String, LatencyMetric> getStageLatencies() {
+    return stageLatencies;
+  }
+
+  public long getNbPending() {
+    return nbPending.get();
+  }
+
+  public long getNbRejectedBusy() {
+    return nbRejectedBusy.get();
+  }
 }
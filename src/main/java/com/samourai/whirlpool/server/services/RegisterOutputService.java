@@ -31,7 +31,7 @@ public class RegisterOutputService {
     this.serverConfig = serverConfig;
   }
 
-  public synchronized void registerOutput(
+  public void registerOutput(
       String inputsHash, byte[] unblindedSignedBordereau, String receiveAddress) throws Exception {
     // validate
     validate(unblindedSignedBordereau, receiveAddress);
@@ -0,0 +1,166 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.wallet.util.MessageSignUtilGeneric;
+import com.samourai.wallet.util.TxUtil;
+import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.utils.LatencyMetric;
+import com.samourai.whirlpool.server.utils.MixTxVerifier;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionWitness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Verifies mix tx signatures and input message signatures. Tx signatures are verified on the
+ * caller's thread (out of mix lock), async message verifications run on a CPU-bound worker pool.
+ */
+@Service
+public class SignatureVerificationService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private TxUtil txUtil;
+  private MessageSignUtilGeneric messageSignUtil;
+  private NetworkParameters params;
+  private ExecutorService executor;
+
+  // metrics
+  private AtomicLong nbInvalid;
+  private LatencyMetric verifyLatency;
+  private AtomicLong nbInvalidMessages;
+  private LatencyMetric messageVerifyLatency;
+
+  @Autowired
+  public SignatureVerificationService(
+      TxUtil txUtil, MessageSignUtilGeneric messageSignUtil, CryptoService cryptoService) {
+    this.txUtil = txUtil;
+    this.messageSignUtil = messageSignUtil;
+    this.params = cryptoService.getNetworkParameters();
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("verify-sig-");
+    threadFactory.setDaemon(true);
+    this.executor =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory);
+
+    this.nbInvalid = new AtomicLong(0);
+    this.verifyLatency = new LatencyMetric();
+    this.nbInvalidMessages = new AtomicLong(0);
+    this.messageVerifyLatency = new LatencyMetric();
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  /** Verifies on the worker pool that message was signed by the key of txOutPoint. */
+  public CompletableFuture<ECKey> verifyMessageSignatureAsync(
+      TxOutPoint txOutPoint, String message, String signature) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return verifyMessageSignature(txOutPoint, message, signature);
+          } catch (IllegalInputException e) {
+            throw new CompletionException(e);
+          }
+        },
+        executor);
+  }
+
+  /** Verifies that message was signed by the key of txOutPoint, recovering the pubkey once. */
+  public ECKey verifyMessageSignature(TxOutPoint txOutPoint, String message, String signature)
+      throws IllegalInputException {
+    long start = System.currentTimeMillis();
+    try {
+      ECKey pubkey = recoverMessageSigner(txOutPoint, message, signature);
+      if (pubkey == null) {
+        nbInvalidMessages.incrementAndGet();
+        throw new IllegalInputException("Invalid signature");
+      }
+      return pubkey;
+    } finally {
+      messageVerifyLatency.record(System.currentTimeMillis() - start);
+    }
+  }
+
+  protected ECKey recoverMessageSigner(TxOutPoint txOutPoint, String message, String signature) {
+    byte[] scriptBytes = txOutPoint.getScriptBytes();
+    if (scriptBytes == null || !MixTxVerifier.isP2WPKH(scriptBytes)) {
+      // other scripts: verify against address
+      return recoverMessageSignerByAddress(txOutPoint.getToAddress(), message, signature);
+    }
+    try {
+      ECKey pubkey = ECKey.signedMessageToKey(message, signature);
+      byte[] pubKeyHash = Arrays.copyOfRange(scriptBytes, 2, 22);
+      return Arrays.equals(pubkey.getPubKeyHash(), pubKeyHash) ? pubkey : null;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  protected ECKey recoverMessageSignerByAddress(String address, String message, String signature) {
+    try {
+      if (!messageSignUtil.verifySignedMessage(address, message, signature, params)) {
+        return null;
+      }
+      return messageSignUtil.signedMessageToKey(message, signature);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  public void verifySignInput(
+      MixTxVerifier txVerifier, int inputIndex, TransactionWitness witness, TxOutPoint txOutPoint)
+      throws Exception {
+    try {
+      doVerifySignInput(txVerifier, inputIndex, witness, txOutPoint);
+    } catch (Exception e) {
+      nbInvalid.incrementAndGet();
+      throw e;
+    }
+  }
+
+  protected void doVerifySignInput(
+      MixTxVerifier txVerifier, int inputIndex, TransactionWitness witness, TxOutPoint txOutPoint)
+      throws Exception {
+    long start = System.currentTimeMillis();
+    byte[] scriptBytes = txOutPoint.getScriptBytes();
+    if (MixTxVerifier.isP2WPKH(scriptBytes)) {
+      txVerifier.verifyP2WPKH(inputIndex, witness, txOutPoint.getValue(), scriptBytes);
+    } else {
+      // other scripts: full verification on a private copy of the tx
+      Transaction tx = txVerifier.copyUnsignedTx();
+      tx.setWitness(inputIndex, witness);
+      txUtil.verifySignInput(tx, inputIndex, txOutPoint.getValue(), scriptBytes);
+    }
+    verifyLatency.record(System.currentTimeMillis() - start);
+  }
+
+  public long getNbInvalid() {
+    return nbInvalid.get();
+  }
+
+  public LatencyMetric getVerifyLatency() {
+    return verifyLatency;
+  }
+
+  public long getNbInvalidMessages() {
+    return nbInvalidMessages.get();
+  }
+
+  public LatencyMetric getMessageVerifyLatency() {
+    return messageVerifyLatency;
+  }
+}
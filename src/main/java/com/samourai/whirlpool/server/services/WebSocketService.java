@@ -1,34 +1,86 @@
 package com.samourai.whirlpool.server.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.websocket.messages.ErrorResponse;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.utils.MessageListener;
 import com.samourai.whirlpool.server.utils.Utils;
+import com.samourai.whirlpool.server.utils.websocket.WebSocketDispatcher;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.CloseStatus;
 
 @Service
 public class WebSocketService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private WhirlpoolProtocol whirlpoolProtocol;
+  private static final MimeType CONTENT_TYPE =
+      new MimeType("application", "json", StandardCharsets.UTF_8);
+
   private SimpMessagingTemplate messagingTemplate;
-  private TaskExecutor taskExecutor;
+  private MappingJackson2MessageConverter messageConverter;
+  private WebSocketDispatcher dispatcher;
+  private Map<Class, Map<String, String>> headersByType;
 
   @Autowired
   public WebSocketService(
       WhirlpoolProtocol whirlpoolProtocol,
       SimpMessagingTemplate messagingTemplate,
-      TaskExecutor taskExecutor) {
+      WhirlpoolServerConfig whirlpoolServerConfig,
+      WebSocketSessionService webSocketSessionService) {
     this.whirlpoolProtocol = whirlpoolProtocol;
     this.messagingTemplate = messagingTemplate;
-    this.taskExecutor = taskExecutor;
-    messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+    this.messageConverter = new MappingJackson2MessageConverter();
+    messagingTemplate.setMessageConverter(messageConverter);
+    this.headersByType = new ConcurrentHashMap<>();
+
+    WhirlpoolServerConfig.OutboundConfig outboundConfig = whirlpoolServerConfig.getOutbound();
+    this.dispatcher =
+        new WebSocketDispatcher(
+            outboundConfig.getThreads(),
+            outboundConfig.getMaxQueuePerSession(),
+            username ->
+                webSocketSessionService.closeSession(
+                    username, CloseStatus.SESSION_NOT_RELIABLE.withReason("too slow")));
+
+    // listen websocket onConnect
+    webSocketSessionService.addOnConnectListener(
+        new MessageListener<String>() {
+          @Override
+          public void onMessage(String username) {
+            dispatcher.onConnect(username);
+          }
+        });
+
+    // listen websocket onDisconnect
+    webSocketSessionService.addOnDisconnectListener(
+        new MessageListener<String>() {
+          @Override
+          public void onMessage(String username) {
+            dispatcher.onDisconnect(username);
+          }
+        });
+  }
+
+  @PreDestroy
+  public void stop() {
+    dispatcher.shutdown();
   }
 
   public void sendPrivate(String username, Object payload) {
@@ -45,15 +97,18 @@ public class WebSocketService {
               + ") : "
               + Utils.toJsonString(payload));
     }
+    // serialize once for all recipients
+    Message<byte[]> frame;
+    try {
+      frame = computeFrame(payload);
+    } catch (JsonProcessingException e) {
+      log.error("unable to serialize " + payload.getClass().getName(), e);
+      return;
+    }
     usernames.forEach(
         username -> {
-          taskExecutor.execute(
-              () ->
-                  messagingTemplate.convertAndSendToUser(
-                      username,
-                      whirlpoolProtocol.WS_PREFIX_USER_REPLY,
-                      payload,
-                      computeHeaders(payload)));
+          String destination = computeUserDestination(username);
+          dispatcher.send(username, () -> messagingTemplate.send(destination, frame));
         });
   }
 
@@ -63,10 +118,38 @@ public class WebSocketService {
     sendPrivate(username, errorResponse);
   }
 
-  private Map<String, Object> computeHeaders(Object payload) {
-    Map<String, Object> headers = new HashMap<>();
-    headers.put(whirlpoolProtocol.HEADER_MESSAGE_TYPE, payload.getClass().getName());
-    headers.put(whirlpoolProtocol.HEADER_PROTOCOL_VERSION, WhirlpoolProtocol.PROTOCOL_VERSION);
-    return headers;
+  public WebSocketDispatcher getDispatcher() {
+    return dispatcher;
+  }
+
+  protected Message<byte[]> computeFrame(Object payload) throws JsonProcessingException {
+    byte[] bytes = messageConverter.getObjectMapper().writeValueAsBytes(payload);
+
+    SimpMessageHeaderAccessor headerAccessor =
+        SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    computeHeaders(payload.getClass()).forEach(headerAccessor::setNativeHeader);
+    headerAccessor.setContentType(CONTENT_TYPE);
+    Message<byte[]> frame = MessageBuilder.createMessage(bytes, headerAccessor.getMessageHeaders());
+    // shared by all recipients: messagingTemplate will copy headers for each destination
+    headerAccessor.setImmutable();
+    return frame;
+  }
+
+  protected String computeUserDestination(String username) {
+    return messagingTemplate.getUserDestinationPrefix()
+        + StringUtils.replace(username, "/", "%2F")
+        + whirlpoolProtocol.WS_PREFIX_USER_REPLY;
+  }
+
+  private Map<String, String> computeHeaders(Class payloadClass) {
+    return headersByType.computeIfAbsent(
+        payloadClass,
+        c -> {
+          Map<String, String> headers = new HashMap<>();
+          headers.put(whirlpoolProtocol.HEADER_MESSAGE_TYPE, c.getName());
+          headers.put(
+              whirlpoolProtocol.HEADER_PROTOCOL_VERSION, WhirlpoolProtocol.PROTOCOL_VERSION);
+          return Collections.unmodifiableMap(headers);
+        });
   }
 }
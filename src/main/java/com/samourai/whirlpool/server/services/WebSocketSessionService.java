@@ -10,18 +10,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 
 @Service
 public class WebSocketSessionService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private Map<String, Boolean> sessions;
+  private Map<String, WebSocketSession> webSocketSessions; // by sessionId (=username)
+  private List<MessageListener<String>> onConnectListeners;
   private List<MessageListener<String>> onDisconnectListeners;
 
   @Autowired
   public WebSocketSessionService() {
+    this.onConnectListeners = new ArrayList<>();
     this.onDisconnectListeners = new ArrayList<>();
     this.sessions = new ConcurrentHashMap<>();
+    this.webSocketSessions = new ConcurrentHashMap<>();
+  }
+
+  public void addOnConnectListener(MessageListener<String> listener) {
+    onConnectListeners.add(listener);
   }
 
   public void addOnDisconnectListener(MessageListener<String> listener) {
@@ -34,6 +44,9 @@ public class WebSocketSessionService {
     }
     if (!sessions.containsKey(username)) {
       sessions.put(username, Boolean.TRUE);
+      for (MessageListener<String> listener : onConnectListeners) {
+        listener.onMessage(username);
+      }
     } else {
       log.error("session already registered for connecting client: username=" + username);
     }
@@ -44,13 +57,42 @@ public class WebSocketSessionService {
       log.debug("(--> " + username + ") : disconnect");
     }
 
-    if (sessions.containsKey(username)) {
+    // unregister first, so isConnected() is false while listeners purge client's inputs
+    if (sessions.remove(username) != null) {
       for (MessageListener<String> listener : onDisconnectListeners) {
         listener.onMessage(username);
       }
-      sessions.remove(username);
     } else {
       log.error("unknown session for disconnected client: username=" + username);
     }
   }
+
+  public boolean isConnected(String username) {
+    return sessions.containsKey(username);
+  }
+
+  public void onWebSocketOpen(WebSocketSession webSocketSession) {
+    webSocketSessions.put(webSocketSession.getId(), webSocketSession);
+  }
+
+  public void onWebSocketClose(WebSocketSession webSocketSession) {
+    webSocketSessions.remove(webSocketSession.getId());
+  }
+
+  /** Closes client connection, which runs the usual disconnect listeners. */
+  public void closeSession(String username, CloseStatus closeStatus) {
+    WebSocketSession webSocketSession = webSocketSessions.get(username);
+    if (webSocketSession != null) {
+      try {
+        webSocketSession.close(closeStatus);
+        return;
+      } catch (Exception e) {
+        log.error("unable to close websocket session: username=" + username, e);
+      }
+    }
+    // no transport session (or close failed) => disconnect now
+    if (isConnected(username)) {
+      onDisconnect(username);
+    }
+  }
 }
@@ -9,6 +9,7 @@ import java.util.Optional;
 import org.bitcoinj.core.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import wf.bitcoin.javabitcoindrpcclient.BitcoinJSONRPCClient;
@@ -16,6 +17,7 @@ import wf.bitcoin.javabitcoindrpcclient.BitcoindRpcClient;
 
 @Service
 @Profile("!" + Utils.PROFILE_TEST)
+@ConditionalOnProperty(name = "server.rpc-client.pooled", havingValue = "false")
 public class JSONRpcClientServiceImpl implements RpcClientService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private WhirlpoolServerConfig whirlpoolServerConfig;
@@ -94,6 +96,11 @@ public class JSONRpcClientServiceImpl implements RpcClientService {
     }
   }
 
+  @Override
+  public int getBlockHeight() throws Exception {
+    return rpcClient.getBlockCount();
+  }
+
   @Override
   public void broadcastTransaction(Transaction tx) throws BroadcastException {
     String txid = tx.getHashAsString();
@@ -0,0 +1,414 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import com.samourai.whirlpool.server.utils.LatencyMetric;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Routes RPC calls over one or more bitcoind nodes: reads go to a healthy node picked by latency
+ * and fail over to the others, broadcasts go to all healthy nodes in parallel.
+ */
+@Service
+@Profile("!" + Utils.PROFILE_TEST)
+@ConditionalOnProperty(
+    name = "server.rpc-client.pooled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class MultiNodeRpcClientServiceImpl implements RpcClientService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+  private WhirlpoolServerConfig whirlpoolServerConfig;
+  private List<RpcNode> nodes;
+  private ScheduledExecutorService probeExecutor;
+  private ExecutorService broadcastExecutor;
+
+  public MultiNodeRpcClientServiceImpl(WhirlpoolServerConfig whirlpoolServerConfig) {
+    this.whirlpoolServerConfig = whirlpoolServerConfig;
+    WhirlpoolServerConfig.RpcClientConfig config = whirlpoolServerConfig.getRpcClient();
+
+    List<RpcNode> nodes = new ArrayList<>();
+    nodes.add(new RpcNode(config.toString(), whirlpoolServerConfig, config));
+    for (WhirlpoolServerConfig.RpcNodeConfig nodeConfig : config.getNodes()) {
+      nodes.add(new RpcNode(nodeConfig.toString(), whirlpoolServerConfig, nodeConfig));
+    }
+    this.nodes = Collections.unmodifiableList(nodes);
+
+    CustomizableThreadFactory probeThreadFactory = new CustomizableThreadFactory("rpc-probe-");
+    probeThreadFactory.setDaemon(true);
+    this.probeExecutor = Executors.newSingleThreadScheduledExecutor(probeThreadFactory);
+    CustomizableThreadFactory broadcastThreadFactory =
+        new CustomizableThreadFactory("rpc-broadcast-");
+    broadcastThreadFactory.setDaemon(true);
+    this.broadcastExecutor = Executors.newFixedThreadPool(nodes.size(), broadcastThreadFactory);
+
+    int probeDelay = config.getProbeDelay();
+    if (probeDelay > 0) {
+      probeExecutor.scheduleWithFixedDelay(
+          this::probeSafe, probeDelay, probeDelay, TimeUnit.SECONDS);
+    }
+  }
+
+  @Override
+  public boolean testConnectivity() {
+    probe();
+    long nbHealthy = nodes.stream().filter(RpcNode::isHealthy).count();
+    if (nbHealthy == 0) {
+      log.error("No bitcoin node available: " + nodes);
+      return false;
+    }
+    log.info("Connected to " + nbHealthy + "/" + nodes.size() + " bitcoin nodes: " + nodes);
+    return true;
+  }
+
+  private void probeSafe() {
+    try {
+      probe();
+    } catch (Exception e) {
+      log.error("probe failed", e);
+    }
+  }
+
+  /** Refreshes health, blockHeight and latency of each node. */
+  public synchronized void probe() {
+    int maxBlockHeight = 0;
+    for (RpcNode node : nodes) {
+      node.probe();
+      if (node.isResponsive()) {
+        maxBlockHeight = Math.max(maxBlockHeight, node.getBlockHeight());
+      }
+    }
+
+    // nodes lagging behind (IBD, reindex...) are unhealthy
+    int minBlockHeight = maxBlockHeight - whirlpoolServerConfig.getRpcClient().getMaxBlockLag();
+    for (RpcNode node : nodes) {
+      boolean healthy = node.isResponsive() && node.getBlockHeight() >= minBlockHeight;
+      if (healthy != node.isHealthy()) {
+        log.warn(
+            "bitcoin node "
+                + node
+                + " is now "
+                + (healthy ? "healthy" : "unhealthy")
+                + ": blockHeight="
+                + node.getBlockHeight()
+                + ", maxBlockHeight="
+                + maxBlockHeight);
+      }
+      node.setHealthy(healthy);
+    }
+  }
+
+  @Override
+  public Optional<RpcRawTransactionResponse> getRawTransaction(String txid) {
+    // a fresh tx may not have reached every mempool yet: not found until no node has it
+    for (RpcNode node : computeReadOrder()) {
+      try {
+        Optional<RpcRawTransactionResponse> rawTx =
+            node.call(client -> client.fetchRawTransaction(txid));
+        if (rawTx.isPresent()) {
+          return rawTx;
+        }
+      } catch (Exception e) {
+        log.warn("RPC failed on " + node + ", trying next node: " + e.getMessage());
+      }
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids)
+      throws Exception {
+    return execute(client -> client.getRawTransactions(txids));
+  }
+
+  @Override
+  public int getBlockHeight() throws Exception {
+    return execute(client -> client.getBlockHeight());
+  }
+
+  @Override
+  public void broadcastTransaction(Transaction tx) throws BroadcastException {
+    String txid = tx.getHashAsString();
+    if (whirlpoolServerConfig.getRpcClient().isMockTxBroadcast()) {
+      log.warn("NOT broadcasting tx " + txid + "(server.rpc-client.mock-tx-broadcast=TRUE)");
+      return;
+    }
+
+    List<RpcNode> targets = new ArrayList<>();
+    nodes.stream().filter(RpcNode::isHealthy).forEach(targets::add);
+    if (targets.isEmpty()) {
+      targets.addAll(nodes); // last resort
+    }
+
+    // succeeds as soon as one node accepts tx
+    CompletableFuture<Void> accepted = new CompletableFuture<>();
+    AtomicInteger nbRemaining = new AtomicInteger(targets.size());
+    AtomicReference<BroadcastException> rejection = new AtomicReference<>();
+    for (RpcNode node : targets) {
+      broadcastExecutor.execute(
+          () -> {
+            try {
+              node.call(
+                  client -> {
+                    client.broadcastTransaction(tx);
+                    return null;
+                  });
+              accepted.complete(null);
+            } catch (BroadcastException e) {
+              if (e.getFailInfo() != null) {
+                rejection.compareAndSet(null, e);
+              }
+            } catch (Exception e) {
+              log.error("broadcastTransaction error on " + node, e);
+            } finally {
+              if (nbRemaining.decrementAndGet() == 0) {
+                BroadcastException e = rejection.get();
+                accepted.completeExceptionally(e != null ? e : new BroadcastException(null));
+              }
+            }
+          });
+    }
+
+    try {
+      accepted.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BroadcastException(null);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof BroadcastException) {
+        throw (BroadcastException) e.getCause();
+      }
+      throw new BroadcastException(null);
+    }
+  }
+
+  private <T> T execute(RpcCall<T> rpcCall) throws Exception {
+    Exception lastException = new IOException("No bitcoin node available");
+    for (RpcNode node : computeReadOrder()) {
+      try {
+        return node.call(rpcCall);
+      } catch (Exception e) {
+        log.warn("RPC failed on " + node + ", trying next node: " + e.getMessage());
+        lastException = e;
+      }
+    }
+    throw lastException;
+  }
+
+  /** Healthy nodes first, the first one picked randomly with weight 1/latency. */
+  protected List<RpcNode> computeReadOrder() {
+    List<RpcNode> healthy = new ArrayList<>();
+    List<RpcNode> unhealthy = new ArrayList<>();
+    for (RpcNode node : nodes) {
+      (node.isHealthy() ? healthy : unhealthy).add(node);
+    }
+    Comparator<RpcNode> byLatency = Comparator.comparingDouble(RpcNode::getLatencyEwma);
+    healthy.sort(byLatency);
+    unhealthy.sort(byLatency);
+
+    if (healthy.size() > 1) {
+      double totalWeight = 0;
+      for (RpcNode node : healthy) {
+        totalWeight += node.computeWeight();
+      }
+      double random = ThreadLocalRandom.current().nextDouble() * totalWeight;
+      for (int i = 0; i < healthy.size(); i++) {
+        random -= healthy.get(i).computeWeight();
+        if (random <= 0) {
+          healthy.add(0, healthy.remove(i));
+          break;
+        }
+      }
+    }
+
+    List<RpcNode> readOrder = new ArrayList<>(healthy);
+    readOrder.addAll(unhealthy);
+    return readOrder;
+  }
+
+  @PreDestroy
+  public void stop() {
+    probeExecutor.shutdownNow();
+    broadcastExecutor.shutdownNow();
+  }
+
+  @Override
+  public Map<String, String> getMetrics() {
+    Map<String, String> metrics = new LinkedHashMap<>();
+    for (RpcNode node : nodes) {
+      metrics.put("rpc." + node, node.computeMetrics());
+    }
+    return metrics;
+  }
+
+  public List<RpcNode> getNodes() {
+    return nodes;
+  }
+
+  private interface RpcCall<T> {
+    T call(PooledJsonRpcClientServiceImpl client) throws Exception;
+  }
+
+  public static class RpcNode {
+    private String name;
+    private PooledJsonRpcClientServiceImpl client;
+    private volatile boolean chainVerified;
+    private volatile boolean responsive;
+    private volatile boolean healthy;
+    private volatile int blockHeight;
+    private double latencyEwma;
+
+    // metrics
+    private LatencyMetric latency;
+    private AtomicLong nbErrors;
+
+    public RpcNode(
+        String name,
+        WhirlpoolServerConfig whirlpoolServerConfig,
+        WhirlpoolServerConfig.RpcNodeConfig nodeConfig) {
+      this.name = name;
+      this.client = new PooledJsonRpcClientServiceImpl(whirlpoolServerConfig, nodeConfig);
+      this.chainVerified = false;
+      this.responsive = false;
+      this.healthy = true; // until first probe
+      this.blockHeight = 0;
+      this.latencyEwma = 0;
+      this.latency = new LatencyMetric();
+      this.nbErrors = new AtomicLong(0);
+    }
+
+    private void probe() {
+      if (!chainVerified) {
+        // verifies chain & connectivity
+        if (!client.testConnectivity()) {
+          responsive = false;
+          return;
+        }
+        chainVerified = true;
+      }
+      try {
+        blockHeight = call(c -> c.getBlockHeight());
+        responsive = true;
+      } catch (Exception e) {
+        log.warn("bitcoin node " + name + " not responding: " + e.getMessage());
+        responsive = false;
+      }
+    }
+
+    private <T> T call(RpcCall<T> rpcCall) throws Exception {
+      long start = System.currentTimeMillis();
+      try {
+        T result = rpcCall.call(client);
+        onResponse(System.currentTimeMillis() - start);
+        return result;
+      } catch (BroadcastException e) {
+        if (e.getFailInfo() != null) {
+          // tx rejected, but node responded
+          onResponse(System.currentTimeMillis() - start);
+        } else {
+          onError();
+        }
+        throw e;
+      } catch (Exception e) {
+        onError();
+        throw e;
+      }
+    }
+
+    private synchronized void onResponse(long elapsedMs) {
+      latency.record(elapsedMs);
+      latencyEwma =
+          latency.getCount() == 1
+              ? elapsedMs
+              : LATENCY_EWMA_ALPHA * elapsedMs + (1 - LATENCY_EWMA_ALPHA) * latencyEwma;
+    }
+
+    private void onError() {
+      nbErrors.incrementAndGet();
+      healthy = false; // until next probe
+    }
+
+    private double computeWeight() {
+      return 1 / (getLatencyEwma() + 1);
+    }
+
+    private String computeMetrics() {
+      return "healthy="
+          + healthy
+          + ", blockHeight="
+          + blockHeight
+          + ", latencyEwma="
+          + Math.round(getLatencyEwma())
+          + "ms, errors="
+          + nbErrors.get()
+          + ", inFlight="
+          + client.getNbInFlight()
+          + ", connections="
+          + client.getNbConnections()
+          + ", "
+          + latency;
+    }
+
+    public boolean isResponsive() {
+      return responsive;
+    }
+
+    public boolean isHealthy() {
+      return healthy;
+    }
+
+    private void setHealthy(boolean healthy) {
+      this.healthy = healthy;
+    }
+
+    public int getBlockHeight() {
+      return blockHeight;
+    }
+
+    public synchronized double getLatencyEwma() {
+      return latencyEwma;
+    }
+
+    public LatencyMetric getLatency() {
+      return latency;
+    }
+
+    public long getNbErrors() {
+      return nbErrors.get();
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.ConnectionPool;
+import okhttp3.Credentials;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.bitcoinj.core.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JSON-RPC client for one bitcoind node over pooled keep-alive connections, with timeouts, a
+ * bounded number of in-flight requests and batch requests.
+ */
+public class PooledJsonRpcClientServiceImpl implements RpcClientService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json");
+  private static final int RPC_INVALID_ADDRESS_OR_KEY = -5; // tx not found
+  private static final long KEEP_ALIVE_SECONDS = 300;
+
+  private static final String CHAIN_TESTNET = "test";
+  private static final String CHAIN_MAINNET = "main";
+
+  private WhirlpoolServerConfig whirlpoolServerConfig;
+  private ObjectMapper objectMapper;
+  private OkHttpClient httpClient;
+  private String url;
+  private String credentials;
+  private Semaphore inFlightPermits;
+  private long acquireTimeoutMs;
+  private AtomicLong nextId;
+
+  public PooledJsonRpcClientServiceImpl(
+      WhirlpoolServerConfig whirlpoolServerConfig, WhirlpoolServerConfig.RpcNodeConfig node) {
+    log.info("Instanciating PooledJsonRpcClientServiceImpl: " + node);
+    this.whirlpoolServerConfig = whirlpoolServerConfig;
+    this.objectMapper = new ObjectMapper();
+
+    WhirlpoolServerConfig.RpcClientConfig config = whirlpoolServerConfig.getRpcClient();
+    int maxInFlight = config.getMaxInFlight();
+    this.httpClient =
+        new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(maxInFlight, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS))
+            .connectTimeout(config.getConnectTimeout(), TimeUnit.SECONDS)
+            .readTimeout(config.getReadTimeout(), TimeUnit.SECONDS)
+            .writeTimeout(config.getReadTimeout(), TimeUnit.SECONDS)
+            .build();
+    this.url = node.getProtocol() + "://" + node.getHost() + ":" + node.getPort() + "/";
+    this.credentials =
+        Credentials.basic(node.getUser(), node.getPassword() != null ? node.getPassword() : "");
+    this.inFlightPermits = new Semaphore(maxInFlight, true);
+    this.acquireTimeoutMs = TimeUnit.SECONDS.toMillis(config.getReadTimeout());
+    this.nextId = new AtomicLong(0);
+  }
+
+  @Override
+  public boolean testConnectivity() {
+    log.info("Connecting to bitcoin node... url=" + url);
+    try {
+      // verify node connectivity
+      long blockHeight = getBlockHeight();
+
+      // verify node network
+      String chain = call("getblockchaininfo").get("chain").asText();
+      String expectedChain = getRpcChain();
+      if (!chain.equals(expectedChain)) {
+        log.error(
+            "Invalid chain for bitcoin node: url="
+                + url
+                + ", chain="
+                + chain
+                + ", expectedChain="
+                + expectedChain);
+        return false;
+      }
+
+      // verify blockHeight
+      if (blockHeight <= 0) {
+        log.error(
+            "Invalid blockHeight for bitcoin node: url="
+                + url
+                + ", chain="
+                + chain
+                + ", blockHeight="
+                + blockHeight);
+        return false;
+      }
+      log.info(
+          "Connected to bitcoin node: url="
+              + url
+              + ", chain="
+              + chain
+              + ", blockHeight="
+              + blockHeight);
+      return true;
+    } catch (Exception e) {
+      log.info("Error connecting to bitcoin node: url=" + url + ", error=" + e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public Optional<RpcRawTransactionResponse> getRawTransaction(String txid) {
+    try {
+      return fetchRawTransaction(txid);
+    } catch (Exception e) {
+      log.error("getRawTransaction error", e);
+      return Optional.empty();
+    }
+  }
+
+  /** Empty when tx is unknown to node, throws when node failed to answer. */
+  public Optional<RpcRawTransactionResponse> fetchRawTransaction(String txid) throws Exception {
+    try {
+      JsonNode rawTx = call("getrawtransaction", txid, true);
+      return Optional.of(computeRawTransactionResponse(rawTx));
+    } catch (RpcException e) {
+      if (e.getCode() == RPC_INVALID_ADDRESS_OR_KEY) {
+        return Optional.empty();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids)
+      throws Exception {
+    List<Object[]> paramsList = new ArrayList<>();
+    for (String txid : txids) {
+      paramsList.add(new Object[] {txid, true});
+    }
+    List<JsonNode> results = callBatch("getrawtransaction", paramsList);
+
+    Map<String, RpcRawTransactionResponse> rawTxs = new LinkedHashMap<>();
+    int i = 0;
+    for (String txid : txids) {
+      JsonNode rawTx = results.get(i++);
+      if (rawTx != null) {
+        rawTxs.put(txid, computeRawTransactionResponse(rawTx));
+      }
+    }
+    return rawTxs;
+  }
+
+  @Override
+  public int getBlockHeight() throws Exception {
+    return call("getblockcount").asInt();
+  }
+
+  @Override
+  public void broadcastTransaction(Transaction tx) throws BroadcastException {
+    String txid = tx.getHashAsString();
+    if (whirlpoolServerConfig.getRpcClient().isMockTxBroadcast()) {
+      log.warn("NOT broadcasting tx " + txid + "(server.rpc-client.mock-tx-broadcast=TRUE)");
+      return;
+    }
+
+    try {
+      log.info("Broadcasting tx " + txid);
+      call("sendrawtransaction", org.bitcoinj.core.Utils.HEX.encode(tx.bitcoinSerialize()));
+    } catch (RpcException e) {
+      // rejected by node
+      throw new BroadcastException(e.getMessage());
+    } catch (Exception e) {
+      // no response from node
+      log.error("broadcastTransaction error", e);
+      throw new BroadcastException(null);
+    }
+  }
+
+  private RpcRawTransactionResponse computeRawTransactionResponse(JsonNode rawTx) {
+    Integer confirmations =
+        rawTx.hasNonNull("confirmations") ? rawTx.get("confirmations").asInt() : null;
+    Long txTime = rawTx.hasNonNull("time") ? rawTx.get("time").asLong() * 1000 : null;
+    return new RpcRawTransactionResponse(rawTx.get("hex").asText(), confirmations, txTime);
+  }
+
+  protected JsonNode call(String method, Object... params) throws Exception {
+    JsonNode response = post(computeRequest(method, params));
+    JsonNode error = response.get("error");
+    if (error != null && !error.isNull()) {
+      throw new RpcException(error.path("code").asInt(), error.path("message").asText());
+    }
+    return response.get("result");
+  }
+
+  /** Sends all calls in one request. Results are in params order, null for calls in error. */
+  protected List<JsonNode> callBatch(String method, List<Object[]> paramsList) throws Exception {
+    if (paramsList.isEmpty()) {
+      return new ArrayList<>();
+    }
+    ArrayNode requests = objectMapper.createArrayNode();
+    for (Object[] params : paramsList) {
+      requests.add(computeRequest(method, params));
+    }
+    JsonNode responses = post(requests);
+    if (!responses.isArray()) {
+      throw new IOException("Invalid batch response: " + responses);
+    }
+
+    // responses may come in any order
+    Map<Long, JsonNode> resultsById = new HashMap<>();
+    for (JsonNode response : responses) {
+      JsonNode error = response.get("error");
+      if (error != null && !error.isNull()) {
+        if (error.path("code").asInt() != RPC_INVALID_ADDRESS_OR_KEY) {
+          log.warn(method + " error: " + error);
+        }
+        continue;
+      }
+      resultsById.put(response.get("id").asLong(), response.get("result"));
+    }
+    List<JsonNode> results = new ArrayList<>();
+    for (JsonNode request : requests) {
+      results.add(resultsById.get(request.get("id").asLong()));
+    }
+    return results;
+  }
+
+  private ObjectNode computeRequest(String method, Object[] params) {
+    ObjectNode request = objectMapper.createObjectNode();
+    request.put("jsonrpc", "1.0");
+    request.put("id", nextId.incrementAndGet());
+    request.put("method", method);
+    request.set("params", objectMapper.valueToTree(Arrays.asList(params)));
+    return request;
+  }
+
+  private JsonNode post(JsonNode payload) throws Exception {
+    if (!inFlightPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+      throw new IOException("Too many in-flight RPC requests");
+    }
+    try {
+      Request request =
+          new Request.Builder()
+              .url(url)
+              .header("Authorization", credentials)
+              .post(RequestBody.create(MEDIA_TYPE_JSON, objectMapper.writeValueAsBytes(payload)))
+              .build();
+      try (Response response = httpClient.newCall(request).execute()) {
+        // bitcoind replies RPC errors with HTTP 500 and a JSON body
+        ResponseBody body = response.body();
+        String content = body != null ? body.string() : "";
+        JsonNode result = null;
+        try {
+          result = objectMapper.readTree(content);
+        } catch (IOException e) {
+          // handled below
+        }
+        if (result == null) {
+          throw new IOException("Invalid RPC response: HTTP " + response.code() + " " + content);
+        }
+        return result;
+      }
+    } finally {
+      inFlightPermits.release();
+    }
+  }
+
+  private String getRpcChain() {
+    return whirlpoolServerConfig.isTestnet() ? CHAIN_TESTNET : CHAIN_MAINNET;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public int getNbInFlight() {
+    return whirlpoolServerConfig.getRpcClient().getMaxInFlight()
+        - inFlightPermits.availablePermits();
+  }
+
+  public int getNbConnections() {
+    return httpClient.connectionPool().connectionCount();
+  }
+}
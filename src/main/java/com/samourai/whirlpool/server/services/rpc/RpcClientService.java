@@ -1,6 +1,10 @@
 package com.samourai.whirlpool.server.services.rpc;
 
 import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import org.bitcoinj.core.Transaction;
 
@@ -9,5 +13,21 @@ public interface RpcClientService {
 
   Optional<RpcRawTransactionResponse> getRawTransaction(String txid);
 
+  /** Transactions found, by txid. */
+  default Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids)
+      throws Exception {
+    Map<String, RpcRawTransactionResponse> rawTxs = new LinkedHashMap<>();
+    for (String txid : txids) {
+      getRawTransaction(txid).ifPresent(rawTx -> rawTxs.put(txid, rawTx));
+    }
+    return rawTxs;
+  }
+
+  int getBlockHeight() throws Exception;
+
   void broadcastTransaction(Transaction tx) throws BroadcastException;
+
+  default Map<String, String> getMetrics() {
+    return Collections.emptyMap();
+  }
 }
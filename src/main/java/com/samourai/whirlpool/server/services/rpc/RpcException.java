@@ -0,0 +1,15 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+/** Error replied by bitcoind for a JSON-RPC call. */
+public class RpcException extends Exception {
+  private int code;
+
+  public RpcException(int code, String message) {
+    super(message);
+    this.code = code;
+  }
+
+  public int getCode() {
+    return code;
+  }
+}
@@ -2,6 +2,7 @@ package com.samourai.whirlpool.server.utils;
 
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.Charset;
+import java.sql.Connection;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,8 @@ public class DbUtils {
     }
     Resource resource = resourceLoader.getResource("classpath:" + fileName);
     EncodedResource encodedResource = new EncodedResource(resource, Charset.forName("UTF-8"));
-    ScriptUtils.executeSqlScript(datasource.getConnection(), encodedResource);
+    try (Connection connection = datasource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, encodedResource);
+    }
   }
 }
@@ -0,0 +1,40 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** LatencyMetric with lock-free counts per duration bucket, in milliseconds. */
+public class LatencyHistogram extends LatencyMetric {
+  private long[] bounds; // upper bounds (exclusive), ascending
+  private AtomicLongArray buckets; // last bucket counts durations >= last bound
+
+  public LatencyHistogram(long... bounds) {
+    super();
+    this.bounds = bounds;
+    this.buckets = new AtomicLongArray(bounds.length + 1);
+  }
+
+  @Override
+  public void record(long elapsedMs) {
+    super.record(elapsedMs);
+    int i = 0;
+    while (i < bounds.length && elapsedMs >= bounds[i]) {
+      i++;
+    }
+    buckets.incrementAndGet(i);
+  }
+
+  public long getBucketCount(int i) {
+    return buckets.get(i);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(super.toString());
+    sb.append(", histogram=[");
+    for (int i = 0; i < bounds.length; i++) {
+      sb.append("<" + bounds[i] + "ms:" + buckets.get(i) + ", ");
+    }
+    sb.append(">=" + bounds[bounds.length - 1] + "ms:" + buckets.get(bounds.length) + "]");
+    return sb.toString();
+  }
+}
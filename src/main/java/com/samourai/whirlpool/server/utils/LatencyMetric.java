@@ -0,0 +1,40 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Lock-free count/avg/max of durations, in milliseconds. */
+public class LatencyMetric {
+  private AtomicLong count;
+  private AtomicLong total;
+  private AtomicLong max;
+
+  public LatencyMetric() {
+    this.count = new AtomicLong(0);
+    this.total = new AtomicLong(0);
+    this.max = new AtomicLong(0);
+  }
+
+  public void record(long elapsedMs) {
+    count.incrementAndGet();
+    total.addAndGet(elapsedMs);
+    max.accumulateAndGet(elapsedMs, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getAverage() {
+    long nb = count.get();
+    return nb > 0 ? total.get() / nb : 0;
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + getCount() + ", avg=" + getAverage() + "ms, max=" + getMax() + "ms";
+  }
+}
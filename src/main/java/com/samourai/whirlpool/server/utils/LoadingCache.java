@@ -0,0 +1,170 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache with expiration, per value. Concurrent misses for the same key are coalesced
+ * into a single load. Null or non-cacheable values are returned but not cached.
+ */
+public class LoadingCache<K, V> {
+  private int maxSize;
+  private ToLongFunction<V> ttlMs; // not cached when <= 0
+  private LinkedHashMap<K, Entry<V>> entries; // access-order
+  private Map<K, CompletableFuture<V>> loading;
+
+  // metrics
+  private AtomicLong nbHits;
+  private AtomicLong nbMisses;
+  private AtomicLong nbCoalesced;
+  private AtomicLong nbEvicted;
+
+  public LoadingCache(int maxSize, long ttlMs, Predicate<V> cacheable) {
+    this(maxSize, value -> cacheable.test(value) ? ttlMs : 0);
+  }
+
+  public LoadingCache(int maxSize, ToLongFunction<V> ttlMs) {
+    this.maxSize = maxSize;
+    this.ttlMs = ttlMs;
+    this.entries =
+        new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > LoadingCache.this.maxSize) {
+              nbEvicted.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+    this.loading = new ConcurrentHashMap<>();
+
+    this.nbHits = new AtomicLong(0);
+    this.nbMisses = new AtomicLong(0);
+    this.nbCoalesced = new AtomicLong(0);
+    this.nbEvicted = new AtomicLong(0);
+  }
+
+  public V get(K key, Function<K, V> loader) {
+    V value = getIfPresent(key);
+    if (value != null) {
+      nbHits.incrementAndGet();
+      return value;
+    }
+
+    // single-flight
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> pending = loading.putIfAbsent(key, future);
+    if (pending != null) {
+      nbCoalesced.incrementAndGet();
+      return join(pending);
+    }
+    try {
+      // may have been loaded meanwhile
+      value = getIfPresent(key);
+      if (value != null) {
+        nbHits.incrementAndGet();
+      } else {
+        nbMisses.incrementAndGet();
+        value = loader.apply(key);
+        if (value != null) {
+          put(key, value);
+        }
+      }
+      future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key);
+    }
+  }
+
+  private V join(CompletableFuture<V> pending) {
+    try {
+      return pending.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw (RuntimeException) e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  public synchronized V getIfPresent(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() > entry.expiresAt) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.value;
+  }
+
+  public synchronized void put(K key, V value) {
+    long ttl = ttlMs.applyAsLong(value);
+    if (ttl <= 0) {
+      entries.remove(key);
+      return;
+    }
+    entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttl));
+  }
+
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  public long getNbHits() {
+    return nbHits.get();
+  }
+
+  public long getNbMisses() {
+    return nbMisses.get();
+  }
+
+  public long getNbCoalesced() {
+    return nbCoalesced.get();
+  }
+
+  public long getNbEvicted() {
+    return nbEvicted.get();
+  }
+
+  /** Hits (including coalesced misses) per lookup, in percent. */
+  public long getHitRate() {
+    long hits = nbHits.get() + nbCoalesced.get();
+    long total = hits + nbMisses.get();
+    return total > 0 ? hits * 100 / total : 0;
+  }
+
+  private static class Entry<V> {
+    private V value;
+    private long expiresAt;
+
+    Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
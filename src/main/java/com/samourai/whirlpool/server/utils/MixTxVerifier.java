@@ -0,0 +1,129 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.core.VarInt;
+import org.bitcoinj.crypto.TransactionSignature;
+
+/**
+ * Verifies P2WPKH witnesses of an unsigned mix tx. BIP143 midstates (hashPrevouts, hashSequence,
+ * hashOutputs) are computed once per tx instead of once per input. Thread-safe: the tx is not read
+ * after construction.
+ */
+public class MixTxVerifier {
+  private NetworkParameters params;
+  private byte[] unsignedTx;
+  private long version;
+  private long lockTime;
+  private byte[][] outpoints; // serialized outpoint by inputIndex
+  private long[] sequences;
+  private byte[] hashPrevouts;
+  private byte[] hashSequence;
+  private byte[] hashOutputs;
+
+  public MixTxVerifier(Transaction tx) {
+    this.params = tx.getParams();
+    this.unsignedTx = tx.bitcoinSerialize();
+    this.version = tx.getVersion();
+    this.lockTime = tx.getLockTime();
+
+    try {
+      List<TransactionInput> inputs = tx.getInputs();
+      this.outpoints = new byte[inputs.size()][];
+      this.sequences = new long[inputs.size()];
+      ByteArrayOutputStream bosPrevouts = new ByteArrayOutputStream(36 * inputs.size());
+      ByteArrayOutputStream bosSequence = new ByteArrayOutputStream(4 * inputs.size());
+      for (int i = 0; i < inputs.size(); i++) {
+        TransactionInput input = inputs.get(i);
+        ByteArrayOutputStream bosOutpoint = new ByteArrayOutputStream(36);
+        bosOutpoint.write(input.getOutpoint().getHash().getReversedBytes());
+        org.bitcoinj.core.Utils.uint32ToByteStreamLE(input.getOutpoint().getIndex(), bosOutpoint);
+        outpoints[i] = bosOutpoint.toByteArray();
+        sequences[i] = input.getSequenceNumber();
+        bosPrevouts.write(outpoints[i]);
+        org.bitcoinj.core.Utils.uint32ToByteStreamLE(sequences[i], bosSequence);
+      }
+      this.hashPrevouts = Sha256Hash.hashTwice(bosPrevouts.toByteArray());
+      this.hashSequence = Sha256Hash.hashTwice(bosSequence.toByteArray());
+
+      ByteArrayOutputStream bosOutputs = new ByteArrayOutputStream();
+      for (TransactionOutput output : tx.getOutputs()) {
+        org.bitcoinj.core.Utils.uint64ToByteStreamLE(
+            BigInteger.valueOf(output.getValue().getValue()), bosOutputs);
+        bosOutputs.write(new VarInt(output.getScriptBytes().length).encode());
+        bosOutputs.write(output.getScriptBytes());
+      }
+      this.hashOutputs = Sha256Hash.hashTwice(bosOutputs.toByteArray());
+    } catch (IOException e) {
+      throw new RuntimeException(e); // cannot happen with ByteArrayOutputStream
+    }
+  }
+
+  public static boolean isP2WPKH(byte[] scriptBytes) {
+    return scriptBytes.length == 22 && scriptBytes[0] == 0x00 && scriptBytes[1] == 0x14;
+  }
+
+  /** Verify a P2WPKH witness signed with SIGHASH_ALL. */
+  public void verifyP2WPKH(
+      int inputIndex, TransactionWitness witness, long value, byte[] scriptBytes) throws Exception {
+    if (!isP2WPKH(scriptBytes)) {
+      throw new Exception("Not a P2WPKH input");
+    }
+    if (witness.getPushCount() != 2) {
+      throw new Exception("Invalid witness pushCount: " + witness.getPushCount());
+    }
+    byte[] pubKey = witness.getPush(1);
+    byte[] pubKeyHash = Arrays.copyOfRange(scriptBytes, 2, 22);
+    if (!Arrays.equals(ECKey.fromPublicOnly(pubKey).getPubKeyHash(), pubKeyHash)) {
+      throw new Exception("Witness pubkey doesn't match input script");
+    }
+    TransactionSignature signature =
+        TransactionSignature.decodeFromBitcoin(witness.getPush(0), true, true);
+    if (signature.sigHashMode() != Transaction.SigHash.ALL || signature.anyoneCanPay()) {
+      throw new Exception("Unsupported sighash: " + signature.sighashFlags);
+    }
+    byte[] sigHash = hashForSignature(inputIndex, pubKeyHash, value, signature.sighashFlags);
+    if (!ECKey.verify(sigHash, signature, pubKey)) {
+      throw new Exception("Invalid signature");
+    }
+  }
+
+  /** BIP143 sighash for a P2WPKH input, from cached midstates. */
+  protected byte[] hashForSignature(int inputIndex, byte[] pubKeyHash, long value, int sigHashType)
+      throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(182);
+    org.bitcoinj.core.Utils.uint32ToByteStreamLE(version, bos);
+    bos.write(hashPrevouts);
+    bos.write(hashSequence);
+    bos.write(outpoints[inputIndex]);
+    // scriptCode: OP_DUP OP_HASH160 <pubKeyHash> OP_EQUALVERIFY OP_CHECKSIG
+    bos.write(new byte[] {0x19, 0x76, (byte) 0xa9, 0x14});
+    bos.write(pubKeyHash);
+    bos.write(new byte[] {(byte) 0x88, (byte) 0xac});
+    org.bitcoinj.core.Utils.uint64ToByteStreamLE(BigInteger.valueOf(value), bos);
+    org.bitcoinj.core.Utils.uint32ToByteStreamLE(sequences[inputIndex], bos);
+    bos.write(hashOutputs);
+    org.bitcoinj.core.Utils.uint32ToByteStreamLE(lockTime, bos);
+    org.bitcoinj.core.Utils.uint32ToByteStreamLE(sigHashType, bos);
+    return Sha256Hash.hashTwice(bos.toByteArray());
+  }
+
+  /** Private copy of the unsigned tx, for non-P2WPKH inputs. */
+  public Transaction copyUnsignedTx() {
+    return new Transaction(params, unsignedTx);
+  }
+
+  public int getNbInputs() {
+    return outpoints.length;
+  }
+}
@@ -0,0 +1,172 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Set of (txid, denomination) stored as primitive longs with open addressing: 40 bytes per entry
+ * (at most 2x with load factor), no object per entry.
+ */
+public class MixTxidSet {
+  private static final int STRIDE = 5; // 4 longs for 32-bytes txid + 1 for denomination
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final float MAX_LOAD = 0.5f;
+
+  private ReadWriteLock lock;
+  private long[] table; // denomination=0 for empty slots
+  private int capacity; // always a power of 2
+  private int size;
+
+  public MixTxidSet() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public MixTxidSet(int expectedSize) {
+    this.lock = new ReentrantReadWriteLock();
+    this.capacity = computeCapacity(expectedSize);
+    this.table = new long[capacity * STRIDE];
+    this.size = 0;
+  }
+
+  /** @return true when added, false when already present */
+  public boolean add(String txid, long denomination) {
+    checkDenomination(denomination);
+    long[] key = parseTxid(txid);
+    lock.writeLock().lock();
+    try {
+      if (find(table, capacity, key, denomination) >= 0) {
+        return false;
+      }
+      if (size + 1 > capacity * MAX_LOAD) {
+        resize(capacity * 2);
+      }
+      insert(table, capacity, key, denomination);
+      size++;
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean contains(String txid, long denomination) {
+    if (denomination <= 0) {
+      return false;
+    }
+    long[] key = parseTxid(txid);
+    lock.readLock().lock();
+    try {
+      return find(table, capacity, key, denomination) >= 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      this.capacity = INITIAL_CAPACITY;
+      this.table = new long[capacity * STRIDE];
+      this.size = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long getMemoryBytes() {
+    lock.readLock().lock();
+    try {
+      return (long) table.length * Long.BYTES;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void resize(int newCapacity) {
+    long[] newTable = new long[newCapacity * STRIDE];
+    long[] key = new long[4];
+    for (int slot = 0; slot < capacity; slot++) {
+      int offset = slot * STRIDE;
+      long denomination = table[offset + 4];
+      if (denomination != 0) {
+        System.arraycopy(table, offset, key, 0, 4);
+        insert(newTable, newCapacity, key, denomination);
+      }
+    }
+    this.table = newTable;
+    this.capacity = newCapacity;
+  }
+
+  private static int find(long[] table, int capacity, long[] key, long denomination) {
+    int mask = capacity - 1;
+    for (int slot = hash(key, denomination) & mask; ; slot = (slot + 1) & mask) {
+      int offset = slot * STRIDE;
+      long slotDenomination = table[offset + 4];
+      if (slotDenomination == 0) {
+        return -1;
+      }
+      if (slotDenomination == denomination
+          && table[offset] == key[0]
+          && table[offset + 1] == key[1]
+          && table[offset + 2] == key[2]
+          && table[offset + 3] == key[3]) {
+        return slot;
+      }
+    }
+  }
+
+  private static void insert(long[] table, int capacity, long[] key, long denomination) {
+    int mask = capacity - 1;
+    int slot = hash(key, denomination) & mask;
+    while (table[slot * STRIDE + 4] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    int offset = slot * STRIDE;
+    System.arraycopy(key, 0, table, offset, 4);
+    table[offset + 4] = denomination;
+  }
+
+  private static int hash(long[] key, long denomination) {
+    // txid is already uniformly distributed, just mix in denomination
+    long h = key[0] ^ (denomination * 0x9E3779B97F4A7C15L);
+    h ^= (h >>> 32);
+    return (int) h;
+  }
+
+  private static long[] parseTxid(String txid) {
+    if (txid == null || txid.length() != 64) {
+      throw new IllegalArgumentException("Invalid txid: " + txid);
+    }
+    long[] key = new long[4];
+    for (int i = 0; i < 64; i++) {
+      int digit = Character.digit(txid.charAt(i), 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException("Invalid txid: " + txid);
+      }
+      key[i >> 4] = (key[i >> 4] << 4) | digit;
+    }
+    return key;
+  }
+
+  private static void checkDenomination(long denomination) {
+    if (denomination <= 0) {
+      throw new IllegalArgumentException("Invalid denomination: " + denomination);
+    }
+  }
+
+  private static int computeCapacity(int expectedSize) {
+    int capacity = INITIAL_CAPACITY;
+    while (capacity * MAX_LOAD < expectedSize) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+}
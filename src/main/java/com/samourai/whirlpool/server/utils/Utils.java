@@ -78,9 +78,8 @@ public class Utils {
     return sortedMap;
   }
 
-  public static <K, V> Map.Entry<K, V> getRandomEntry(Map<K, V> map) {
-    Object entries[] = map.entrySet().toArray();
-    return (Map.Entry<K, V>) entries[secureRandom.nextInt(entries.length)];
+  public static int getRandomIndex(int size) {
+    return secureRandom.nextInt(size);
   }
 
   public static String computeInputId(TxOutPoint outPoint) {
@@ -0,0 +1,99 @@
+package com.samourai.whirlpool.server.utils.timeout;
+
+import java.lang.invoke.MethodHandles;
+import java.time.Clock;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Shared timer backing every {@link TimeoutWatcher}, instead of one thread per watcher. */
+public class TimeoutScheduler {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private Clock clock;
+  private ScheduledThreadPoolExecutor executor;
+
+  // metrics
+  private AtomicLong nbFired;
+  private AtomicLong lagTotal;
+  private AtomicLong lagMax;
+  private AtomicLong lagLast;
+
+  public TimeoutScheduler(Clock clock, int nbThreads) {
+    this.clock = clock;
+    this.executor = new ScheduledThreadPoolExecutor(nbThreads, computeThreadFactory());
+    this.executor.setRemoveOnCancelPolicy(true);
+
+    this.nbFired = new AtomicLong(0);
+    this.lagTotal = new AtomicLong(0);
+    this.lagMax = new AtomicLong(0);
+    this.lagLast = new AtomicLong(0);
+  }
+
+  private ThreadFactory computeThreadFactory() {
+    AtomicInteger threadId = new AtomicInteger(0);
+    return runnable -> {
+      Thread thread = new Thread(runnable, "timeout-" + threadId.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  public ScheduledFuture schedule(long delayMilliSeconds, Runnable runnable) {
+    long delay = Math.max(delayMilliSeconds, 0);
+    long expectedTime = clock.millis() + delay;
+    return executor.schedule(
+        () -> {
+          onFire(expectedTime);
+          try {
+            runnable.run();
+          } catch (Exception e) {
+            log.error("", e);
+          }
+        },
+        delay,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void onFire(long expectedTime) {
+    long lag = Math.max(clock.millis() - expectedTime, 0);
+    nbFired.incrementAndGet();
+    lagTotal.addAndGet(lag);
+    lagLast.set(lag);
+    lagMax.accumulateAndGet(lag, Math::max);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  public Clock getClock() {
+    return clock;
+  }
+
+  public int getNbPending() {
+    return executor.getQueue().size();
+  }
+
+  public long getNbFired() {
+    return nbFired.get();
+  }
+
+  public long getLagLast() {
+    return lagLast.get();
+  }
+
+  public long getLagMax() {
+    return lagMax.get();
+  }
+
+  public long getLagAverage() {
+    long fired = nbFired.get();
+    return fired > 0 ? lagTotal.get() / fired : 0;
+  }
+}
@@ -1,53 +1,59 @@
 package com.samourai.whirlpool.server.utils.timeout;
 
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class TimeoutWatcher implements Runnable {
+public class TimeoutWatcher {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private ITimeoutWatcherListener listener;
+  private TimeoutScheduler timeoutScheduler;
 
-  private long waitSince;
-  private boolean running;
-  private Thread thread;
+  private volatile long waitSince; // written by timer thread and callers
+  private volatile boolean running;
+  private ScheduledFuture scheduledFuture;
 
-  public TimeoutWatcher(ITimeoutWatcherListener listener) {
+  public TimeoutWatcher(ITimeoutWatcherListener listener, TimeoutScheduler timeoutScheduler) {
     this.listener = listener;
+    this.timeoutScheduler = timeoutScheduler;
 
-    this.waitSince = System.currentTimeMillis();
+    this.waitSince = currentTimeMillis();
     this.running = true;
+    this.scheduledFuture = null;
 
     // run
-    this.thread = new Thread(this);
-    this.thread.start();
+    schedule();
   }
 
-  @Override
-  public synchronized void run() {
-    while (running) {
+  private void run() {
+    if (!running) {
+      return;
+    }
 
-      // did we wait enough?
-      Long timeToWait = computeTimeToWait();
-      if (timeToWait == null) {
-        // no timer
-        try {
-          wait();
-        } catch (InterruptedException e) {
-        } // normal
-      } else {
-        if (timeToWait <= 0) {
-          // timer expired => notify
-          listener.onTimeout(this);
-          // reset timer
-          waitSince = System.currentTimeMillis();
-        } else {
-          try {
-            Thread.sleep(timeToWait);
-          } catch (InterruptedException e) {
-          } // normal
-        }
+    // did we wait enough?
+    Long timeToWait = computeTimeToWait();
+    if (timeToWait != null && timeToWait <= 0) {
+      // timer expired => notify
+      listener.onTimeout(this);
+      // reset timer
+      waitSince = currentTimeMillis();
+    }
+    schedule();
+  }
+
+  private void schedule() {
+    // listener is called outside of lock, as onTimeout() may call back resetTimeout()
+    Long timeToWait = running ? computeTimeToWait() : null;
+    synchronized (this) {
+      if (scheduledFuture != null) {
+        scheduledFuture.cancel(false);
+        scheduledFuture = null;
+      }
+      if (running && timeToWait != null) {
+        scheduledFuture = timeoutScheduler.schedule(timeToWait, () -> run());
       }
+      // else no timer, until resumeThread()
     }
   }
 
@@ -57,20 +63,20 @@ public class TimeoutWatcher implements Runnable {
   }
 
   public void resetTimeout() {
-    this.waitSince = System.currentTimeMillis();
+    this.waitSince = currentTimeMillis();
     resumeThread();
   }
 
   public void resumeThread() {
     try {
-      this.thread.interrupt(); // resume thread from sleep
+      schedule();
     } catch (Exception e) {
       log.error("", e);
     }
   }
 
   public void __simulateElapsedTime(long elapsedTimeSeconds) {
-    this.waitSince = (System.currentTimeMillis() - (elapsedTimeSeconds * 1000));
+    this.waitSince = (currentTimeMillis() - (elapsedTimeSeconds * 1000));
     if (log.isDebugEnabled()) {
       Long timeToWait = computeTimeToWait();
       log.debug(
@@ -83,8 +89,12 @@ public class TimeoutWatcher implements Runnable {
     resumeThread();
   }
 
+  private long currentTimeMillis() {
+    return timeoutScheduler.getClock().millis();
+  }
+
   public long computeElapsedTime() {
-    long elapsedTime = System.currentTimeMillis() - waitSince;
+    long elapsedTime = currentTimeMillis() - waitSince;
     return elapsedTime;
   }
 
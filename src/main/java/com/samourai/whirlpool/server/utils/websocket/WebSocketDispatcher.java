@@ -0,0 +1,208 @@
+package com.samourai.whirlpool.server.utils.websocket;
+
+import com.samourai.whirlpool.server.utils.LatencyMetric;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Outbound messages dispatcher: one bounded FIFO queue per connected session, drained by a fixed
+ * pool of workers. A session whose queue overflows is considered too slow: its messages are dropped
+ * and onSlowConsumer is notified to disconnect it.
+ */
+public class WebSocketDispatcher {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int MAX_SENDS_PER_DRAIN = 16; // fairness between sessions
+
+  private int maxQueuePerSession;
+  private ExecutorService workers;
+  private Map<String, SessionQueue> sessionQueues;
+  private Consumer<String> onSlowConsumer;
+
+  // metrics
+  private AtomicInteger nbQueued;
+  private AtomicLong nbDropped;
+  private AtomicLong nbSlowConsumers;
+  private LatencyMetric queueLatency;
+  private LatencyMetric sendLatency;
+
+  public WebSocketDispatcher(
+      int nbThreads, int maxQueuePerSession, Consumer<String> onSlowConsumer) {
+    this.maxQueuePerSession = maxQueuePerSession;
+    this.onSlowConsumer = onSlowConsumer;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ws-outbound-");
+    threadFactory.setDaemon(true);
+    this.workers =
+        new ThreadPoolExecutor(
+            nbThreads,
+            nbThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory);
+    this.sessionQueues = new ConcurrentHashMap<>();
+
+    this.nbQueued = new AtomicInteger(0);
+    this.nbDropped = new AtomicLong(0);
+    this.nbSlowConsumers = new AtomicLong(0);
+    this.queueLatency = new LatencyMetric();
+    this.sendLatency = new LatencyMetric();
+  }
+
+  public void onConnect(String username) {
+    sessionQueues.putIfAbsent(username, new SessionQueue(username));
+  }
+
+  public void send(String username, Runnable sendTask) {
+    SessionQueue sessionQueue = sessionQueues.get(username);
+    if (sessionQueue == null) {
+      // unknown or disconnected session
+      nbDropped.incrementAndGet();
+      return;
+    }
+    boolean scheduleDrain;
+    boolean slowConsumer = false;
+    synchronized (sessionQueue) {
+      if (sessionQueue.dropped) {
+        nbDropped.incrementAndGet();
+        return;
+      }
+      if (sessionQueue.messages.size() >= maxQueuePerSession) {
+        // slow consumer => drop pending messages, stop sending and disconnect
+        log.warn(
+            "dropping slow websocket consumer: username="
+                + username
+                + ", queued="
+                + sessionQueue.messages.size());
+        int nbMessages = sessionQueue.messages.size();
+        sessionQueue.messages.clear();
+        sessionQueue.dropped = true;
+        nbQueued.addAndGet(-nbMessages);
+        nbDropped.addAndGet(nbMessages + 1);
+        nbSlowConsumers.incrementAndGet();
+        scheduleDrain = false;
+        slowConsumer = true;
+      } else {
+        sessionQueue.messages.add(new QueuedMessage(sendTask));
+        nbQueued.incrementAndGet();
+        scheduleDrain = !sessionQueue.draining;
+        sessionQueue.draining = true;
+      }
+    }
+    if (slowConsumer) {
+      // disconnect it, out of caller thread (which may hold mix lock)
+      workers.execute(() -> disconnectSlowConsumer(username));
+      return;
+    }
+    if (scheduleDrain) {
+      workers.execute(() -> drain(sessionQueue));
+    }
+  }
+
+  private void disconnectSlowConsumer(String username) {
+    try {
+      onSlowConsumer.accept(username);
+    } catch (Exception e) {
+      log.error("unable to disconnect slow websocket consumer: username=" + username, e);
+    }
+  }
+
+  private void drain(SessionQueue sessionQueue) {
+    for (int i = 0; i < MAX_SENDS_PER_DRAIN; i++) {
+      QueuedMessage message;
+      synchronized (sessionQueue) {
+        message = sessionQueue.messages.poll();
+        if (message == null) {
+          sessionQueue.draining = false;
+          return;
+        }
+      }
+      nbQueued.decrementAndGet();
+      long sendStart = System.currentTimeMillis();
+      queueLatency.record(sendStart - message.queuedAt);
+      try {
+        message.sendTask.run();
+      } catch (Exception e) {
+        log.error("websocket send failed: username=" + sessionQueue.username, e);
+      }
+      sendLatency.record(System.currentTimeMillis() - sendStart);
+    }
+    // more messages pending => requeue, to let other sessions be served
+    workers.execute(() -> drain(sessionQueue));
+  }
+
+  public void onDisconnect(String username) {
+    SessionQueue sessionQueue = sessionQueues.remove(username);
+    if (sessionQueue != null) {
+      synchronized (sessionQueue) {
+        nbQueued.addAndGet(-sessionQueue.messages.size());
+        sessionQueue.messages.clear();
+        sessionQueue.dropped = true;
+      }
+    }
+  }
+
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  public int getNbSessions() {
+    return sessionQueues.size();
+  }
+
+  public int getNbQueued() {
+    return nbQueued.get();
+  }
+
+  public long getNbDropped() {
+    return nbDropped.get();
+  }
+
+  public long getNbSlowConsumers() {
+    return nbSlowConsumers.get();
+  }
+
+  public LatencyMetric getQueueLatency() {
+    return queueLatency;
+  }
+
+  public LatencyMetric getSendLatency() {
+    return sendLatency;
+  }
+
+  private static class SessionQueue {
+    private String username;
+    private Queue<QueuedMessage> messages;
+    private boolean draining;
+    private boolean dropped;
+
+    SessionQueue(String username) {
+      this.username = username;
+      this.messages = new ArrayDeque<>();
+      this.draining = false;
+      this.dropped = false;
+    }
+  }
+
+  private static class QueuedMessage {
+    private Runnable sendTask;
+    private long queuedAt;
+
+    QueuedMessage(Runnable sendTask) {
+      this.sendTask = sendTask;
+      this.queuedAt = System.currentTimeMillis();
+    }
+  }
+}
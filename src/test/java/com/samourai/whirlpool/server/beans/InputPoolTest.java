@@ -0,0 +1,130 @@
+package com.samourai.whirlpool.server.beans;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class InputPoolTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String HASH =
+      "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+
+  private RegisteredInput register(InputPool inputPool, int i) {
+    TxOutPoint txOutPoint = new TxOutPoint(HASH, i, 1000, 1, null, null);
+    RegisteredInput registeredInput =
+        new RegisteredInput("user" + i, false, txOutPoint, "127.0.0.1");
+    inputPool.register(registeredInput);
+    return registeredInput;
+  }
+
+  private void assertRemoved(InputPool inputPool, RegisteredInput registeredInput) {
+    Assert.assertFalse(inputPool.hasInput(registeredInput.getOutPoint()));
+    Assert.assertFalse(inputPool.findByUsername(registeredInput.getUsername()).isPresent());
+    Assert.assertFalse(inputPool.removeByUsername(registeredInput.getUsername()).isPresent());
+  }
+
+  private void assertQueued(InputPool inputPool, RegisteredInput registeredInput) {
+    Assert.assertTrue(inputPool.hasInput(registeredInput.getOutPoint()));
+    Assert.assertSame(
+        registeredInput, inputPool.findByUsername(registeredInput.getUsername()).get());
+  }
+
+  @Test
+  public void removeByUsername_last() throws Exception {
+    InputPool inputPool = new InputPool();
+    RegisteredInput input0 = register(inputPool, 0);
+    RegisteredInput input1 = register(inputPool, 1);
+    RegisteredInput input2 = register(inputPool, 2);
+
+    // remove last
+    Assert.assertSame(input2, inputPool.removeByUsername("user2").get());
+    Assert.assertEquals(2, inputPool.getSize());
+    assertRemoved(inputPool, input2);
+    assertQueued(inputPool, input0);
+    assertQueued(inputPool, input1);
+
+    Assert.assertSame(input1, inputPool.removeByUsername("user1").get());
+    Assert.assertSame(input0, inputPool.removeByUsername("user0").get());
+    Assert.assertFalse(inputPool.hasInputs());
+    Assert.assertFalse(inputPool.removeRandom().isPresent());
+  }
+
+  @Test
+  public void removeByUsername_middle() throws Exception {
+    InputPool inputPool = new InputPool();
+    RegisteredInput input0 = register(inputPool, 0);
+    RegisteredInput input1 = register(inputPool, 1);
+    RegisteredInput input2 = register(inputPool, 2);
+
+    // remove middle => last is swapped into its slot
+    Assert.assertSame(input1, inputPool.removeByUsername("user1").get());
+    Assert.assertEquals(2, inputPool.getSize());
+    assertRemoved(inputPool, input1);
+    assertQueued(inputPool, input0);
+    assertQueued(inputPool, input2);
+
+    // swapped input is still found at its new slot
+    Assert.assertSame(input2, inputPool.removeByUsername("user2").get());
+    assertRemoved(inputPool, input2);
+    assertQueued(inputPool, input0);
+
+    // same input can be queued again
+    RegisteredInput input1Again = register(inputPool, 1);
+    assertQueued(inputPool, input1Again);
+    Assert.assertEquals(2, inputPool.getSize());
+  }
+
+  @Test
+  public void removeRandom() throws Exception {
+    InputPool inputPool = new InputPool();
+    int nbInputs = 20;
+    Set<RegisteredInput> queued = new HashSet<>();
+    for (int i = 0; i < nbInputs; i++) {
+      queued.add(register(inputPool, i));
+    }
+
+    // interleave removeByUsername and removeRandom
+    Set<RegisteredInput> removed = new HashSet<>();
+    for (int i = 0; i < nbInputs; i += 3) {
+      Optional<RegisteredInput> byUsername = inputPool.removeByUsername("user" + i);
+      if (byUsername.isPresent()) {
+        Assert.assertTrue(removed.add(byUsername.get()));
+        assertRemoved(inputPool, byUsername.get());
+      }
+      Optional<RegisteredInput> random = inputPool.removeRandom();
+      if (random.isPresent()) {
+        Assert.assertTrue(removed.add(random.get()));
+        assertRemoved(inputPool, random.get());
+      }
+      Assert.assertEquals(nbInputs - removed.size(), inputPool.getSize());
+      for (RegisteredInput registeredInput : queued) {
+        if (!removed.contains(registeredInput)) {
+          assertQueued(inputPool, registeredInput);
+        }
+      }
+    }
+
+    // drain
+    Optional<RegisteredInput> random;
+    while ((random = inputPool.removeRandom()).isPresent()) {
+      Assert.assertTrue(removed.add(random.get()));
+      assertRemoved(inputPool, random.get());
+    }
+    Assert.assertEquals(queued, removed);
+    Assert.assertFalse(inputPool.hasInputs());
+  }
+}
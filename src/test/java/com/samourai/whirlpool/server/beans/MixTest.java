@@ -0,0 +1,119 @@
+package com.samourai.whirlpool.server.beans;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.lang.invoke.MethodHandles;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private ConfirmedInput computeConfirmedInput(
+      String username, String hash, long index, boolean liquidity) {
+    TxOutPoint txOutPoint =
+        new TxOutPoint(
+            hash, index, 99999, 99, null, testUtils.generateSegwitAddress().getBech32AsString());
+    return new ConfirmedInput(
+        new RegisteredInput(username, liquidity, txOutPoint, "127.0.0.1"), null);
+  }
+
+  private void assertInputs(Mix mix, int nbMustMix, int nbLiquidities) {
+    Assert.assertEquals(nbMustMix + nbLiquidities, mix.getNbInputs());
+    Assert.assertEquals(nbMustMix, mix.getNbInputsMustMix());
+    Assert.assertEquals(nbLiquidities, mix.getNbInputsLiquidities());
+  }
+
+  private void assertRegistered(Mix mix, ConfirmedInput confirmedInput, boolean registered) {
+    RegisteredInput registeredInput = confirmedInput.getRegisteredInput();
+    TxOutPoint txOutPoint = registeredInput.getOutPoint();
+    Assert.assertEquals(registered, mix.hasInput(txOutPoint));
+    Assert.assertEquals(
+        registered, mix.getInputByUsername(registeredInput.getUsername()).isPresent());
+    Assert.assertEquals(
+        registered, mix.getInputByAddress(txOutPoint.getToAddress().toUpperCase()).isPresent());
+    if (registered) {
+      Assert.assertSame(
+          confirmedInput, mix.getInputByUsername(registeredInput.getUsername()).get());
+      Assert.assertSame(confirmedInput, mix.getInputByAddress(txOutPoint.getToAddress()).get());
+    }
+  }
+
+  @Test
+  public void registerInput() throws Exception {
+    Mix mix = __nextMix(serverConfig.getPools()[0]);
+    String hash1 = Utils.getRandomString(65);
+    String hash2 = Utils.getRandomString(65);
+    ConfirmedInput mustMix1 = computeConfirmedInput("mustMix1", hash1, 0, false);
+    ConfirmedInput mustMix2 = computeConfirmedInput("mustMix2", hash1, 1, false);
+    ConfirmedInput liquidity1 = computeConfirmedInput("liquidity1", hash2, 0, true);
+
+    mix.registerInput(mustMix1);
+    mix.registerInput(mustMix2);
+    mix.registerInput(liquidity1);
+    assertInputs(mix, 2, 1);
+    assertRegistered(mix, mustMix1, true);
+    assertRegistered(mix, mustMix2, true);
+    assertRegistered(mix, liquidity1, true);
+    Assert.assertEquals(2, mix.getNbInputsByHash(hash1));
+    Assert.assertEquals(1, mix.getNbInputsByHash(hash2));
+
+    // already registered
+    try {
+      mix.registerInput(mustMix1);
+      Assert.fail();
+    } catch (IllegalInputException e) {
+      Assert.assertEquals("input already registered", e.getMessage());
+    }
+    assertInputs(mix, 2, 1);
+  }
+
+  @Test
+  public void unregisterInput() throws Exception {
+    Mix mix = __nextMix(serverConfig.getPools()[0]);
+    String hash1 = Utils.getRandomString(65);
+    String hash2 = Utils.getRandomString(65);
+    ConfirmedInput mustMix1 = computeConfirmedInput("mustMix1", hash1, 0, false);
+    ConfirmedInput mustMix2 = computeConfirmedInput("mustMix2", hash1, 1, false);
+    ConfirmedInput liquidity1 = computeConfirmedInput("liquidity1", hash2, 0, true);
+    mix.registerInput(mustMix1);
+    mix.registerInput(mustMix2);
+    mix.registerInput(liquidity1);
+
+    mix.unregisterInput(mustMix1);
+    assertInputs(mix, 1, 1);
+    assertRegistered(mix, mustMix1, false);
+    assertRegistered(mix, mustMix2, true);
+    Assert.assertEquals(1, mix.getNbInputsByHash(hash1));
+
+    mix.unregisterInput(liquidity1);
+    assertInputs(mix, 1, 0);
+    assertRegistered(mix, liquidity1, false);
+    Assert.assertEquals(0, mix.getNbInputsByHash(hash2));
+
+    // not registered => no change
+    mix.unregisterInput(liquidity1);
+    assertInputs(mix, 1, 0);
+
+    mix.unregisterInput(mustMix2);
+    assertInputs(mix, 0, 0);
+    assertRegistered(mix, mustMix2, false);
+    Assert.assertEquals(0, mix.getNbInputsByHash(hash1));
+
+    // registered again
+    mix.registerInput(mustMix1);
+    assertInputs(mix, 1, 0);
+    assertRegistered(mix, mustMix1, true);
+  }
+}
@@ -25,6 +25,7 @@ import java.lang.invoke.MethodHandles;
 import org.bitcoinj.core.NetworkParameters;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.rules.ExpectedException;
@@ -86,6 +87,12 @@ public abstract class AbstractIntegrationTest {
 
   @Autowired protected BlameService blameService;
 
+  @Autowired protected BanService banService;
+
+  @Autowired protected MixStatsService mixStatsService;
+
+  @Autowired protected MixRollupService mixRollupService;
+
   protected MessageSignUtilGeneric messageSignUtil = MessageSignUtilGeneric.getInstance();
 
   protected MixLimitsService mixLimitsService;
@@ -107,13 +114,23 @@ public abstract class AbstractIntegrationTest {
     messageSignUtil = MessageSignUtilGeneric.getInstance();
 
     dbService.__reset();
+    banService.__reset();
+    blameService.__reset();
+    mixStatsService.__reset();
+    mixRollupService.__reset();
     mixLimitsService = mixService.__getMixLimitsService();
     rpcClientService.resetMock();
+    blockchainDataService.__reset();
 
     configurePools(serverConfig.getPools());
     cacheService._reset();
   }
 
+  /** Benchmarks are skipped unless run with -Pbenchmark. */
+  protected void assumeBenchmark() {
+    Assume.assumeTrue("benchmark disabled, run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+  }
+
   protected void configurePools(WhirlpoolServerConfig.PoolConfig... poolConfigs) {
     poolService.__reset(poolConfigs);
     mixService.__reset();
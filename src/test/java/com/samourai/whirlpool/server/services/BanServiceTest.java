@@ -5,7 +5,9 @@ import static org.springframework.boot.test.context.SpringBootTest.WebEnvironmen
 import com.samourai.whirlpool.server.beans.BlameReason;
 import com.samourai.whirlpool.server.beans.ConfirmedInput;
 import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.persistence.repositories.BanRepository;
 import com.samourai.whirlpool.server.persistence.repositories.BlameRepository;
+import com.samourai.whirlpool.server.persistence.to.BanTO;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.sql.Timestamp;
@@ -25,7 +27,7 @@ public class BanServiceTest extends AbstractIntegrationTest {
 
   @Autowired private BlameRepository blameRepository;
   @Autowired private BlameService blameService;
-  @Autowired private BanService banService;
+  @Autowired private BanRepository banRepository;
 
   private static final int EXPIRATION_MS = 1000 * 1000;
 
@@ -131,6 +133,34 @@ public class BanServiceTest extends AbstractIntegrationTest {
         banService.findActiveBan(UTXO_HASH, UTXO_INDEX, afterExpiration).isPresent());
   }
 
+  // RELOAD
+
+  @Test
+  public void reload() throws Exception {
+    final String UTXO_HASH = "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+    final long UTXO_INDEX = 2;
+    String identifier = Utils.computeBlameIdentitifer(UTXO_HASH, UTXO_INDEX, true);
+    long nbReloads = banService.getNbReloads();
+
+    // ban inserted by operator => active after reload
+    BanTO banTO = dbService.saveBan(identifier, null, null, "operator");
+    Assert.assertFalse(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+    banService.reload();
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+    Assert.assertEquals(nbReloads + 1, banService.getNbReloads());
+
+    // ban deleted by operator => inactive after reload
+    banRepository.delete(banTO);
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+    banService.reload();
+    Assert.assertFalse(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+
+    // bans from service are kept
+    banService.banPermanent(identifier, null, "service");
+    banService.reload();
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+  }
+
   // PERMANENT BAN
 
   @Test
@@ -235,4 +265,82 @@ public class BanServiceTest extends AbstractIntegrationTest {
     // other inputs are not banned
     Assert.assertFalse(banService.findActiveBan("foo", UTXO_INDEX).isPresent());
   }
+
+  @Test
+  public void findActiveBan_index() throws Exception {
+    final String UTXO_HASH = "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+    final String UTXO_HASH_EXPIRING =
+        "7ea75da574ebabf8d17979615b059ab53aae3011926426204e730d164a0d0f16";
+    final long UTXO_INDEX = 2;
+
+    // bans saved before startup
+    dbService.saveBan(
+        Utils.computeBlameIdentitifer(UTXO_HASH, UTXO_INDEX, true), null, null, "permanent");
+    dbService.saveBan(
+        Utils.computeBlameIdentitifer(UTXO_HASH_EXPIRING, UTXO_INDEX, true),
+        new Timestamp(System.currentTimeMillis() + 500),
+        null,
+        "expiring");
+    dbService.saveBan(
+        Utils.computeBlameIdentitifer(UTXO_HASH_EXPIRING, 0, true),
+        new Timestamp(System.currentTimeMillis() - 1000),
+        null,
+        "expired");
+
+    // load active bans
+    BanService banService = new BanService(dbService, serverConfig);
+    Assert.assertEquals(2, banService.getNbActiveBans());
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH_EXPIRING, UTXO_INDEX).isPresent());
+    Assert.assertFalse(banService.findActiveBan(UTXO_HASH_EXPIRING, 0).isPresent());
+
+    // aged out on expiration
+    Thread.sleep(600);
+    Assert.assertFalse(banService.findActiveBan(UTXO_HASH_EXPIRING, UTXO_INDEX).isPresent());
+    Assert.assertEquals(1, banService.getNbActiveBans());
+
+    // new bans are indexed
+    banService.banTemporary(Utils.computeBlameIdentitifer(UTXO_HASH_EXPIRING, 0, true), null, null);
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH_EXPIRING, 0).isPresent());
+    Assert.assertEquals(2, banService.getNbActiveBans());
+
+    // metrics
+    Assert.assertEquals(5, banService.getNbChecks());
+    Assert.assertEquals(3, banService.getNbHits());
+    Assert.assertEquals(60, banService.getHitRate());
+  }
+
+  @Test
+  public void blame_reloadRecentBlames() throws Exception {
+    // server.ban.blames = 2
+    // server.ban.period = 1OO
+
+    final String UTXO_HASH = "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+    final long UTXO_INDEX = 2;
+
+    ConfirmedInput confirmedInput = testUtils.computeConfirmedInput(UTXO_HASH, UTXO_INDEX, true);
+    String identifier = Utils.computeBlameIdentitifer(confirmedInput);
+
+    // blame 1/2 before restart
+    dbService.saveBlame(identifier, BlameReason.DISCONNECT, "foo", null);
+    dbService.saveBlame("other", BlameReason.DISCONNECT, "foo", null);
+
+    // recent blames restored on startup
+    BlameService blameService = new BlameService(dbService, banService, serverConfig);
+    Assert.assertEquals(2, blameService.getNbBlameWindows());
+    Assert.assertFalse(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+
+    // blame 2/2 => banned
+    blameService.blame(confirmedInput, BlameReason.SIGNING, "foo");
+    Assert.assertTrue(banService.findActiveBan(UTXO_HASH, UTXO_INDEX).isPresent());
+
+    // blame persisted asynchronously
+    for (int i = 0; i < 50 && blameService.getNbPendingWrites() > 0; i++) {
+      Thread.sleep(100);
+    }
+    Assert.assertEquals(0, blameService.getNbPendingWrites());
+    Assert.assertEquals(
+        3,
+        dbService.findBlamesCreatedAfter(new Timestamp(System.currentTimeMillis() - 10000)).size());
+  }
 }
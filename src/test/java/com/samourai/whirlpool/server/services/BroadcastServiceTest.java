@@ -0,0 +1,163 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bitcoinj.core.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class BroadcastServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private int retryDelay;
+  private List<BroadcastService> broadcastServices = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    retryDelay = serverConfig.getBroadcast().getRetryDelay();
+    serverConfig.getBroadcast().setRetryDelay(0);
+  }
+
+  @After
+  @Override
+  public void tearDown() {
+    super.tearDown();
+    serverConfig.getBroadcast().setRetryDelay(retryDelay);
+    broadcastServices.forEach(BroadcastService::stop);
+    broadcastServices.clear();
+  }
+
+  private BroadcastService newBroadcastService(RpcClientService rpc) {
+    BroadcastService broadcastService = new BroadcastService(rpc, serverConfig);
+    broadcastServices.add(broadcastService);
+    return broadcastService;
+  }
+
+  @Test
+  public void broadcast_retryOnNoResponse() throws Exception {
+    // node not responding twice
+    StubRpcClientService rpc = new StubRpcClientService(2, null);
+    BroadcastService broadcastService = newBroadcastService(rpc);
+
+    broadcastService.broadcast(new Transaction(params)).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(3, rpc.nbCalls.get());
+    Assert.assertEquals(1, broadcastService.getNbSuccess());
+    Assert.assertEquals(2, broadcastService.getNbRetries());
+    Assert.assertEquals(0, broadcastService.getNbPending());
+    Assert.assertEquals(1, broadcastService.getLatency().getCount());
+  }
+
+  @Test
+  public void broadcast_failOnRejected() throws Exception {
+    // node rejecting tx
+    StubRpcClientService rpc = new StubRpcClientService(10, "bad-txns-inputs-missingorspent");
+    BroadcastService broadcastService = newBroadcastService(rpc);
+
+    try {
+      broadcastService.broadcast(new Transaction(params)).get(5, TimeUnit.SECONDS);
+      Assert.assertTrue(false);
+    } catch (ExecutionException e) {
+      BroadcastException broadcastException = (BroadcastException) e.getCause();
+      Assert.assertEquals("bad-txns-inputs-missingorspent", broadcastException.getFailInfo());
+    }
+    Assert.assertEquals(1, rpc.nbCalls.get()); // no retry
+    Assert.assertEquals(1, broadcastService.getNbFailed());
+  }
+
+  @Test
+  public void broadcast_failOnMaxAttempts() throws Exception {
+    int maxAttempts = serverConfig.getBroadcast().getMaxAttempts();
+    StubRpcClientService rpc = new StubRpcClientService(maxAttempts, null);
+    BroadcastService broadcastService = newBroadcastService(rpc);
+
+    try {
+      broadcastService.broadcast(new Transaction(params)).get(5, TimeUnit.SECONDS);
+      Assert.assertTrue(false);
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof BroadcastException);
+    }
+    Assert.assertEquals(maxAttempts, rpc.nbCalls.get());
+    Assert.assertEquals(1, broadcastService.getNbFailed());
+  }
+
+  @Test
+  public void broadcast_successOnAlreadyBroadcast() throws Exception {
+    StubRpcClientService rpc = new StubRpcClientService(1, "txn-already-in-mempool");
+    BroadcastService broadcastService = newBroadcastService(rpc);
+
+    broadcastService.broadcast(new Transaction(params)).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(1, broadcastService.getNbSuccess());
+  }
+
+  @Test
+  public void broadcast_failOnStopped() throws Exception {
+    // executor stopped => attempt rejected
+    StubRpcClientService rpc = new StubRpcClientService(10, null);
+    BroadcastService broadcastService = newBroadcastService(rpc);
+    broadcastService.stop();
+
+    try {
+      broadcastService.broadcast(new Transaction(params)).get(5, TimeUnit.SECONDS);
+      Assert.assertTrue(false);
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof BroadcastException);
+    }
+    Assert.assertEquals(0, rpc.nbCalls.get());
+    Assert.assertEquals(1, broadcastService.getNbFailed());
+    Assert.assertEquals(0, broadcastService.getNbPending());
+  }
+
+  private static class StubRpcClientService implements RpcClientService {
+    private int nbFailures;
+    private String failInfo;
+    private AtomicInteger nbCalls = new AtomicInteger(0);
+
+    StubRpcClientService(int nbFailures, String failInfo) {
+      this.nbFailures = nbFailures;
+      this.failInfo = failInfo;
+    }
+
+    @Override
+    public boolean testConnectivity() {
+      return true;
+    }
+
+    @Override
+    public Optional<RpcRawTransactionResponse> getRawTransaction(String txid) {
+      return Optional.empty();
+    }
+
+    @Override
+    public int getBlockHeight() {
+      return 0;
+    }
+
+    @Override
+    public void broadcastTransaction(Transaction tx) throws BroadcastException {
+      if (nbCalls.incrementAndGet() <= nbFailures) {
+        throw new BroadcastException(failInfo);
+      }
+    }
+  }
+}
@@ -55,7 +55,7 @@ public class ConfirmInputServiceTest extends AbstractMixIntegrationTest {
         cryptoService.signBlindedOutput(blindedBordereau, mix.getKeyPair());
 
     // REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.__setMixStatusAndTime(mix, MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
     byte[] unblindedSignedBordereau =
         clientCryptoService.unblind(signedBlindedBordereau, blindingParams);
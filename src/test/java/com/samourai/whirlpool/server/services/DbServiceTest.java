@@ -0,0 +1,58 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.persistence.to.MixHistoryTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class DbServiceTest extends AbstractIntegrationTest {
+  @Autowired private MixPersistService mixPersistService;
+
+  private List<String> mixIds(List<MixHistoryTO> mixs) {
+    return mixs.stream().map(mix -> mix.getMixId()).collect(Collectors.toList());
+  }
+
+  @Test
+  public void findMixHistory() throws Exception {
+    List<String> mixIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Mix mix = __nextMix(serverConfig.getPools()[0]);
+      mix.getLock().lock();
+      try {
+        dbService.saveMix(mix);
+      } finally {
+        mix.getLock().unlock();
+      }
+      mixPersistService.flush(); // persist in order
+      mixIds.add(0, mix.getMixId()); // latest first
+    }
+
+    // seek to older pages
+    List<MixHistoryTO> page1 = dbService.findMixHistoryBefore(null, 2);
+    Assert.assertEquals(mixIds.subList(0, 2), mixIds(page1));
+    List<MixHistoryTO> page2 = dbService.findMixHistoryBefore(page1.get(1).getId(), 2);
+    Assert.assertEquals(mixIds.subList(2, 4), mixIds(page2));
+    List<MixHistoryTO> page3 = dbService.findMixHistoryBefore(page2.get(1).getId(), 2);
+    Assert.assertEquals(mixIds.subList(4, 5), mixIds(page3));
+
+    // seek back to newer page
+    List<MixHistoryTO> newer = dbService.findMixHistoryAfter(page3.get(0).getId(), 2);
+    Assert.assertEquals(mixIds.subList(2, 4), mixIds(newer));
+
+    // no tx yet
+    Assert.assertNull(page1.get(0).getTxid());
+    Assert.assertFalse(dbService.findMixRawTx(mixIds.get(0)).isPresent());
+  }
+}
@@ -0,0 +1,100 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.lang.invoke.MethodHandles;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class FeeAddressServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int WINDOW = 10;
+  private static final long WAIT_MAX = 5000;
+
+  @Autowired private BackendService backendService;
+
+  private int window;
+  private FeeAddressService feeAddressService;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    window = serverConfig.getFeeAddresses().getWindow();
+    serverConfig.getFeeAddresses().setWindow(WINDOW);
+    feeAddressService =
+        new FeeAddressService(backendService, serverConfig, formatsUtil, cryptoService);
+  }
+
+  @After
+  public void tearDown() {
+    super.tearDown();
+    feeAddressService.stop();
+    serverConfig.getFeeAddresses().setWindow(window);
+  }
+
+  private String computeFeeAddress(int x) {
+    return Utils.computeXpubAddressBech32(x, serverConfig.getSamouraiFees().getXpub(), params);
+  }
+
+  private void waitWindow(int start, int end) throws Exception {
+    long deadline = System.currentTimeMillis() + WAIT_MAX;
+    while ((feeAddressService.getWindowEnd() != end
+            || feeAddressService.getNbAddresses() != end - start)
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(end, feeAddressService.getWindowEnd());
+    Assert.assertEquals(end - start, feeAddressService.getNbAddresses());
+  }
+
+  @Test
+  public void getFeeAddress() throws Exception {
+    // initial window [0, WINDOW[
+    waitWindow(0, WINDOW);
+    for (int x = 0; x < WINDOW; x++) {
+      Assert.assertEquals(computeFeeAddress(x), feeAddressService.getFeeAddress(x));
+    }
+    Assert.assertEquals(WINDOW, feeAddressService.getNbHits());
+    Assert.assertEquals(0, feeAddressService.getNbMisses());
+
+    // out of window
+    Assert.assertEquals(computeFeeAddress(WINDOW), feeAddressService.getFeeAddress(WINDOW));
+    Assert.assertEquals(1, feeAddressService.getNbMisses());
+  }
+
+  @Test
+  public void onAccountIndex() throws Exception {
+    waitWindow(0, WINDOW);
+
+    // account index moved => window slides to [index - WINDOW, index + WINDOW[
+    int index = 100;
+    feeAddressService.onAccountIndex(index);
+    Assert.assertEquals(index, feeAddressService.getAccountIndex());
+    waitWindow(index - WINDOW, index + WINDOW);
+    for (int x = index - WINDOW; x < index + WINDOW; x++) {
+      Assert.assertEquals(computeFeeAddress(x), feeAddressService.getFeeAddress(x));
+    }
+    Assert.assertEquals(WINDOW * 2, feeAddressService.getNbHits());
+    Assert.assertEquals(0, feeAddressService.getNbMisses());
+
+    // evicted addresses are still derived
+    Assert.assertEquals(computeFeeAddress(0), feeAddressService.getFeeAddress(0));
+    Assert.assertEquals(1, feeAddressService.getNbMisses());
+
+    // account index never moves backward
+    feeAddressService.onAccountIndex(index - 1);
+    Assert.assertEquals(index, feeAddressService.getAccountIndex());
+  }
+}
@@ -428,4 +428,24 @@ public class FeeValidationServiceTest extends AbstractIntegrationTest {
     Assert.assertEquals(
         null, feeValidationService.getScodeByFeePayload(Utils.feePayloadShortToBytes((short) -1)));
   }
+
+  @Test
+  public void getScodeByFeePayload_configChanged() throws Exception {
+    byte[] fooPayload = Utils.feePayloadShortToBytes(SCODE_FOO_PAYLOAD);
+    byte[] newPayload = Utils.feePayloadShortToBytes((short) 4321);
+    Assert.assertEquals(SCODE_FOO, feeValidationService.getScodeByFeePayload(fooPayload));
+    Assert.assertNull(feeValidationService.getScodeByFeePayload(newPayload));
+
+    // configuration replaced => index rebuilt
+    Map<String, Short> feePayloadByScode = new HashMap<>();
+    feePayloadByScode.put("new", (short) 4321);
+    serverConfig.getSamouraiFees().setFeePayloadByScode(feePayloadByScode);
+    Assert.assertEquals("new", feeValidationService.getScodeByFeePayload(newPayload));
+    Assert.assertNull(feeValidationService.getScodeByFeePayload(fooPayload));
+
+    // scode added to current configuration => index rebuilt
+    feePayloadByScode.put(SCODE_FOO, SCODE_FOO_PAYLOAD);
+    Assert.assertEquals(SCODE_FOO, feeValidationService.getScodeByFeePayload(fooPayload));
+    Assert.assertEquals("new", feeValidationService.getScodeByFeePayload(newPayload));
+  }
 }
@@ -122,6 +122,28 @@ public class InputValidationServiceTest extends AbstractIntegrationTest {
     doCheckInput("b3557587f87bcbd37e847a0fff0ded013b23026f153d85f28cb5d407d39ef2f3", 2);
   }
 
+  @Test
+  public void checkInput_tx0VerdictCached() throws Exception {
+    String txid = "b3557587f87bcbd37e847a0fff0ded013b23026f153d85f28cb5d407d39ef2f3";
+    RpcTransaction rpcTransaction = blockchainDataService.getRpcTransaction(txid).get();
+    PoolFee poolFee = new PoolFee(FEES_VALID, null);
+    long nbMisses = inputValidationService.getTx0Verdicts().getNbMisses();
+
+    // same tx0 for each premix output => decoded once
+    for (int i = 0; i < 8; i++) {
+      long inputValue = rpcTransaction.getTx().getOutput(i).getValue().getValue();
+      Assert.assertFalse(
+          inputValidationService.checkInputProvenance(
+              rpcTransaction, inputValue, "cached", poolFee, false));
+    }
+    Assert.assertEquals(nbMisses + 1, inputValidationService.getTx0Verdicts().getNbMisses());
+
+    // pool fee reconfigured => decoded again
+    PoolFee newPoolFee = new PoolFee(FEES_VALID, null);
+    inputValidationService.checkInputProvenance(rpcTransaction, 0, "cached", newPoolFee, false);
+    Assert.assertEquals(nbMisses + 2, inputValidationService.getTx0Verdicts().getNbMisses());
+  }
+
   private boolean doCheckInput(String utxoHash, long utxoIndex) throws IllegalInputException {
     RpcTransaction rpcTransaction =
         blockchainDataService
@@ -132,7 +154,7 @@ public class InputValidationServiceTest extends AbstractIntegrationTest {
     boolean hasMixTxid = hasMixTxid(utxoHash, inputValue);
     boolean isLiquidity =
         inputValidationService.checkInputProvenance(
-            rpcTransaction, inputValue, poolFee, hasMixTxid);
+            rpcTransaction, inputValue, "test", poolFee, hasMixTxid);
     return isLiquidity;
   }
 }
@@ -0,0 +1,48 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.MixKey;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.lang.invoke.MethodHandles;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixKeyServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Autowired private MixKeyService mixKeyService;
+
+  @Test
+  public void nextMixKey_shouldRefill() throws Exception {
+    String poolId = Utils.generateUniqueString();
+    int poolSize = serverConfig.getMixKeys().getPoolSize();
+
+    // unknown pool => generated now
+    long nbMisses = mixKeyService.getNbMisses();
+    MixKey mixKey1 = mixKeyService.nextMixKey(poolId);
+    Assert.assertEquals(nbMisses + 1, mixKeyService.getNbMisses());
+
+    // wait for refill
+    for (int i = 0; i < 100 && mixKeyService.getNbReady(poolId) < poolSize; i++) {
+      Thread.sleep(100);
+    }
+    Assert.assertEquals(poolSize, mixKeyService.getNbReady(poolId));
+
+    // served from ready keys
+    MixKey mixKey2 = mixKeyService.nextMixKey(poolId);
+    Assert.assertEquals(nbMisses + 1, mixKeyService.getNbMisses());
+    Assert.assertNotEquals(mixKey1.getKeyPair(), mixKey2.getKeyPair());
+    Assert.assertArrayEquals(
+        cryptoService.computePublicKey(mixKey2.getKeyPair()).getEncoded(), mixKey2.getPublicKey());
+  }
+}
@@ -0,0 +1,124 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.persistence.repositories.MixOutputRepository;
+import java.io.File;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixOutputFilterServiceTest extends AbstractIntegrationTest {
+  private static final String ADDRESS1 = "tb1qjxzp9z2ax8mg9820xc4pm2c8aasx0fsaw4v76n";
+  private static final String ADDRESS2 = "tb1qk5dzhxpcwsmcdu8d6zsmkkqkqfqcf6sxyjvwsz";
+
+  @Autowired private MixOutputRepository mixOutputRepository;
+
+  private WhirlpoolServerConfig config;
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("mix-output-filter", ".bin");
+    file.delete();
+
+    WhirlpoolServerConfig.MixOutputFilterConfig filterConfig =
+        new WhirlpoolServerConfig.MixOutputFilterConfig();
+    filterConfig.setExpectedInsertions(1000);
+    filterConfig.setFpp(0.001);
+    filterConfig.setFile(file.getAbsolutePath());
+    filterConfig.setSaveDelay(0); // save manually
+    filterConfig.setRecentSize(10);
+    config = new WhirlpoolServerConfig();
+    config.setMixOutputFilter(filterConfig);
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void hasMixOutput() throws Exception {
+    MixOutputFilterService mixOutputFilterService =
+        new MixOutputFilterService(mixOutputRepository, config);
+
+    // never seen: answered in memory
+    Assert.assertFalse(mixOutputFilterService.hasMixOutput(ADDRESS1));
+    Assert.assertEquals(1, mixOutputFilterService.getNbNegatives());
+    Assert.assertEquals(0, mixOutputFilterService.getNbDbQueries());
+
+    // recently saved: answered in memory
+    mixOutputFilterService.saveMixOutput(ADDRESS1);
+    Assert.assertTrue(mixOutputFilterService.hasMixOutput(ADDRESS1));
+    Assert.assertEquals(1, mixOutputFilterService.getNbRecentHits());
+    Assert.assertEquals(0, mixOutputFilterService.getNbDbQueries());
+    Assert.assertFalse(mixOutputFilterService.hasMixOutput(ADDRESS2));
+
+    // rebuilt from database: confirmed by database
+    mixOutputFilterService = new MixOutputFilterService(mixOutputRepository, config);
+    Assert.assertTrue(mixOutputFilterService.hasMixOutput(ADDRESS1));
+    Assert.assertEquals(1, mixOutputFilterService.getNbDbQueries());
+    Assert.assertEquals(0, mixOutputFilterService.getNbFalsePositives());
+    Assert.assertFalse(mixOutputFilterService.hasMixOutput(ADDRESS2));
+  }
+
+  @Test
+  public void restoreSnapshot() throws Exception {
+    MixOutputFilterService mixOutputFilterService =
+        new MixOutputFilterService(mixOutputRepository, config);
+    mixOutputFilterService.saveMixOutput(ADDRESS1);
+    mixOutputFilterService.saveSnapshot();
+    Assert.assertTrue(file.exists());
+
+    // saved after snapshot: caught up from database
+    mixOutputFilterService.saveMixOutput(ADDRESS2);
+
+    mixOutputFilterService = new MixOutputFilterService(mixOutputRepository, config);
+    Assert.assertTrue(mixOutputFilterService.hasMixOutput(ADDRESS1));
+    Assert.assertTrue(mixOutputFilterService.hasMixOutput(ADDRESS2));
+    Assert.assertEquals(2, mixOutputFilterService.getCount());
+  }
+
+  @Test
+  public void restoreSnapshot_staleDatabase() throws Exception {
+    MixOutputFilterService mixOutputFilterService =
+        new MixOutputFilterService(mixOutputRepository, config);
+    mixOutputFilterService.saveMixOutput(ADDRESS1);
+    mixOutputFilterService.saveSnapshot();
+
+    // database replaced: snapshot doesn't match, filter is rebuilt
+    mixOutputRepository.deleteAll();
+    mixOutputFilterService = new MixOutputFilterService(mixOutputRepository, config);
+    Assert.assertEquals(0, mixOutputFilterService.getCount());
+    Assert.assertFalse(mixOutputFilterService.hasMixOutput(ADDRESS1));
+    Assert.assertEquals(0, mixOutputFilterService.getNbDbQueries());
+  }
+
+  @Test
+  public void falsePositiveRate() throws Exception {
+    MixOutputFilterService mixOutputFilterService =
+        new MixOutputFilterService(mixOutputRepository, config);
+    for (int i = 0; i < 100; i++) {
+      mixOutputFilterService.saveMixOutput("saved" + i);
+    }
+    for (int i = 0; i < 10000; i++) {
+      Assert.assertFalse(mixOutputFilterService.hasMixOutput("unknown" + i));
+    }
+    Assert.assertEquals(
+        10000,
+        mixOutputFilterService.getNbNegatives() + mixOutputFilterService.getNbFalsePositives());
+    Assert.assertTrue(
+        mixOutputFilterService.getMetrics(), mixOutputFilterService.getFalsePositiveRate() < 1);
+  }
+}
@@ -0,0 +1,72 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.export.MixCsv;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.persistence.repositories.MixRepository;
+import com.samourai.whirlpool.server.persistence.to.MixTO;
+import java.util.Iterator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixPersistServiceTest extends AbstractIntegrationTest {
+  @Autowired private MixRepository mixRepository;
+
+  @Test
+  public void save_coalesce() throws Exception {
+    MixPersistService mixPersistService = new MixPersistService(mixRepository, serverConfig);
+    Mix mix = __nextMix(serverConfig.getPools()[0]);
+
+    // successive saves => one pending write
+    for (int i = 0; i < 10; i++) {
+      mixPersistService.save(mix);
+    }
+    Assert.assertEquals(1, mixPersistService.getNbPending());
+    Assert.assertEquals(10, mixPersistService.getNbSaves());
+
+    mixPersistService.flush();
+    Assert.assertEquals(0, mixPersistService.getNbPending());
+    Assert.assertEquals(1, mixPersistService.getNbWrites());
+    Assert.assertEquals(1, mixRepository.count());
+    Assert.assertEquals(1, mixPersistService.getFlushLatency().getCount());
+    mixPersistService.stop();
+  }
+
+  @Test
+  public void save_terminal() throws Exception {
+    MixPersistService mixPersistService = new MixPersistService(mixRepository, serverConfig);
+    Mix mix = __nextMix(serverConfig.getPools()[0]);
+    mixPersistService.save(mix);
+
+    // terminal state is written synchronously
+    mix.getLock().lock();
+    try {
+      mix.setMixStatusAndTime(MixStatus.FAIL);
+      mixPersistService.save(mix);
+      Assert.assertEquals(0, mixPersistService.getNbPending());
+
+      // exported row is complete
+      MixCsv mixCsv = new MixCsv(mix.__getMixTO().get());
+      Assert.assertNotNull(mixCsv.getId());
+      Assert.assertNotNull(mixCsv.getCreated());
+      Assert.assertNotNull(mixCsv.getUpdated());
+      Assert.assertEquals(MixStatus.FAIL, mixCsv.getMixStatus());
+    } finally {
+      mix.getLock().unlock();
+    }
+
+    Iterator<MixTO> mixTOs = mixRepository.findAll().iterator();
+    Assert.assertEquals(MixStatus.FAIL, mixTOs.next().getMixStatus());
+    Assert.assertFalse(mixTOs.hasNext());
+    mixPersistService.stop();
+  }
+}
@@ -0,0 +1,148 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.FailReason;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.persistence.repositories.MixRepository;
+import com.samourai.whirlpool.server.persistence.repositories.MixRollupBackfillRepository;
+import com.samourai.whirlpool.server.persistence.repositories.MixRollupRepository;
+import com.samourai.whirlpool.server.persistence.to.MixRollupTO;
+import com.samourai.whirlpool.server.persistence.to.MixTO;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixRollupServiceTest extends AbstractIntegrationTest {
+  @Autowired private MixRepository mixRepository;
+  @Autowired private MixRollupRepository mixRollupRepository;
+  @Autowired private MixRollupBackfillRepository mixRollupBackfillRepository;
+  @Autowired private MixPersistService mixPersistService;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private MixRollupService newMixRollupService() {
+    return new MixRollupService(
+        mixRollupRepository, mixRollupBackfillRepository, mixRepository, transactionManager);
+  }
+
+  private MixTO finishMix(MixStatus mixStatus, FailReason failReason) throws Exception {
+    Mix mix = __nextMix(serverConfig.getPools()[0]);
+    mix.getLock().lock();
+    try {
+      mix.setFailReason(failReason);
+      mix.setMixStatusAndTime(mixStatus);
+      dbService.saveMix(mix);
+      return mix.__getMixTO().get();
+    } finally {
+      mix.getLock().unlock();
+    }
+  }
+
+  private void waitWrites(MixRollupService mixRollupService) throws Exception {
+    for (int i = 0; i < 50 && mixRollupService.getNbPendingWrites() > 0; i++) {
+      Thread.sleep(20);
+    }
+    Assert.assertEquals(0, mixRollupService.getNbPendingWrites());
+    Assert.assertEquals(0, mixRollupService.getNbWriteErrors());
+  }
+
+  @Test
+  public void backfill() throws Exception {
+    finishMix(MixStatus.SUCCESS, null);
+    finishMix(MixStatus.FAIL, FailReason.FAIL_SIGNING);
+    mixPersistService.flush();
+    Thread.sleep(10); // backfill mixs updated before now
+
+    // no backfill completed => backfilled from mix table
+    MixRollupService mixRollupService = newMixRollupService();
+    waitWrites(mixRollupService);
+    Assert.assertTrue(mixRollupService.isEnabled());
+    Assert.assertEquals(1, mixRollupBackfillRepository.count());
+
+    LocalDate today = LocalDate.now();
+    Map<String, MixRollupTO> byPool =
+        mixRollupService.getMixRollupsByPool(today.minusDays(1), today.plusDays(1));
+    MixRollupTO mixRollupTO = byPool.get(serverConfig.getPools()[0].getId());
+    Assert.assertEquals(1, mixRollupTO.getNbSuccess());
+    Assert.assertEquals(1, mixRollupTO.getNbFail());
+    Assert.assertEquals(1, mixRollupTO.getNbFail(FailReason.FAIL_SIGNING));
+    Assert.assertEquals(0, mixRollupTO.getNbFail(FailReason.DISCONNECT));
+    Assert.assertEquals(0.5, mixRollupTO.computeFailRate(), 0.001);
+    mixRollupService.stop();
+  }
+
+  @Test
+  public void onMixFinished() throws Exception {
+    MixRollupService mixRollupService = newMixRollupService();
+    mixRollupService.onMixFinished(finishMix(MixStatus.SUCCESS, null));
+    mixRollupService.onMixFinished(finishMix(MixStatus.SUCCESS, null));
+    mixRollupService.onMixFinished(finishMix(MixStatus.FAIL, FailReason.DISCONNECT));
+    waitWrites(mixRollupService);
+    Assert.assertEquals(3, mixRollupService.getNbUpdates());
+
+    // one row for pool & day
+    LocalDate today = LocalDate.now();
+    Assert.assertEquals(1, mixRollupRepository.count());
+    Map<String, MixRollupTO> byPool = mixRollupService.getMixRollups(today, today).get(today);
+    MixRollupTO mixRollupTO = byPool.get(serverConfig.getPools()[0].getId());
+    Assert.assertEquals(2, mixRollupTO.getNbSuccess());
+    Assert.assertEquals(1, mixRollupTO.getNbFail(FailReason.DISCONNECT));
+
+    // no backfill when completed
+    mixRollupService.stop();
+    mixRollupService = newMixRollupService();
+    waitWrites(mixRollupService);
+    Assert.assertEquals(1, mixRollupRepository.count());
+    Assert.assertEquals(1, mixRollupBackfillRepository.count());
+    mixRollupService.stop();
+  }
+
+  @Test
+  public void computeMixDay() throws Exception {
+    // day of stored datetime, as DAY(updated) in backfill
+    Assert.assertEquals(
+        LocalDate.of(2020, 1, 1),
+        MixRollupTO.computeMixDay(Timestamp.valueOf("2020-01-01 23:59:59")));
+    Assert.assertEquals(
+        LocalDate.of(2020, 1, 2),
+        MixRollupTO.computeMixDay(Timestamp.valueOf("2020-01-02 00:00:00")));
+  }
+
+  @Test
+  public void backfill_retry() throws Exception {
+    MixRollupService mixRollupService = newMixRollupService();
+    mixRollupService.onMixFinished(finishMix(MixStatus.SUCCESS, null));
+    mixRollupService.onMixFinished(finishMix(MixStatus.SUCCESS, null));
+    mixRollupService.onMixFinished(finishMix(MixStatus.FAIL, FailReason.DISCONNECT));
+    waitWrites(mixRollupService);
+    mixRollupService.stop();
+    Thread.sleep(10); // backfill mixs updated before now
+
+    // previous backfill not completed but live rollups exist => rebuilt without double counting
+    mixRollupBackfillRepository.deleteAll();
+    mixRollupService = newMixRollupService();
+    waitWrites(mixRollupService);
+    Assert.assertEquals(1, mixRollupBackfillRepository.count());
+
+    LocalDate today = LocalDate.now();
+    MixRollupTO mixRollupTO =
+        mixRollupService
+            .getMixRollupsByPool(today.minusDays(1), today.plusDays(1))
+            .get(serverConfig.getPools()[0].getId());
+    Assert.assertEquals(2, mixRollupTO.getNbSuccess());
+    Assert.assertEquals(1, mixRollupTO.getNbFail());
+    Assert.assertEquals(1, mixRollupTO.getNbFail(FailReason.DISCONNECT));
+    mixRollupService.stop();
+  }
+}
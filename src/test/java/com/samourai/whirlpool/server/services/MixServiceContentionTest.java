@@ -0,0 +1,183 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.Pool;
+import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.integration.AbstractMixIntegrationTest;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.crypto.params.RSABlindingParameters;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Benchmark: concurrent CONFIRM_INPUT on several pools, each holding its mix lock during a slow
+ * signature check, which should not contend. Run with -Pbenchmark.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixServiceContentionTest extends AbstractMixIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int NB_POOLS = 3;
+  private static final int NB_INPUTS_PER_POOL = 30;
+  private static final int NB_THREADS = 12;
+  private static final String SIGNED_MESSAGE = "message";
+
+  private ECKey signingKey = new ECKey();
+  private String signature = signingKey.signMessage(SIGNED_MESSAGE);
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    serverConfig.setTestMode(true);
+  }
+
+  @Test
+  public void confirmInput_concurrentPools() throws Exception {
+    assumeBenchmark();
+    Assume.assumeTrue(Runtime.getRuntime().availableProcessors() >= NB_POOLS);
+
+    // per-mix locks: slow step runs under mix lock, as signature checks do
+    ConfirmInputRunner perMixLock =
+        (mix, confirmInput) -> {
+          mix.getLock().lock();
+          try {
+            verifySignature();
+            return confirmInput.call();
+          } finally {
+            mix.getLock().unlock();
+          }
+        };
+
+    // before: MixService steps were serialized service-wide, replayed with a global lock
+    Object serviceLock = new Object();
+    ConfirmInputRunner globalLock =
+        (mix, confirmInput) -> {
+          synchronized (serviceLock) {
+            return perMixLock.run(mix, confirmInput);
+          }
+        };
+
+    // warm up JIT for both runs
+    runConfirmInputs(globalLock);
+    runConfirmInputs(perMixLock);
+
+    long elapsedBefore = runConfirmInputs(globalLock);
+    long elapsedAfter = runConfirmInputs(perMixLock);
+
+    int nbOps = NB_POOLS * NB_INPUTS_PER_POOL;
+    log.info(
+        "confirmInput: "
+            + nbOps
+            + " ops on "
+            + NB_POOLS
+            + " pools with "
+            + NB_THREADS
+            + " threads: before="
+            + (nbOps * 1000 / Math.max(elapsedBefore, 1))
+            + " ops/s ("
+            + elapsedBefore
+            + "ms), after="
+            + (nbOps * 1000 / Math.max(elapsedAfter, 1))
+            + " ops/s ("
+            + elapsedAfter
+            + "ms)");
+    Assert.assertTrue(elapsedAfter < elapsedBefore);
+  }
+
+  private void verifySignature() throws Exception {
+    // ECDSA public key recovery
+    ECKey pubkey = ECKey.signedMessageToKey(SIGNED_MESSAGE, signature);
+    Assert.assertArrayEquals(signingKey.getPubKey(), pubkey.getPubKey());
+  }
+
+  private interface ConfirmInputRunner {
+    byte[] run(Mix mix, Callable<byte[]> confirmInput) throws Exception;
+  }
+
+  /**
+   * Confirms NB_INPUTS_PER_POOL inputs on NB_POOLS fresh pools concurrently, returns elapsed ms.
+   */
+  private long runConfirmInputs(ConfirmInputRunner runner) throws Exception {
+    WhirlpoolServerConfig.PoolConfig copyPoolConfig = serverConfig.getPools()[0];
+
+    // large anonymitySet so that mixs stay in CONFIRM_INPUT
+    WhirlpoolServerConfig.PoolConfig[] poolConfigs = new WhirlpoolServerConfig.PoolConfig[NB_POOLS];
+    for (int i = 0; i < NB_POOLS; i++) {
+      WhirlpoolServerConfig.PoolConfig poolConfig = new WhirlpoolServerConfig.PoolConfig();
+      poolConfig.setId(Utils.generateUniqueString());
+      poolConfig.setDenomination(copyPoolConfig.getDenomination());
+      poolConfig.setFeeValue(copyPoolConfig.getFeeValue());
+      poolConfig.setFeeAccept(copyPoolConfig.getFeeAccept());
+      poolConfig.setMinerFeeMin(copyPoolConfig.getMinerFeeMin());
+      poolConfig.setMinerFeeCap(copyPoolConfig.getMinerFeeCap());
+      poolConfig.setMinerFeeMax(copyPoolConfig.getMinerFeeMax());
+      poolConfig.setMustMixMin(1);
+      poolConfig.setLiquidityMin(0);
+      poolConfig.setAnonymitySetTarget(NB_INPUTS_PER_POOL * 2);
+      poolConfig.setAnonymitySetMin(NB_INPUTS_PER_POOL * 2);
+      poolConfig.setAnonymitySetMax(NB_INPUTS_PER_POOL * 2);
+      poolConfig.setAnonymitySetAdjustTimeout(copyPoolConfig.getAnonymitySetAdjustTimeout());
+      poolConfigs[i] = poolConfig;
+    }
+    configurePools(poolConfigs);
+
+    // REGISTER_INPUT
+    List<Callable<byte[]>> confirmInputs = new ArrayList<>();
+    List<Mix> mixs = new ArrayList<>();
+    for (Pool pool : poolService.getPools()) {
+      Mix mix = pool.getCurrentMix();
+      mixs.add(mix);
+      RSABlindingParameters blindingParams = computeBlindingParams(mix);
+      for (int i = 0; i < NB_INPUTS_PER_POOL; i++) {
+        String username = pool.getPoolId() + "-user" + i;
+        TxOutPoint txOutPoint = registerInput(mix, username, 999, false);
+        byte[] blindedBordereau =
+            clientCryptoService.blind(txOutPoint.getToAddress(), blindingParams);
+        Callable<byte[]> confirmInput =
+            () ->
+                confirmInputService
+                    .confirmInputOrQueuePool(mix.getMixId(), username, blindedBordereau)
+                    .get();
+        confirmInputs.add(() -> runner.run(mix, confirmInput));
+      }
+      testUtils.assertMix(0, NB_INPUTS_PER_POOL, mix); // confirming
+    }
+
+    // CONFIRM_INPUT concurrently
+    ExecutorService executorService = Executors.newFixedThreadPool(NB_THREADS);
+    long start = System.currentTimeMillis();
+    List<Future<byte[]>> results = executorService.invokeAll(confirmInputs);
+    long elapsed = System.currentTimeMillis() - start;
+    executorService.shutdown();
+    Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+    for (Future<byte[]> result : results) {
+      Assert.assertNotNull(result.get());
+    }
+
+    // VERIFY
+    for (Mix mix : mixs) {
+      testUtils.assertMix(NB_INPUTS_PER_POOL, 0, mix); // confirmed
+    }
+    return elapsed;
+  }
+}
@@ -0,0 +1,54 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.MixStats;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.persistence.repositories.MixRepository;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixStatsServiceTest extends AbstractIntegrationTest {
+  @Autowired private MixRepository mixRepository;
+  @Autowired private MixPersistService mixPersistService;
+
+  @Test
+  public void onMixSuccess() throws Exception {
+    MixStatsService mixStatsService = new MixStatsService(mixRepository);
+    Assert.assertEquals(0, mixStatsService.getMixStats().getNbMixs());
+
+    Mix mix = __nextMix(serverConfig.getPools()[0]);
+    String poolId = mix.getPool().getPoolId();
+    mix.getLock().lock();
+    try {
+      mix.setMixStatusAndTime(MixStatus.SUCCESS);
+      dbService.saveMix(mix);
+    } finally {
+      mix.getLock().unlock();
+    }
+    mixStatsService.onMixSuccess(mix);
+
+    // updated in memory
+    Assert.assertEquals(1, mixStatsService.getMixStats().getNbMixs());
+    Map<String, MixStats> byPool = mixStatsService.getMixStatsByPool();
+    Assert.assertEquals(1, byPool.size());
+    Assert.assertEquals(1, byPool.get(poolId).getNbMixs());
+
+    // same stats when aggregated from database
+    mixPersistService.flush();
+    MixStatsService loaded = new MixStatsService(mixRepository);
+    Assert.assertEquals(1, loaded.getMixStats().getNbMixs());
+    Assert.assertEquals(
+        mixStatsService.getMixStats().getSumAmountOut(), loaded.getMixStats().getSumAmountOut());
+    Assert.assertEquals(1, loaded.getMixStatsByPool().get(poolId).getNbMixs());
+  }
+}
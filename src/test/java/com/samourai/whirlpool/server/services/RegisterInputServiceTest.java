@@ -8,10 +8,16 @@ import com.samourai.whirlpool.server.beans.InputPool;
 import com.samourai.whirlpool.server.beans.Mix;
 import com.samourai.whirlpool.server.beans.Pool;
 import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.exceptions.BannedInputException;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.integration.AbstractMixIntegrationTest;
+import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import org.bitcoinj.core.ECKey;
 import org.junit.Assert;
 import org.junit.Before;
@@ -29,6 +35,7 @@ public class RegisterInputServiceTest extends AbstractMixIntegrationTest {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   @Autowired private RegisterInputService registerInputService;
+  @Autowired private WebSocketSessionService webSocketSessionService;
 
   private static final int MIN_CONFIRMATIONS_MUSTMIX = 11;
   private static final int MIN_CONFIRMATIONS_LIQUIDITY = 22;
@@ -146,6 +153,141 @@ public class RegisterInputServiceTest extends AbstractMixIntegrationTest {
     testUtils.assertMixEmpty(mix);
   }
 
+  @Test
+  public void registerInput_shouldRegisterConcurrently() throws Exception {
+    Mix mix = __getCurrentMix();
+    Pool pool = mix.getPool();
+    String poolId = pool.getPoolId();
+    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT); // mix already started
+    long nbRegistered = registerInputService.getStageLatencies().get("register").getCount();
+
+    // TEST
+    int nbInputs = 20;
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < nbInputs; i++) {
+      ECKey ecKey = new ECKey();
+      TxOutPoint txOutPoint =
+          createAndMockTxOutPoint(
+              new SegwitAddress(ecKey.getPubKey(), cryptoService.getNetworkParameters()),
+              pool.computePremixBalanceMin(true),
+              MIN_CONFIRMATIONS_LIQUIDITY);
+      futures.add(
+          registerInputService.registerInputAsync(
+              poolId,
+              "user" + i,
+              ecKey.signMessage(poolId),
+              txOutPoint.getHash(),
+              txOutPoint.getIndex(),
+              true,
+              true,
+              "127.0.0.1"));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+    // VERIFY
+    testUtils.assertPool(0, nbInputs, pool); // liquidities queued
+    testUtils.assertMixEmpty(mix);
+    Assert.assertEquals(0, registerInputService.getNbPending());
+    Assert.assertEquals(
+        nbRegistered + nbInputs,
+        registerInputService.getStageLatencies().get("register").getCount());
+  }
+
+  @Test
+  public void registerInputAsync_shouldRejectWhenDisconnectedDuringValidation() throws Exception {
+    Mix mix = __getCurrentMix();
+    Pool pool = mix.getPool();
+    String poolId = pool.getPoolId();
+    String username = "disconnecting";
+    webSocketSessionService.onConnect(username);
+
+    ECKey ecKey = new ECKey();
+    TxOutPoint txOutPoint =
+        createAndMockTxOutPoint(
+            new SegwitAddress(ecKey.getPubKey(), cryptoService.getNetworkParameters()),
+            pool.computePremixBalanceMin(false),
+            MIN_CONFIRMATIONS_MUSTMIX);
+
+    // hold pool lock: register stage can't complete before client disconnects
+    CompletableFuture<Void> future;
+    Thread disconnect = new Thread(() -> webSocketSessionService.onDisconnect(username));
+    synchronized (pool) {
+      future =
+          registerInputService.registerInputAsync(
+              poolId,
+              username,
+              ecKey.signMessage(poolId),
+              txOutPoint.getHash(),
+              txOutPoint.getIndex(),
+              false,
+              true,
+              "127.0.0.1");
+      disconnect.start();
+      for (int i = 0; i < 100 && webSocketSessionService.isConnected(username); i++) {
+        Thread.sleep(10);
+      }
+      Assert.assertFalse(webSocketSessionService.isConnected(username));
+    }
+    disconnect.join(5000);
+
+    // VERIFY
+    try {
+      future.get();
+      Assert.fail("input registered after disconnect");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(RegisterInputService.unwrap(e) instanceof IllegalInputException);
+    }
+    testUtils.assertPoolEmpty(pool);
+    testUtils.assertMixEmpty(mix);
+  }
+
+  @Test
+  public void registerInputAsync_shouldRejectBannedWithoutFetch() throws Exception {
+    Mix mix = __getCurrentMix();
+    Pool pool = mix.getPool();
+    String poolId = pool.getPoolId();
+
+    ECKey ecKey = new ECKey();
+    TxOutPoint txOutPoint =
+        createAndMockTxOutPoint(
+            new SegwitAddress(ecKey.getPubKey(), cryptoService.getNetworkParameters()),
+            pool.computePremixBalanceMin(false),
+            MIN_CONFIRMATIONS_MUSTMIX);
+    banService.banTemporary(
+        Utils.computeBlameIdentitifer(txOutPoint.getHash(), txOutPoint.getIndex(), true),
+        null,
+        "test");
+    long nbLookups =
+        blockchainDataService.getTxCache().getNbHits()
+            + blockchainDataService.getTxCache().getNbMisses();
+
+    // TEST
+    CompletableFuture<Void> future =
+        registerInputService.registerInputAsync(
+            poolId,
+            "banned",
+            ecKey.signMessage(poolId),
+            txOutPoint.getHash(),
+            txOutPoint.getIndex(),
+            false,
+            true,
+            "127.0.0.1");
+
+    // VERIFY
+    try {
+      future.get();
+      Assert.fail("banned input registered");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(RegisterInputService.unwrap(e) instanceof BannedInputException);
+    }
+    // tx not fetched
+    Assert.assertEquals(
+        nbLookups,
+        blockchainDataService.getTxCache().getNbHits()
+            + blockchainDataService.getTxCache().getNbMisses());
+    testUtils.assertPoolEmpty(pool);
+  }
+
   @Test
   public void registerInput_shouldFailWhenInvalidPoolId() throws Exception {
     Mix mix = __getCurrentMix();
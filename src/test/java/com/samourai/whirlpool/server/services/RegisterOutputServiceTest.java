@@ -44,7 +44,7 @@ public class RegisterOutputServiceTest extends AbstractMixIntegrationTest {
         registerInputAndConfirmInput(mix, username, 999, false, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.__setMixStatusAndTime(mix, MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // REGISTER_OUTPUT
@@ -73,7 +73,7 @@ public class RegisterOutputServiceTest extends AbstractMixIntegrationTest {
         registerInputAndConfirmInput(mix, username, 999, false, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.__setMixStatusAndTime(mix, MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // TEST
@@ -118,7 +118,7 @@ public class RegisterOutputServiceTest extends AbstractMixIntegrationTest {
         registerInputAndConfirmInput(mix, username, 999, false, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.__setMixStatusAndTime(mix, MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // TEST: unblindedSignedBordereau from FIRST mix should be REJECTED
@@ -162,7 +162,7 @@ public class RegisterOutputServiceTest extends AbstractMixIntegrationTest {
         registerInputAndConfirmInput(mix, username, 999, false, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.__setMixStatusAndTime(mix, MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // REGISTER_OUTPUT
@@ -222,7 +222,7 @@ public class RegisterOutputServiceTest extends AbstractMixIntegrationTest {
             mix, username, 999, false, null, blindingParams); // reuse input address
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.__setMixStatusAndTime(mix, MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // REGISTER_OUTPUT
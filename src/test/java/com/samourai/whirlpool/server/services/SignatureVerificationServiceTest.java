@@ -0,0 +1,253 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.wallet.segwit.SegwitAddress;
+import com.samourai.wallet.util.TxUtil;
+import com.samourai.whirlpool.client.mix.handler.PremixHandler;
+import com.samourai.whirlpool.client.mix.handler.UtxoWithBalance;
+import com.samourai.whirlpool.server.beans.rpc.TxOutPoint;
+import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.utils.MixTxVerifier;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionWitness;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class SignatureVerificationServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long INPUT_BALANCE = 1000150;
+  private static final long DENOMINATION = 1000000;
+
+  @Autowired private SignatureVerificationService signatureVerificationService;
+
+  @Test
+  public void verifySignInput() throws Exception {
+    SignedTx signedTx = computeSignedTx(5);
+
+    // valid
+    for (int i = 0; i < 5; i++) {
+      signatureVerificationService.verifySignInput(
+          signedTx.txVerifier, i, signedTx.tx.getWitness(i), signedTx.txOutPoints.get(i));
+    }
+
+    // invalid: witness from another input
+    try {
+      signatureVerificationService.verifySignInput(
+          signedTx.txVerifier, 0, signedTx.tx.getWitness(1), signedTx.txOutPoints.get(0));
+      Assert.assertTrue(false);
+    } catch (Exception e) {
+      // ok
+    }
+  }
+
+  @Test
+  public void verifySignInput_benchmark() throws Exception {
+    assumeBenchmark();
+    TxUtil txUtil = TxUtil.getInstance();
+    ExecutorService executorService = Executors.newFixedThreadPool(10);
+    for (int nbInputs : new int[] {5, 10, 20, 50, 100}) {
+      SignedTx signedTx = computeSignedTx(nbInputs);
+
+      // before: full verification, one input at a time
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < nbInputs; i++) {
+        TxOutPoint txOutPoint = signedTx.txOutPoints.get(i);
+        txUtil.verifySignInput(signedTx.tx, i, txOutPoint.getValue(), txOutPoint.getScriptBytes());
+      }
+      long elapsedBefore = System.currentTimeMillis() - start;
+
+      // after: shared midstates, concurrent clients
+      List<Callable<Boolean>> verifications = new ArrayList<>();
+      for (int i = 0; i < nbInputs; i++) {
+        int inputIndex = i;
+        TransactionWitness witness = signedTx.tx.getWitness(i);
+        TxOutPoint txOutPoint = signedTx.txOutPoints.get(i);
+        verifications.add(
+            () -> {
+              signatureVerificationService.verifySignInput(
+                  signedTx.txVerifier, inputIndex, witness, txOutPoint);
+              return true;
+            });
+      }
+      start = System.currentTimeMillis();
+      for (Future<Boolean> result : executorService.invokeAll(verifications)) {
+        Assert.assertTrue(result.get());
+      }
+      long elapsedAfter = System.currentTimeMillis() - start;
+
+      log.info(
+          "verifySignInput: anonymitySet="
+              + nbInputs
+              + " => full="
+              + elapsedBefore
+              + "ms, midstates+pool="
+              + elapsedAfter
+              + "ms");
+    }
+    executorService.shutdown();
+  }
+
+  @Test
+  public void verifyMessageSignature() throws Exception {
+    ECKey ecKey = new ECKey();
+    TxOutPoint txOutPoint =
+        createAndMockTxOutPoint(new SegwitAddress(ecKey.getPubKey(), params), INPUT_BALANCE);
+    String signature = ecKey.signMessage("poolId");
+
+    // valid
+    ECKey pubkey =
+        signatureVerificationService.verifyMessageSignature(txOutPoint, "poolId", signature);
+    Assert.assertArrayEquals(ecKey.getPubKey(), pubkey.getPubKey());
+    Assert.assertArrayEquals(
+        ecKey.getPubKey(),
+        signatureVerificationService
+            .verifyMessageSignatureAsync(txOutPoint, "poolId", signature)
+            .get()
+            .getPubKey());
+
+    // invalid: other message, other key, garbage
+    for (String[] messageAndSignature :
+        new String[][] {
+          {"otherPoolId", signature},
+          {"poolId", new ECKey().signMessage("poolId")},
+          {"poolId", "invalid"}
+        }) {
+      try {
+        signatureVerificationService.verifyMessageSignature(
+            txOutPoint, messageAndSignature[0], messageAndSignature[1]);
+        Assert.assertTrue(false);
+      } catch (IllegalInputException e) {
+        Assert.assertEquals("Invalid signature", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void verifyMessageSignature_benchmark() throws Exception {
+    assumeBenchmark();
+    int nbSignatures = 500;
+    List<TxOutPoint> txOutPoints = new ArrayList<>();
+    List<String> signatures = new ArrayList<>();
+    for (int i = 0; i < nbSignatures; i++) {
+      ECKey ecKey = new ECKey();
+      txOutPoints.add(
+          createAndMockTxOutPoint(new SegwitAddress(ecKey.getPubKey(), params), INPUT_BALANCE));
+      signatures.add(ecKey.signMessage("poolId"));
+    }
+
+    // before: verifySignedMessage + signedMessageToKey, 2 key recoveries
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < nbSignatures; i++) {
+      Assert.assertTrue(
+          messageSignUtil.verifySignedMessage(
+              txOutPoints.get(i).getToAddress(), "poolId", signatures.get(i), params));
+      Assert.assertNotNull(messageSignUtil.signedMessageToKey("poolId", signatures.get(i)));
+    }
+    long elapsedBefore = System.currentTimeMillis() - start;
+
+    // after: 1 key recovery
+    start = System.currentTimeMillis();
+    for (int i = 0; i < nbSignatures; i++) {
+      signatureVerificationService.verifyMessageSignature(
+          txOutPoints.get(i), "poolId", signatures.get(i));
+    }
+    long elapsedAfter = System.currentTimeMillis() - start;
+
+    // after, on worker pool
+    List<CompletableFuture<ECKey>> futures = new ArrayList<>();
+    start = System.currentTimeMillis();
+    for (int i = 0; i < nbSignatures; i++) {
+      futures.add(
+          signatureVerificationService.verifyMessageSignatureAsync(
+              txOutPoints.get(i), "poolId", signatures.get(i)));
+    }
+    for (CompletableFuture<ECKey> future : futures) {
+      Assert.assertNotNull(future.get());
+    }
+    long elapsedPool = System.currentTimeMillis() - start;
+
+    int nbCores = Runtime.getRuntime().availableProcessors();
+    log.info(
+        "verifyMessageSignature: "
+            + nbSignatures
+            + " signatures => before="
+            + (nbSignatures * 1000 / Math.max(elapsedBefore, 1))
+            + "/s/core, after="
+            + (nbSignatures * 1000 / Math.max(elapsedAfter, 1))
+            + "/s/core, pool="
+            + (nbSignatures * 1000 / Math.max(elapsedPool, 1))
+            + "/s on "
+            + nbCores
+            + " cores");
+  }
+
+  private SignedTx computeSignedTx(int nbInputs) throws Exception {
+    Transaction tx = new Transaction(params);
+    List<ECKey> ecKeys = new ArrayList<>();
+    List<TxOutPoint> txOutPoints = new ArrayList<>();
+    for (int i = 0; i < nbInputs; i++) {
+      ECKey ecKey = new ECKey();
+      TxOutPoint txOutPoint =
+          createAndMockTxOutPoint(new SegwitAddress(ecKey.getPubKey(), params), INPUT_BALANCE);
+      TransactionOutPoint outPoint =
+          new TransactionOutPoint(
+              params,
+              txOutPoint.getIndex(),
+              Sha256Hash.wrap(txOutPoint.getHash()),
+              Coin.valueOf(INPUT_BALANCE));
+      tx.addInput(
+          new TransactionInput(params, null, new byte[] {}, outPoint, Coin.valueOf(INPUT_BALANCE)));
+      tx.addOutput(
+          bech32Util.getTransactionOutput(
+              testUtils.generateSegwitAddress().getBech32AsString(), DENOMINATION, params));
+      ecKeys.add(ecKey);
+      txOutPoints.add(txOutPoint);
+    }
+    MixTxVerifier txVerifier = new MixTxVerifier(tx);
+
+    // sign
+    for (int i = 0; i < nbInputs; i++) {
+      TxOutPoint txOutPoint = txOutPoints.get(i);
+      UtxoWithBalance utxoWithBalance =
+          new UtxoWithBalance(txOutPoint.getHash(), txOutPoint.getIndex(), INPUT_BALANCE);
+      new PremixHandler(utxoWithBalance, ecKeys.get(i)).signTransaction(tx, i, params);
+    }
+    tx.verify();
+    return new SignedTx(tx, txVerifier, txOutPoints);
+  }
+
+  private static class SignedTx {
+    private Transaction tx;
+    private MixTxVerifier txVerifier;
+    private List<TxOutPoint> txOutPoints;
+
+    SignedTx(Transaction tx, MixTxVerifier txVerifier, List<TxOutPoint> txOutPoints) {
+      this.tx = tx;
+      this.txVerifier = txVerifier;
+      this.txOutPoints = txOutPoints;
+    }
+  }
+}
@@ -68,7 +68,10 @@ public class SigningServiceTest extends AbstractIntegrationTest {
     String[] witness64 = doSigning(mix, premixHandler, liquidity, txOutPoint, username);
     mixService.registerSignature(mix.getMixId(), username, witness64);
 
-    // verify
+    // verify: broadcast is asynchronous
+    for (int i = 0; i < 50 && !MixStatus.SUCCESS.equals(mix.getMixStatus()); i++) {
+      Thread.sleep(100);
+    }
     Assert.assertEquals(MixStatus.SUCCESS, mix.getMixStatus());
   }
 
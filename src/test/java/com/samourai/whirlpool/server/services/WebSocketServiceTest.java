@@ -0,0 +1,96 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
+import com.samourai.whirlpool.protocol.websocket.notifications.SigningMixStatusNotification;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class WebSocketServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int[] ANONYMITY_SETS = new int[] {5, 10, 20, 50, 100};
+  private static final int ITERATIONS = 50;
+  private static final int TX_BYTES_PER_INPUT = 110; // ~1 input + 1 output
+
+  @Autowired private WebSocketService webSocketService;
+
+  @Autowired private SimpMessagingTemplate messagingTemplate;
+
+  @Test
+  public void computeFrame() throws Exception {
+    SigningMixStatusNotification payload = computeSigningNotification(5);
+    Message<byte[]> frame = webSocketService.computeFrame(payload);
+
+    Map<String, Object> nativeHeaders =
+        (Map<String, Object>) frame.getHeaders().get("nativeHeaders");
+    Assert.assertTrue(
+        nativeHeaders.toString().contains(SigningMixStatusNotification.class.getName()));
+    Assert.assertTrue(new String(frame.getPayload()).contains("mixId"));
+  }
+
+  @Test
+  public void sendPrivate_benchmark() throws Exception {
+    assumeBenchmark();
+    for (int anonymitySet : ANONYMITY_SETS) {
+      SigningMixStatusNotification payload = computeSigningNotification(anonymitySet);
+
+      // serialize once per recipient (previous behavior)
+      long start = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        for (int u = 0; u < anonymitySet; u++) {
+          messagingTemplate.convertAndSendToUser(
+              "user" + u, WhirlpoolProtocol.WS_PREFIX_USER_REPLY, payload, computeHeaders());
+        }
+      }
+      long perRecipientUs = (System.nanoTime() - start) / 1000 / ITERATIONS;
+
+      // serialize once per broadcast
+      start = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        Message<byte[]> frame = webSocketService.computeFrame(payload);
+        for (int u = 0; u < anonymitySet; u++) {
+          messagingTemplate.send(webSocketService.computeUserDestination("user" + u), frame);
+        }
+      }
+      long onceUs = (System.nanoTime() - start) / 1000 / ITERATIONS;
+
+      log.info(
+          "broadcast anonymitySet="
+              + anonymitySet
+              + ": serializePerRecipient="
+              + perRecipientUs
+              + "us, serializeOnce="
+              + onceUs
+              + "us");
+    }
+  }
+
+  private SigningMixStatusNotification computeSigningNotification(int anonymitySet) {
+    byte[] fakeTx = new byte[anonymitySet * TX_BYTES_PER_INPUT];
+    return new SigningMixStatusNotification("mixId", WhirlpoolProtocol.encodeBytes(fakeTx));
+  }
+
+  private Map<String, Object> computeHeaders() {
+    Map<String, Object> headers = new HashMap<>();
+    headers.put(
+        WhirlpoolProtocol.HEADER_MESSAGE_TYPE, SigningMixStatusNotification.class.getName());
+    headers.put(WhirlpoolProtocol.HEADER_PROTOCOL_VERSION, WhirlpoolProtocol.PROTOCOL_VERSION);
+    return headers;
+  }
+}
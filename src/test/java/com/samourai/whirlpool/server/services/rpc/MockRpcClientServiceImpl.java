@@ -30,8 +30,10 @@ public class MockRpcClientServiceImpl implements RpcClientService {
   private Bech32UtilGeneric bech32Util;
 
   private Map<String, RpcRawTransactionResponse> mockTransactions;
+  private int blockHeight;
 
   public static final int MOCK_TX_CONFIRMATIONS = 99;
+  public static final int MOCK_BLOCK_HEIGHT = 1000;
   private static final long MOCK_TX_TIME = 900000;
 
   public MockRpcClientServiceImpl(
@@ -42,6 +44,7 @@ public class MockRpcClientServiceImpl implements RpcClientService {
     this.bech32Util = bech32Util;
 
     this.mockTransactions = new HashMap<>();
+    this.blockHeight = MOCK_BLOCK_HEIGHT;
   }
 
   @Override
@@ -50,6 +53,15 @@ public class MockRpcClientServiceImpl implements RpcClientService {
     return true;
   }
 
+  @Override
+  public int getBlockHeight() {
+    return blockHeight;
+  }
+
+  public void setBlockHeight(int blockHeight) {
+    this.blockHeight = blockHeight;
+  }
+
   @Override
   public void broadcastTransaction(Transaction tx) {
     // mock result TX to simulate broadcast
@@ -87,6 +99,7 @@ public class MockRpcClientServiceImpl implements RpcClientService {
 
   public void resetMock() {
     mockTransactions = new HashMap<>();
+    blockHeight = MOCK_BLOCK_HEIGHT;
   }
 
   // ------------
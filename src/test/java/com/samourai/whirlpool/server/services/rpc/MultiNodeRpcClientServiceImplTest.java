@@ -0,0 +1,212 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.util.Arrays;
+import java.util.Map;
+import org.bitcoinj.core.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MultiNodeRpcClientServiceImplTest extends AbstractIntegrationTest {
+  private static final String TXID =
+      "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+
+  private StubBitcoindServer stub1;
+  private StubBitcoindServer stub2;
+  private MultiNodeRpcClientServiceImpl rpcClient;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    stub1 = new StubBitcoindServer();
+    stub2 = new StubBitcoindServer();
+    for (StubBitcoindServer stub : Arrays.asList(stub1, stub2)) {
+      stub.putTx(TXID, "hex");
+    }
+
+    WhirlpoolServerConfig.RpcClientConfig rpcClientConfig =
+        new WhirlpoolServerConfig.RpcClientConfig();
+    stub1.copyNodeConfig(rpcClientConfig);
+    rpcClientConfig.setNodes(Arrays.asList(stub2.computeNodeConfig()));
+    rpcClientConfig.setConnectTimeout(1);
+    rpcClientConfig.setReadTimeout(1);
+    rpcClientConfig.setMaxInFlight(4);
+    rpcClientConfig.setProbeDelay(0); // probe manually
+    rpcClientConfig.setMaxBlockLag(2);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setTestnet(true);
+    config.setRpcClient(rpcClientConfig);
+    rpcClient = new MultiNodeRpcClientServiceImpl(config);
+  }
+
+  @After
+  public void tearDown() {
+    rpcClient.stop();
+    stub1.stop();
+    stub2.stop();
+  }
+
+  @Test
+  public void testConnectivity() {
+    Assert.assertTrue(rpcClient.testConnectivity());
+    assertHealthy(true, true);
+
+    // one node down
+    stub1.stop();
+    Assert.assertTrue(rpcClient.testConnectivity());
+    assertHealthy(false, true);
+
+    // all nodes down
+    stub2.stop();
+    Assert.assertFalse(rpcClient.testConnectivity());
+    assertHealthy(false, false);
+  }
+
+  @Test
+  public void testConnectivity_invalidChain() {
+    stub2.setChain("main");
+
+    Assert.assertTrue(rpcClient.testConnectivity());
+    assertHealthy(true, false);
+  }
+
+  @Test
+  public void getRawTransaction_failover() throws Exception {
+    stub2.setDelayMs(100); // prefer stub1
+    Assert.assertTrue(rpcClient.testConnectivity());
+    stub1.stop(); // not yet detected by probe
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals("hex", rpcClient.getRawTransaction(TXID).get().getHex());
+    }
+    Assert.assertEquals(5, stub2.getNbCalls("getrawtransaction"));
+    assertHealthy(false, true);
+  }
+
+  @Test
+  public void getRawTransaction_notFoundOnFirstNode() throws Exception {
+    stub2.setDelayMs(100); // prefer stub1
+    Assert.assertTrue(rpcClient.testConnectivity());
+    stub1.removeTx(TXID); // not yet in stub1 mempool
+
+    Assert.assertEquals("hex", rpcClient.getRawTransaction(TXID).get().getHex());
+    Assert.assertEquals(1, stub1.getNbCalls("getrawtransaction"));
+    Assert.assertEquals(1, stub2.getNbCalls("getrawtransaction"));
+    assertHealthy(true, true); // not found is not a node failure
+
+    // not found on any node
+    stub2.removeTx(TXID);
+    Assert.assertFalse(rpcClient.getRawTransaction(TXID).isPresent());
+    Assert.assertEquals(2, stub1.getNbCalls("getrawtransaction"));
+    Assert.assertEquals(2, stub2.getNbCalls("getrawtransaction"));
+  }
+
+  @Test
+  public void getRawTransaction_laggingNode() throws Exception {
+    stub1.setBlockHeight(990); // syncing
+    rpcClient.probe();
+    assertHealthy(false, true);
+
+    for (int i = 0; i < 5; i++) {
+      Assert.assertTrue(rpcClient.getRawTransaction(TXID).isPresent());
+    }
+    Assert.assertEquals(0, stub1.getNbCalls("getrawtransaction"));
+    Assert.assertEquals(5, stub2.getNbCalls("getrawtransaction"));
+  }
+
+  @Test
+  public void getRawTransaction_latencyWeighted() throws Exception {
+    stub1.setDelayMs(200); // slow node
+    for (int i = 0; i < 3; i++) {
+      rpcClient.probe();
+    }
+    assertHealthy(true, true);
+
+    for (int i = 0; i < 20; i++) {
+      Assert.assertTrue(rpcClient.getRawTransaction(TXID).isPresent());
+    }
+    Assert.assertTrue(
+        stub2.getNbCalls("getrawtransaction") > 3 * stub1.getNbCalls("getrawtransaction"));
+  }
+
+  @Test
+  public void broadcastTransaction_allNodes() throws Exception {
+    rpcClient.probe();
+    stub1.setBroadcastError("missing-inputs");
+
+    // TEST
+    rpcClient.broadcastTransaction(new Transaction(cryptoService.getNetworkParameters()));
+
+    // VERIFY
+    waitBroadcasts(1, 1);
+    assertHealthy(true, true); // a rejection is not a node failure
+  }
+
+  @Test
+  public void broadcastTransaction_rejected() throws Exception {
+    rpcClient.probe();
+    stub1.setBroadcastError("txn-mempool-conflict");
+    stub2.setBroadcastError("txn-mempool-conflict");
+
+    try {
+      rpcClient.broadcastTransaction(new Transaction(cryptoService.getNetworkParameters()));
+      Assert.assertTrue(false);
+    } catch (BroadcastException e) {
+      Assert.assertEquals("txn-mempool-conflict", e.getFailInfo());
+    }
+    waitBroadcasts(1, 1);
+  }
+
+  @Test
+  public void broadcastTransaction_noResponse() throws Exception {
+    rpcClient.probe();
+    stub1.stop();
+    stub2.stop();
+
+    try {
+      rpcClient.broadcastTransaction(new Transaction(cryptoService.getNetworkParameters()));
+      Assert.assertTrue(false);
+    } catch (BroadcastException e) {
+      Assert.assertNull(e.getFailInfo()); // retryable
+    }
+  }
+
+  @Test
+  public void getMetrics() throws Exception {
+    rpcClient.probe();
+    Map<String, String> metrics = rpcClient.getMetrics();
+    Assert.assertEquals(2, metrics.size());
+    for (MultiNodeRpcClientServiceImpl.RpcNode node : rpcClient.getNodes()) {
+      Assert.assertTrue(metrics.get("rpc." + node).startsWith("healthy=true, blockHeight=1000"));
+    }
+  }
+
+  private void assertHealthy(boolean healthy1, boolean healthy2) {
+    Assert.assertEquals(healthy1, rpcClient.getNodes().get(0).isHealthy());
+    Assert.assertEquals(healthy2, rpcClient.getNodes().get(1).isHealthy());
+  }
+
+  private void waitBroadcasts(int nbBroadcasts1, int nbBroadcasts2) throws Exception {
+    // broadcast returns on first acceptance, others may still be running
+    for (int i = 0; i < 50; i++) {
+      if (stub1.getNbCalls("sendrawtransaction") == nbBroadcasts1
+          && stub2.getNbCalls("sendrawtransaction") == nbBroadcasts2) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+    Assert.assertEquals(nbBroadcasts1, stub1.getNbCalls("sendrawtransaction"));
+    Assert.assertEquals(nbBroadcasts2, stub2.getNbCalls("sendrawtransaction"));
+  }
+}
@@ -0,0 +1,117 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.exceptions.BroadcastException;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.util.Arrays;
+import java.util.Map;
+import org.bitcoinj.core.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class PooledJsonRpcClientServiceImplTest extends AbstractIntegrationTest {
+  private static final String TXID1 =
+      "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+  private static final String TXID2 =
+      "7ea75da574ebabf8d17979615b059ab53aae3011926426204e730d164a0d0f16";
+  private static final String TXID_UNKNOWN =
+      "0000000000000000000000000000000000000000000000000000000000000001";
+
+  private StubBitcoindServer stubServer;
+  private PooledJsonRpcClientServiceImpl rpcClient;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    stubServer = new StubBitcoindServer();
+    stubServer.putTx(TXID1, "hex1");
+    stubServer.putTx(TXID2, "hex2");
+
+    WhirlpoolServerConfig.RpcClientConfig rpcClientConfig =
+        new WhirlpoolServerConfig.RpcClientConfig();
+    stubServer.copyNodeConfig(rpcClientConfig);
+    rpcClientConfig.setConnectTimeout(2);
+    rpcClientConfig.setReadTimeout(1);
+    rpcClientConfig.setMaxInFlight(4);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setTestnet(true);
+    config.setRpcClient(rpcClientConfig);
+    rpcClient = new PooledJsonRpcClientServiceImpl(config, rpcClientConfig);
+  }
+
+  @After
+  public void tearDown() {
+    stubServer.stop();
+  }
+
+  @Test
+  public void getRawTransaction() throws Exception {
+    RpcRawTransactionResponse rawTx = rpcClient.getRawTransaction(TXID1).get();
+    Assert.assertEquals("hex1", rawTx.getHex());
+    Assert.assertEquals(StubBitcoindServer.TX_CONFIRMATIONS, rawTx.getConfirmations());
+    Assert.assertEquals(StubBitcoindServer.TX_TIME * 1000, rawTx.getTxTime());
+
+    Assert.assertFalse(rpcClient.getRawTransaction(TXID_UNKNOWN).isPresent());
+  }
+
+  @Test
+  public void getRawTransactions_batch() throws Exception {
+    Map<String, RpcRawTransactionResponse> rawTxs =
+        rpcClient.getRawTransactions(Arrays.asList(TXID2, TXID_UNKNOWN, TXID1));
+
+    Assert.assertEquals(1, stubServer.getNbHttpRequests()); // one round-trip
+    Assert.assertEquals(2, rawTxs.size());
+    Assert.assertEquals("hex1", rawTxs.get(TXID1).getHex());
+    Assert.assertEquals("hex2", rawTxs.get(TXID2).getHex());
+    Assert.assertFalse(rawTxs.containsKey(TXID_UNKNOWN));
+  }
+
+  @Test
+  public void keepAlive() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(1000, rpcClient.getBlockHeight());
+    }
+    Assert.assertEquals(10, stubServer.getNbHttpRequests());
+    Assert.assertEquals(1, stubServer.getClientPorts().size()); // connection reused
+    Assert.assertEquals(0, rpcClient.getNbInFlight());
+  }
+
+  @Test
+  public void testConnectivity() {
+    Assert.assertTrue(rpcClient.testConnectivity());
+
+    stubServer.setChain("main");
+    Assert.assertFalse(rpcClient.testConnectivity());
+  }
+
+  @Test
+  public void broadcastTransaction_rejected() throws Exception {
+    stubServer.setBroadcastError("transaction already in block chain");
+    try {
+      rpcClient.broadcastTransaction(new Transaction(cryptoService.getNetworkParameters()));
+      Assert.assertTrue(false);
+    } catch (BroadcastException e) {
+      Assert.assertEquals("transaction already in block chain", e.getFailInfo());
+    }
+  }
+
+  @Test
+  public void readTimeout() throws Exception {
+    stubServer.setDelayMs(3000);
+
+    long start = System.currentTimeMillis();
+    Assert.assertFalse(rpcClient.getRawTransaction(TXID1).isPresent());
+    long elapsed = System.currentTimeMillis() - start;
+    Assert.assertTrue("elapsed=" + elapsed, elapsed < 2500);
+    Assert.assertEquals(0, rpcClient.getNbInFlight());
+  }
+}
@@ -0,0 +1,187 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Local HTTP server answering bitcoind JSON-RPC calls, for tests. */
+public class StubBitcoindServer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final long TX_TIME = 1523482219;
+  public static final int TX_CONFIRMATIONS = 99;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+  private HttpServer httpServer;
+  private Map<String, String> txs;
+  private Map<String, AtomicInteger> nbCallsByMethod;
+  private AtomicInteger nbHttpRequests;
+  private Set<Integer> clientPorts;
+  private volatile long delayMs;
+  private volatile int blockHeight;
+  private volatile String chain;
+  private volatile String broadcastError;
+
+  public StubBitcoindServer() throws Exception {
+    this.txs = new ConcurrentHashMap<>();
+    this.nbCallsByMethod = new ConcurrentHashMap<>();
+    this.nbHttpRequests = new AtomicInteger(0);
+    this.clientPorts = ConcurrentHashMap.newKeySet();
+    this.delayMs = 0;
+    this.blockHeight = 1000;
+    this.chain = "test";
+    this.broadcastError = null;
+
+    this.httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    httpServer.createContext("/", this::handle);
+    httpServer.start();
+  }
+
+  public void stop() {
+    httpServer.stop(0);
+  }
+
+  public WhirlpoolServerConfig.RpcNodeConfig computeNodeConfig() {
+    WhirlpoolServerConfig.RpcNodeConfig nodeConfig = new WhirlpoolServerConfig.RpcNodeConfig();
+    copyNodeConfig(nodeConfig);
+    return nodeConfig;
+  }
+
+  public void copyNodeConfig(WhirlpoolServerConfig.RpcNodeConfig nodeConfig) {
+    nodeConfig.setProtocol("http");
+    nodeConfig.setHost("127.0.0.1");
+    nodeConfig.setPort(httpServer.getAddress().getPort());
+    nodeConfig.setUser("user");
+    nodeConfig.setPassword("password");
+  }
+
+  private void handle(HttpExchange exchange) {
+    try {
+      nbHttpRequests.incrementAndGet();
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+      if (delayMs > 0) {
+        Thread.sleep(delayMs);
+      }
+
+      JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+      JsonNode response;
+      int status = 200;
+      if (request.isArray()) {
+        ArrayNode responses = objectMapper.createArrayNode();
+        for (JsonNode item : request) {
+          responses.add(computeResponse(item));
+        }
+        response = responses;
+      } else {
+        response = computeResponse(request);
+        if (!response.get("error").isNull()) {
+          status = 500;
+        }
+      }
+
+      byte[] body = objectMapper.writeValueAsBytes(response);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    } catch (Exception e) {
+      log.error("stub error", e);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private ObjectNode computeResponse(JsonNode request) {
+    String method = request.get("method").asText();
+    nbCallsByMethod.computeIfAbsent(method, m -> new AtomicInteger(0)).incrementAndGet();
+
+    ObjectNode response = objectMapper.createObjectNode();
+    response.set("id", request.get("id"));
+    response.putNull("result");
+    response.putNull("error");
+    JsonNode params = request.get("params");
+    switch (method) {
+      case "getblockcount":
+        response.put("result", blockHeight);
+        break;
+      case "getblockchaininfo":
+        response.putObject("result").put("chain", chain);
+        break;
+      case "getrawtransaction":
+        String hex = txs.get(params.get(0).asText());
+        if (hex != null) {
+          response
+              .putObject("result")
+              .put("hex", hex)
+              .put("confirmations", TX_CONFIRMATIONS)
+              .put("time", TX_TIME);
+        } else {
+          response
+              .putObject("error")
+              .put("code", -5)
+              .put("message", "No such mempool or blockchain transaction");
+        }
+        break;
+      case "sendrawtransaction":
+        if (broadcastError != null) {
+          response.putObject("error").put("code", -26).put("message", broadcastError);
+        } else {
+          response.put("result", "txid");
+        }
+        break;
+      default:
+        response.putObject("error").put("code", -32601).put("message", "Method not found");
+    }
+    return response;
+  }
+
+  public void putTx(String txid, String hex) {
+    txs.put(txid, hex);
+  }
+
+  public void removeTx(String txid) {
+    txs.remove(txid);
+  }
+
+  public int getNbCalls(String method) {
+    AtomicInteger nbCalls = nbCallsByMethod.get(method);
+    return nbCalls != null ? nbCalls.get() : 0;
+  }
+
+  public int getNbHttpRequests() {
+    return nbHttpRequests.get();
+  }
+
+  public Set<Integer> getClientPorts() {
+    return clientPorts;
+  }
+
+  public void setDelayMs(long delayMs) {
+    this.delayMs = delayMs;
+  }
+
+  public void setBlockHeight(int blockHeight) {
+    this.blockHeight = blockHeight;
+  }
+
+  public void setChain(String chain) {
+    this.chain = chain;
+  }
+
+  public void setBroadcastError(String broadcastError) {
+    this.broadcastError = broadcastError;
+  }
+}
@@ -0,0 +1,94 @@
+package com.samourai.whirlpool.server.utils;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class LoadingCacheTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Test
+  public void get_singleFlight() throws Exception {
+    LoadingCache<String, String> cache = new LoadingCache<>(10, 60000, v -> true);
+    AtomicInteger nbLoads = new AtomicInteger(0);
+    CountDownLatch loading = new CountDownLatch(1);
+
+    List<Callable<String>> gets = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      gets.add(
+          () ->
+              cache.get(
+                  "key",
+                  k -> {
+                    nbLoads.incrementAndGet();
+                    try {
+                      loading.await(); // slow load
+                    } catch (InterruptedException e) {
+                    }
+                    return "value";
+                  }));
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(10);
+    List<Future<String>> results = new ArrayList<>();
+    for (Callable<String> get : gets) {
+      results.add(executorService.submit(get));
+    }
+    Thread.sleep(200);
+    loading.countDown();
+    for (Future<String> result : results) {
+      Assert.assertEquals("value", result.get());
+    }
+    executorService.shutdown();
+
+    Assert.assertEquals(1, nbLoads.get());
+    Assert.assertEquals(1, cache.getNbMisses());
+    Assert.assertEquals(10, cache.getNbMisses() + cache.getNbHits() + cache.getNbCoalesced());
+  }
+
+  @Test
+  public void get_lruAndNotCacheable() throws Exception {
+    LoadingCache<Integer, Integer> cache = new LoadingCache<>(2, 60000, v -> v >= 0);
+    cache.get(1, k -> k);
+    cache.get(2, k -> k);
+    cache.get(1, k -> k); // 1 most recently used
+    cache.get(3, k -> k); // evicts 2
+    Assert.assertEquals(1, cache.getNbEvicted());
+    Assert.assertNotNull(cache.getIfPresent(1));
+    Assert.assertNull(cache.getIfPresent(2));
+    Assert.assertNotNull(cache.getIfPresent(3));
+
+    // not cacheable
+    Assert.assertEquals(-1, (int) cache.get(-1, k -> k));
+    Assert.assertNull(cache.getIfPresent(-1));
+  }
+
+  @Test
+  public void get_ttlByValue() throws Exception {
+    LoadingCache<Integer, Integer> cache = new LoadingCache<>(10, v -> v > 0 ? 60000 : 50);
+    cache.get(1, k -> k);
+    cache.get(0, k -> k);
+    Assert.assertNotNull(cache.getIfPresent(0));
+
+    Thread.sleep(100);
+    Assert.assertNotNull(cache.getIfPresent(1));
+    Assert.assertNull(cache.getIfPresent(0)); // expired
+  }
+}
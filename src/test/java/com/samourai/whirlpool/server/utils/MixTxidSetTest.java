@@ -0,0 +1,103 @@
+package com.samourai.whirlpool.server.utils;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.util.Random;
+import org.bitcoinj.core.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class MixTxidSetTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String TXID =
+      "cb2fad88ae75fdabb2bcc131b2f4f0ff2c82af22b6dd804dc341900195fb6187";
+
+  @Test
+  public void addAndContains() {
+    MixTxidSet mixTxids = new MixTxidSet();
+    Assert.assertFalse(mixTxids.contains(TXID, 1000000));
+
+    Assert.assertTrue(mixTxids.add(TXID, 1000000));
+    Assert.assertFalse(mixTxids.add(TXID, 1000000)); // already present
+    Assert.assertEquals(1, mixTxids.size());
+
+    Assert.assertTrue(mixTxids.contains(TXID, 1000000));
+    Assert.assertFalse(mixTxids.contains(TXID, 1000001)); // other denomination
+    Assert.assertFalse(mixTxids.contains(TXID, 0));
+
+    mixTxids.clear();
+    Assert.assertFalse(mixTxids.contains(TXID, 1000000));
+    Assert.assertEquals(0, mixTxids.size());
+  }
+
+  @Test
+  public void resize() {
+    int nbTxids = 200000;
+    MixTxidSet mixTxids = new MixTxidSet();
+    String[] txids = computeTxids(nbTxids, 1);
+    for (String txid : txids) {
+      Assert.assertTrue(mixTxids.add(txid, 1000000));
+    }
+    Assert.assertEquals(nbTxids, mixTxids.size());
+    for (String txid : txids) {
+      Assert.assertTrue(mixTxids.contains(txid, 1000000));
+    }
+    for (String txid : computeTxids(1000, 2)) {
+      Assert.assertFalse(mixTxids.contains(txid, 1000000));
+    }
+
+    // 40 bytes per entry, at most 2x for load factor and 2x for power-of-2 capacity
+    long memoryBytes = mixTxids.getMemoryBytes();
+    Assert.assertTrue("memory=" + memoryBytes, memoryBytes <= 4L * 40 * nbTxids);
+  }
+
+  @Test
+  public void contains_benchmark() {
+    assumeBenchmark();
+    int nbTxids = 1000000;
+    MixTxidSet mixTxids = new MixTxidSet(nbTxids);
+    String[] txids = computeTxids(nbTxids, 1);
+    for (String txid : txids) {
+      mixTxids.add(txid, 1000000);
+    }
+
+    int nbLookups = 1000000;
+    long start = System.nanoTime();
+    int nbFound = 0;
+    for (int i = 0; i < nbLookups; i++) {
+      if (mixTxids.contains(txids[i % nbTxids], 1000000)) {
+        nbFound++;
+      }
+    }
+    long elapsedNs = System.nanoTime() - start;
+    Assert.assertEquals(nbLookups, nbFound);
+    log.info(
+        "contains: "
+            + nbTxids
+            + " txids, "
+            + mixTxids.getMemoryBytes() / 1024 / 1024
+            + "MB, "
+            + (elapsedNs / nbLookups)
+            + "ns/lookup");
+  }
+
+  private String[] computeTxids(int nb, long seed) {
+    Random random = new Random(seed);
+    String[] txids = new String[nb];
+    byte[] bytes = new byte[32];
+    for (int i = 0; i < nb; i++) {
+      random.nextBytes(bytes);
+      txids[i] = Utils.HEX.encode(bytes);
+    }
+    return txids;
+  }
+}
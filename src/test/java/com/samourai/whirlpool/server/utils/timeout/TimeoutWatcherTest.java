@@ -0,0 +1,140 @@
+package com.samourai.whirlpool.server.utils.timeout;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class TimeoutWatcherTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final long TIMEOUT = 60000;
+  private static final long WAIT_MAX = 5000;
+
+  private MockClock clock;
+  private TimeoutScheduler timeoutScheduler;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    // clock ahead of system time, watchers should only rely on injected clock
+    clock = new MockClock(Instant.now().plus(Duration.ofDays(1)));
+    timeoutScheduler = new TimeoutScheduler(clock, 1);
+  }
+
+  @After
+  public void tearDown() {
+    super.tearDown();
+    timeoutScheduler.shutdown();
+  }
+
+  @Test
+  public void onTimeout() throws Exception {
+    AtomicInteger nbTimeouts = new AtomicInteger(0);
+    TimeoutWatcher timeoutWatcher =
+        new TimeoutWatcher(computeListener(TIMEOUT, nbTimeouts), timeoutScheduler);
+    Assert.assertEquals(1, timeoutScheduler.getNbPending());
+
+    for (int i = 1; i <= 2; i++) {
+      clock.advance(TIMEOUT);
+      timeoutWatcher.resumeThread();
+      waitTimeouts(i, nbTimeouts);
+    }
+    Assert.assertEquals(2, timeoutScheduler.getNbFired());
+
+    // stop
+    timeoutWatcher.stop();
+    Assert.assertEquals(0, timeoutScheduler.getNbPending());
+    clock.advance(TIMEOUT);
+    timeoutWatcher.resumeThread();
+    Assert.assertEquals(0, timeoutScheduler.getNbPending());
+    Assert.assertEquals(2, nbTimeouts.get());
+  }
+
+  @Test
+  public void resetTimeout() throws Exception {
+    AtomicInteger nbTimeouts = new AtomicInteger(0);
+    TimeoutWatcher timeoutWatcher =
+        new TimeoutWatcher(computeListener(TIMEOUT, nbTimeouts), timeoutScheduler);
+
+    clock.advance(TIMEOUT * 2 / 3);
+    timeoutWatcher.resetTimeout();
+    clock.advance(TIMEOUT * 2 / 3);
+    timeoutWatcher.resumeThread();
+    Assert.assertEquals(TIMEOUT / 3, timeoutWatcher.computeTimeToWait().longValue());
+    Assert.assertEquals(0, nbTimeouts.get());
+    Assert.assertEquals(1, timeoutScheduler.getNbPending());
+
+    // simulate elapsed time
+    timeoutWatcher.__simulateElapsedTime(TIMEOUT / 1000);
+    waitTimeouts(1, nbTimeouts);
+    timeoutWatcher.stop();
+  }
+
+  private void waitTimeouts(int expected, AtomicInteger nbTimeouts) throws Exception {
+    long deadline = System.currentTimeMillis() + WAIT_MAX;
+    while (nbTimeouts.get() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(expected, nbTimeouts.get());
+  }
+
+  private ITimeoutWatcherListener computeListener(long timeout, AtomicInteger nbTimeouts) {
+    return new ITimeoutWatcherListener() {
+      @Override
+      public Long computeTimeToWait(TimeoutWatcher timeoutWatcher) {
+        return timeout - timeoutWatcher.computeElapsedTime();
+      }
+
+      @Override
+      public void onTimeout(TimeoutWatcher timeoutWatcher) {
+        nbTimeouts.incrementAndGet();
+      }
+    };
+  }
+
+  /** Clock only moving when advanced by test. */
+  private static class MockClock extends Clock {
+    private volatile Instant instant;
+
+    MockClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    void advance(long millis) {
+      instant = instant.plusMillis(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.samourai.whirlpool.server.utils.websocket;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class WebSocketDispatcherTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Test
+  public void send_shouldKeepOrderPerSession() throws Exception {
+    WebSocketDispatcher dispatcher = new WebSocketDispatcher(4, 1000, username -> {});
+    int nbSessions = 10;
+    int nbMessages = 100;
+    CountDownLatch latch = new CountDownLatch(nbSessions * nbMessages);
+
+    List<List<Integer>> received = new ArrayList<>();
+    for (int s = 0; s < nbSessions; s++) {
+      received.add(Collections.synchronizedList(new ArrayList<>()));
+      dispatcher.onConnect("user" + s);
+    }
+    for (int i = 0; i < nbMessages; i++) {
+      for (int s = 0; s < nbSessions; s++) {
+        List<Integer> sessionReceived = received.get(s);
+        int message = i;
+        dispatcher.send(
+            "user" + s,
+            () -> {
+              sessionReceived.add(message);
+              latch.countDown();
+            });
+      }
+    }
+    Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+    // VERIFY
+    for (List<Integer> sessionReceived : received) {
+      Assert.assertEquals(nbMessages, sessionReceived.size());
+      for (int i = 0; i < nbMessages; i++) {
+        Assert.assertEquals(i, (int) sessionReceived.get(i));
+      }
+    }
+    Assert.assertEquals(0, dispatcher.getNbQueued());
+    Assert.assertEquals(nbSessions * nbMessages, dispatcher.getSendLatency().getCount());
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void send_shouldDropSlowConsumer() throws Exception {
+    List<String> disconnected = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch disconnectLatch = new CountDownLatch(1);
+    WebSocketDispatcher dispatcher =
+        new WebSocketDispatcher(
+            1,
+            2,
+            username -> {
+              disconnected.add(username);
+              disconnectLatch.countDown();
+            });
+    CountDownLatch blocked = new CountDownLatch(1);
+    dispatcher.onConnect("slow");
+
+    // slow consumer blocks on first message
+    dispatcher.send("slow", () -> awaitQuietly(blocked));
+    Thread.sleep(100);
+    dispatcher.send("slow", () -> {});
+    dispatcher.send("slow", () -> {});
+    Assert.assertEquals(2, dispatcher.getNbQueued());
+
+    // queue full => dropped
+    dispatcher.send("slow", () -> {});
+    Assert.assertEquals(0, dispatcher.getNbQueued());
+    Assert.assertEquals(1, dispatcher.getNbSlowConsumers());
+    Assert.assertEquals(3, dispatcher.getNbDropped());
+
+    // further messages are ignored
+    dispatcher.send("slow", () -> {});
+    Assert.assertEquals(4, dispatcher.getNbDropped());
+
+    // slow consumer is disconnected
+    blocked.countDown();
+    Assert.assertTrue(disconnectLatch.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Collections.singletonList("slow"), disconnected);
+    dispatcher.onDisconnect("slow");
+    Assert.assertEquals(0, dispatcher.getNbSessions());
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void send_shouldIgnoreUnknownSession() throws Exception {
+    WebSocketDispatcher dispatcher = new WebSocketDispatcher(1, 10, username -> {});
+
+    // never connected
+    dispatcher.send("unknown", () -> Assert.fail());
+    Assert.assertEquals(0, dispatcher.getNbSessions());
+    Assert.assertEquals(1, dispatcher.getNbDropped());
+
+    // late send after disconnect doesn't recreate session queue
+    dispatcher.onConnect("user");
+    Assert.assertEquals(1, dispatcher.getNbSessions());
+    dispatcher.onDisconnect("user");
+    dispatcher.send("user", () -> Assert.fail());
+    Assert.assertEquals(0, dispatcher.getNbSessions());
+    Assert.assertEquals(2, dispatcher.getNbDropped());
+    dispatcher.shutdown();
+  }
+
+  private void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+    }
+  }
+}